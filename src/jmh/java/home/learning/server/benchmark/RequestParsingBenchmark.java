@@ -0,0 +1,123 @@
+package home.learning.server.benchmark;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpRequestParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Request side of the hot path : reading and parsing one request , with header sets
+ * as sent by curl , by a browser and by a JSON POST.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    private static final String CURL = "GET /person HTTP/1.1\r\n"
+            + "Host: localhost:7000\r\n"
+            + "User-Agent: curl/8.4.0\r\n"
+            + "Accept: */*\r\n\r\n";
+
+    private static final String BROWSER = "GET /person?id=42 HTTP/1.1\r\n"
+            + "Host: localhost:7000\r\n"
+            + "Connection: keep-alive\r\n"
+            + "sec-ch-ua: \"Chromium\";v=\"124\", \"Google Chrome\";v=\"124\", \"Not-A.Brand\";v=\"99\"\r\n"
+            + "sec-ch-ua-mobile: ?0\r\n"
+            + "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36\r\n"
+            + "sec-ch-ua-platform: \"Windows\"\r\n"
+            + "Accept: application/json, text/plain, */*\r\n"
+            + "Origin: http://localhost:3000\r\n"
+            + "Sec-Fetch-Site: same-site\r\n"
+            + "Sec-Fetch-Mode: cors\r\n"
+            + "Sec-Fetch-Dest: empty\r\n"
+            + "Referer: http://localhost:3000/\r\n"
+            + "Accept-Encoding: gzip, deflate, br, zstd\r\n"
+            + "Accept-Language: en-US,en;q=0.9,ta;q=0.8\r\n"
+            + "Cookie: session=3f2a9c1e7b4d4e0f9a8b7c6d5e4f3a2b; theme=dark; _ga=GA1.1.123456789.1700000000\r\n"
+            + "If-None-Match: \"5f1e2d3c4b5a69788796a5b4c3d2e1f0\"\r\n\r\n";
+
+    private static final String POST = "POST /person HTTP/1.1\r\n"
+            + "Host: localhost:7000\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Content-Length: 1024\r\n\r\n";
+
+    @Param({"curl", "browser", "post"})
+    public String headers;
+
+    private Server server;
+    private HttpRequestParser parser;
+    private ByteArrayInputStream stream;
+    private HttpRequest parsed;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] request = request(headers);
+        server = new Server();
+        parser = new HttpRequestParser(ServerConstants.DEFAULT_MAX_HEADER_BYTES, ServerConstants.DEFAULT_MAX_BODY_BYTES);
+        stream = new ByteArrayInputStream(request);
+        parsed = parser.readRequest(stream);
+    }
+
+    /* The String API : a new parser per call and the request rendered back to text. */
+    @Benchmark
+    public String readInputFromClient() throws IOException {
+        stream.reset();
+        return server.readInputFromClient(stream);
+    }
+
+    /* The per-connection parser , reused like both engines reuse it. */
+    @Benchmark
+    public HttpRequest parseRequest() throws IOException {
+        stream.reset();
+        return parser.readRequest(stream);
+    }
+
+    /* What used to be Server.isHttpRequest : the method check on a parsed request. */
+    @Benchmark
+    public boolean isHttpRequest() {
+        return parsed.isHttpMethod();
+    }
+
+    /* Lazy header lookup , the Accept-Encoding and If-None-Match checks of every response. */
+    @Benchmark
+    public String getHeader() {
+        return parsed.getHeader("Accept-Encoding");
+    }
+
+    private static byte[] request(String headers) {
+        switch (headers) {
+            case "browser":
+                return BROWSER.getBytes(StandardCharsets.ISO_8859_1);
+            case "post":
+                byte[] head = POST.getBytes(StandardCharsets.ISO_8859_1);
+                byte[] request = new byte[head.length + 1024];
+                System.arraycopy(head, 0, request, 0, head.length);
+                for (int i = head.length; i < request.length; i++) {
+                    request[i] = 'x';
+                }
+                return request;
+            default:
+                return CURL.getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
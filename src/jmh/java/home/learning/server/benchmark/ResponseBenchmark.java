@@ -0,0 +1,135 @@
+package home.learning.server.benchmark;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.HttpRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Response side of the hot path , for JSON payloads from 1 KB to 50 MB.
+ * Payloads above server.transfer.threshold.bytes (1 MB) are served from disk , the others from memory.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBenchmark {
+
+    private static final String FILE_NAME = "payload.json";
+
+    @Param({"1024", "65536", "1048576", "52428800"})
+    public int payloadBytes;
+
+    @Param({"identity", "gzip"})
+    public String acceptEncoding;
+
+    private Path directory;
+    private JsonFileCache cache;
+    private Server server;
+    private HttpRequest request;
+    private String payload;
+    private final OutputStream sink = new DiscardingOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("server-benchmark");
+        payload = json(payloadBytes);
+        Files.write(directory.resolve(FILE_NAME), payload.getBytes(StandardCharsets.UTF_8));
+        cache = new JsonFileCache(directory, ServerConstants.DEFAULT_CACHE_MAX_BYTES,
+                ServerConstants.DEFAULT_TRANSFER_THRESHOLD, ServerConstants.DEFAULT_COMPRESSION_MIN_BYTES);
+        cache.get(FILE_NAME);
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty("payload", FILE_NAME);
+        server = new Server(properties);
+        request = HttpRequest.parse("GET /payload HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: " + acceptEncoding + "\r\n");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.stop();
+        cache.close();
+        Files.deleteIfExists(directory.resolve(FILE_NAME));
+        Files.deleteIfExists(directory);
+    }
+
+    /* What Server.respondHttpDataToClient does : route , negotiate and write the mapped payload. */
+    @Benchmark
+    public void respondHttpDataToClient() throws IOException {
+        server.getResponse(request).writeTo(sink);
+    }
+
+    /* The cached response of a payload of the given size written to a client. */
+    @Benchmark
+    public void writeCachedResponse() throws IOException {
+        cache.get(FILE_NAME).getResponse(request).writeTo(sink);
+    }
+
+    /* What Server.getResponseToHttpClient does : encode a complete response from a String body. */
+    @Benchmark
+    public EncodedResponse getResponseToHttpClient() {
+        return EncodedResponse.of(ServerConstants.REQUEST_OK, ServerConstants.CONTENT_TYPE_JSON, payload);
+    }
+
+    /* What Server.readJsonFile does : the mapped file as a String. */
+    @Benchmark
+    public String readJsonFile() throws IOException {
+        return cache.get(FILE_NAME).getJson();
+    }
+
+    /*
+     * JSON array of person like objects , close to the given size in bytes.
+     * */
+    private static String json(int size) {
+        StringBuilder json = new StringBuilder(size + 128).append('[');
+        int id = 0;
+        while (json.length() < size - 2) {
+            if (id > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(id)
+                    .append(",\"name\":\"Person ").append(id)
+                    .append("\",\"city\":\"Chennai\",\"active\":").append(id % 2 == 0)
+                    .append(",\"tags\":[\"mock\",\"fixture\"]}");
+            id++;
+        }
+        return json.append(']').toString();
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            // Discarded.
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // Discarded.
+        }
+    }
+}
@@ -1,7 +1,28 @@
 package home.learning.server;
 
+/*
+ * Log levels , from the most to the least verbose.
+ * A message is written when its level is at or above the configured threshold.
+ * */
 public enum LogLevel {
 
+    DEBUG,
     INFO,
-    ERROR
+    WARN,
+    ERROR;
+
+    /*
+     * @Param value : Level name from server.properties , case insensitive
+     * @Return LogLevel : The level , the default value if the name is missing or unknown
+     * */
+    public static LogLevel parse(String value, LogLevel defaultValue) {
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
 }
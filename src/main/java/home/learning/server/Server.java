@@ -1,25 +1,107 @@
 package home.learning.server;
 
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.cache.FixtureArchive;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.fault.FaultRule;
+import home.learning.server.fault.FaultRules;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.HttpParseException;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpRequestParser;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.limit.ConnectionLimiter;
+import home.learning.server.limit.RateLimiter;
+import home.learning.server.metrics.ServerMetrics;
+import home.learning.server.nio.NioServerEngine;
+import home.learning.server.proxy.RecordingProxy;
+import home.learning.server.query.JsonQuery;
+import home.learning.server.query.QueryResultCache;
+import home.learning.server.proxy.UpstreamClient;
+import home.learning.server.route.Route;
+import home.learning.server.route.RouteIndex;
+import home.learning.server.route.RouteMatch;
+import home.learning.server.store.ResourceCollection;
+import home.learning.server.store.ResourceStore;
+import home.learning.server.util.AcceptBackoff;
+import home.learning.server.util.AsyncLogger;
+import home.learning.server.util.FileWatcher;
+import home.learning.server.util.IdleConnectionParker;
 import home.learning.server.util.ServerUtil;
+import home.learning.server.util.SocketSettings;
+import home.learning.server.util.TimerWheel;
 import org.junit.Assert;
 
 import java.io.*;
+import java.net.InetAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.URL;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 public class Server {
 
     public static final int port = 7000;
 
     private Properties serverProperties = new Properties();
-    private static final Server server = new Server();
-
+    private int serverPort = port;
+    /* Route table and fault rules , swapped as one when server.properties changes so lookups need no lock. */
+    private volatile RouteConfig routeConfig;
+    private volatile TimerWheel timerWheel;
+    private volatile IdleConnectionParker idleParker;
+    private volatile ExecutorService workerExecutor;
+    private Path propertiesPath;
+    private FileWatcher propertiesWatcher;
+    private volatile JsonFileCache jsonFileCache;
+    private FixtureArchive fixtureArchive;
+    private int keepAliveTimeout;
+    private int maxKeepAliveRequests;
+    private int maxHeaderBytes;
+    private int maxBodyBytes;
+    private String metricsPath;
+    private int requestTimeout;
+    private boolean paginationEnabled;
+    private int defaultPageSize;
+    private int maxPageSize;
+    private boolean statefulEnabled;
+    private boolean queryEnabled;
+    private QueryResultCache queryResultCache;
+    private volatile ResourceStore resourceStore;
+    private UpstreamClient upstreamClient;
+    private volatile RecordingProxy recordingProxy;
+    private ConnectionLimiter connectionLimiter;
+    private RateLimiter rateLimiter;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private SocketSettings socketSettings;
+    private volatile List<ServerSocket> serverSockets = Collections.emptyList();
+    private volatile NioServerEngine nioEngine;
     private static final ServerUtil serverUtil = new ServerUtil();
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private static final Server server = new Server();
 
 
     /*
@@ -31,13 +113,83 @@ public class Server {
      * */
     public Server() {
         try {
-            serverProperties = loadServerProperties();
+            configure(loadServerProperties());
         } catch (IOException e) {
             appendLog("Unable to load the server properties", LogLevel.ERROR);
             System.exit(1);
+        } catch (IllegalArgumentException e) {
+            logger.log(LogLevel.ERROR, "Invalid mapping in server properties : {}", e.getMessage());
+            System.exit(1);
         }
     }
 
+    /*
+     * Initialize the server with the given properties instead of the server.properties file ,
+     * like a test starting the server in-process with its own fixtures and "server.port=0".
+     * @Throws IllegalArgumentException : If a mapping is invalid
+     * */
+    public Server(Properties properties) {
+        configure(properties);
+    }
+
+    /*
+     * Initialize the server with the given properties file , which is watched for route changes once the server runs.
+     * @Throws IOException : If the file cannot be read
+     * @Throws IllegalArgumentException : If a mapping is invalid
+     * */
+    public Server(Path propertiesFile) throws IOException {
+        propertiesPath = propertiesFile;
+        configure(loadProperties(propertiesFile));
+    }
+
+    /*
+     * Reads the settings and compiles the route mappings.
+     * @Throws IllegalArgumentException : If a mapping is invalid
+     * */
+    private void configure(Properties properties) {
+        serverProperties = properties;
+        serverPort = serverUtil.getIntProperty(serverProperties, ServerConstants.SERVER_PORT, port);
+        logger.setThreshold(LogLevel.parse(serverProperties.getProperty(ServerConstants.LOG_LEVEL), LogLevel.INFO));
+        fixtureArchive = openFixtureArchive(serverProperties.getProperty(ServerConstants.ARCHIVE_FILE, "").trim());
+        routeConfig = new RouteConfig(compileRoutes(serverProperties), FaultRules.parse(serverProperties), serverProperties);
+        keepAliveTimeout = serverUtil.getIntProperty(serverProperties, ServerConstants.KEEP_ALIVE_TIMEOUT, ServerConstants.DEFAULT_KEEP_ALIVE_TIMEOUT);
+        maxKeepAliveRequests = serverUtil.getIntProperty(serverProperties, ServerConstants.KEEP_ALIVE_MAX_REQUESTS, ServerConstants.DEFAULT_KEEP_ALIVE_MAX_REQUESTS);
+        maxHeaderBytes = serverUtil.getIntProperty(serverProperties, ServerConstants.MAX_HEADER_BYTES, ServerConstants.DEFAULT_MAX_HEADER_BYTES);
+        maxBodyBytes = serverUtil.getIntProperty(serverProperties, ServerConstants.MAX_BODY_BYTES, ServerConstants.DEFAULT_MAX_BODY_BYTES);
+        metricsPath = serverProperties.getProperty(ServerConstants.METRICS_PATH, ServerConstants.DEFAULT_METRICS_PATH).trim();
+        requestTimeout = serverUtil.getIntProperty(serverProperties, ServerConstants.REQUEST_TIMEOUT_MS, ServerConstants.DEFAULT_REQUEST_TIMEOUT);
+        paginationEnabled = Boolean.parseBoolean(serverProperties.getProperty(ServerConstants.PAGINATION_ENABLED, "false").trim());
+        maxPageSize = serverUtil.getIntProperty(serverProperties, ServerConstants.PAGINATION_MAX_SIZE, ServerConstants.DEFAULT_MAX_PAGE_SIZE);
+        statefulEnabled = Boolean.parseBoolean(serverProperties.getProperty(ServerConstants.STATEFUL_ENABLED, "false").trim());
+        queryEnabled = Boolean.parseBoolean(serverProperties.getProperty(ServerConstants.QUERY_ENABLED, "false").trim());
+        queryResultCache = new QueryResultCache(serverUtil.getLongProperty(serverProperties, ServerConstants.QUERY_CACHE_MAX_BYTES,
+                ServerConstants.DEFAULT_QUERY_CACHE_MAX_BYTES));
+        defaultPageSize = Math.min(maxPageSize, serverUtil.getIntProperty(serverProperties, ServerConstants.PAGINATION_DEFAULT_SIZE, ServerConstants.DEFAULT_PAGE_SIZE));
+        connectionLimiter = new ConnectionLimiter(serverUtil.getIntProperty(serverProperties, ServerConstants.MAX_CONNECTIONS, ServerConstants.DEFAULT_MAX_CONNECTIONS));
+        rateLimiter = new RateLimiter(serverUtil.getLongProperty(serverProperties, ServerConstants.RATE_LIMIT_PER_SECOND, 0),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.RATE_LIMIT_BURST, 1));
+        socketSettings = new SocketSettings(serverUtil.getIntProperty(serverProperties, ServerConstants.ACCEPTORS, 1),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.BACKLOG, ServerConstants.DEFAULT_BACKLOG),
+                Boolean.parseBoolean(serverProperties.getProperty(ServerConstants.TCP_NODELAY, "true").trim()),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.SEND_BUFFER_BYTES, 0),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.RECEIVE_BUFFER_BYTES, 0));
+        upstreamClient = createUpstreamClient();
+    }
+
+    /*
+     * @Return UpstreamClient : null when server.proxy.upstream is not set
+     * @Throws IllegalArgumentException : If the upstream URL is invalid
+     * */
+    private UpstreamClient createUpstreamClient() {
+        String upstream = serverProperties.getProperty(ServerConstants.PROXY_UPSTREAM, "").trim();
+        if (upstream.isEmpty()) {
+            return null;
+        }
+        return new UpstreamClient(upstream,
+                serverUtil.getIntProperty(serverProperties, ServerConstants.PROXY_CONNECT_TIMEOUT_MS, ServerConstants.DEFAULT_PROXY_CONNECT_TIMEOUT),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.PROXY_READ_TIMEOUT_MS, ServerConstants.DEFAULT_PROXY_READ_TIMEOUT));
+    }
+
     /*
      * This method will start the server and listen to the incoming requests.
      * This method act as the starting port to start the server and do all the actions
@@ -50,72 +202,559 @@ public class Server {
 
     /*
      * This method will run the server and listen to the incoming requests.
-     * @Throws UnknownHostException : If the host is not found
-     * @Throws IOException : If there is an error reading the input stream
-     *  @Throws IOException : If there is an error reading the input stream
-     *  @Throws IOException : If there is an error reading the input stream
-     *  @Throws IOException : If there is an error reading the input stream
-     *  @Throws IOException : If there is an error reading the input stream
+     * The accept loops only hand every accepted socket off to the worker executor
+     * configured in server.properties , so one slow client does not block the others.
+     * With server.acceptors above 1 the extra loops run on their own threads , each on its own
+     * SO_REUSEPORT listener when available.
      * */
     public void runServer() {
-        ServerSocket serverSocket = serverUtil.getHandledServerSocket(port);
+        prepareJsonFileCache();
+        prepareResourceStore();
+        watchServerProperties();
+        if (ServerConstants.SERVER_MODE_NIO.equalsIgnoreCase(serverProperties.getProperty(ServerConstants.SERVER_MODE))) {
+            runNioServer();
+            return;
+        }
+        List<ServerSocket> serverSockets = serverUtil.getHandledServerSockets(serverPort, socketSettings);
+        this.serverSockets = serverSockets;
+        started.countDown();
+        ExecutorService workerExecutor = createWorkerExecutor();
+        openIdleParker();
         appendLog("Server is listening on port ...",LogLevel.INFO);
+        List<Thread> acceptors = new ArrayList<>();
+        ThreadFactory acceptorFactory = serverUtil.getThreadFactory("server-acceptor");
+        for (int i = 1; i < socketSettings.getAcceptors(); i++) {
+            ServerSocket serverSocket = serverSockets.get(i % serverSockets.size());
+            Thread acceptor = acceptorFactory.newThread(() -> acceptConnections(serverSocket, workerExecutor));
+            acceptor.start();
+            acceptors.add(acceptor);
+        }
+        acceptConnections(serverSockets.get(0), workerExecutor);
+        for (Thread acceptor : acceptors) {
+            try {
+                acceptor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workerExecutor.shutdown();
+    }
+
+    /*
+     * The worker executor of server.worker.* , serving the connections of the blocking engine
+     * and the blocking requests of the non-blocking engine.
+     * */
+    private ExecutorService createWorkerExecutor() {
+        ExecutorService executor = serverUtil.getWorkerExecutor(
+                serverProperties.getProperty(ServerConstants.WORKER_MODE, ServerConstants.WORKER_MODE_POOL),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.WORKER_THREADS, 0),
+                serverUtil.getIntProperty(serverProperties, ServerConstants.WORKER_QUEUE_SIZE, ServerConstants.DEFAULT_WORKER_QUEUE_SIZE));
+        workerExecutor = executor;
+        return executor;
+    }
+
+    /*
+     * Idle keep-alive connections wait on the parker instead of a worker thread ,
+     * without it they keep their worker until the next request or the keep-alive timeout.
+     * */
+    private void openIdleParker() {
         try {
-            int count = 0;
-            while (true) {
-                Socket socket = serverUtil.getSocket(serverSocket);
-                appendOneTimeLog("Server will accept new connections from now on Port: " + port, count++);
+            idleParker = new IdleConnectionParker("server-idle", keepAliveTimeout);
+        } catch (IOException e) {
+            logger.error("Unable to open the idle connection selector. Idle connections keep their worker thread.", e);
+        }
+    }
 
-                InputStream stream = serverUtil.getInputStream(socket);
+    /*
+     * Accept loop of one acceptor , runs until its listener is closed.
+     * */
+    private void acceptConnections(ServerSocket serverSocket, ExecutorService workerExecutor) {
+        int count = 0;
+        AcceptBackoff backoff = new AcceptBackoff();
+        while (!serverSocket.isClosed()) {
+            Socket socket = serverUtil.getSocket(serverSocket, backoff);
+            if (socket == null) {
+                continue;
+            }
+            if (!admitConnection()) {
+                rejectConnection(socket);
+                continue;
+            }
+            if (count++ == 1) {
+                logger.log(LogLevel.INFO, "Server will accept new connections from now on Port: {}", serverSocket.getLocalPort());
+            }
+            try {
+                socketSettings.configure(socket);
+            } catch (SocketException e) {
+                logger.log(LogLevel.DEBUG, "Unable to configure the accepted socket : {}", e.getMessage());
+            }
+            try {
+                workerExecutor.execute(() -> handleClient(socket));
+            } catch (RejectedExecutionException e) {
+                logger.log(LogLevel.WARN, "Worker queue is full. Answering the connection with 503.");
+                rejectConnection(socket);
+                releaseConnection();
+            }
+        }
+    }
 
-                String request = readInputFromClient(stream);
-                if(request.trim().isEmpty()){
-                    continue;
-                }
+    /*
+     * This method runs the non-blocking engine : N selector loops , roughly one per core ,
+     * serve all connections without a thread per connection.
+     * Only requests which may block , see isBlockingRequest , are answered on the worker executor.
+     * */
+    private void runNioServer() {
+        int loops = serverUtil.getIntProperty(serverProperties, ServerConstants.NIO_LOOPS, 0);
+        NioServerEngine engine = new NioServerEngine(this, loops);
+        ExecutorService workerExecutor = createWorkerExecutor();
+        try {
+            engine.bind(serverPort);
+            nioEngine = engine;
+            started.countDown();
+            appendLog("Server is listening on port ... (non-blocking mode)", LogLevel.INFO);
+            engine.acceptConnections();
+        } catch (IOException e) {
+            logger.error("Unable to start the non-blocking server.", e);
+        } finally {
+            engine.close();
+            workerExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Answers a connection over server.connections.max , or one the full worker queue cannot take ,
+     * with 503 and Retry-After , right on the accept thread.
+     * The response fits in the socket send buffer , so this does not wait for the client.
+     * */
+    private void rejectConnection(Socket socket) {
+        long startTime = System.nanoTime();
+        try {
+            ServerConstants.SERVICE_UNAVAILABLE_RESPONSE.writeTo(serverUtil.getOutputStream(socket));
+            recordRejected(ServerConstants.SERVICE_UNAVAILABLE_RESPONSE, startTime);
+        } catch (IOException | RuntimeException e) {
+            logger.log(LogLevel.DEBUG, "Unable to answer a rejected connection : {}", e.getMessage());
+        } finally {
+            serverUtil.safeCloseSocket(socket);
+        }
+    }
+
+    /*
+     * Admission control for a new connection , both engines ask before serving it.
+     * @Return boolean : true if the connection may be served , releaseConnection() has to follow when it closes
+     * */
+    public boolean admitConnection() {
+        return connectionLimiter.tryAcquire();
+    }
+
+    public void releaseConnection() {
+        connectionLimiter.release();
+    }
+
+    /*
+     * Waits until the server listens , for callers running runServer on another thread.
+     * @Return boolean : true if the server listens , false if the time ran out
+     * */
+    public boolean awaitStarted(long timeout, TimeUnit unit) throws InterruptedException {
+        return started.await(timeout, unit);
+    }
+
+    /*
+     * @Return int : The port the server listens on , the ephemeral one for "server.port=0" , -1 before it listens
+     * */
+    public int getLocalPort() {
+        List<ServerSocket> sockets = serverSockets;
+        if (!sockets.isEmpty()) {
+            return sockets.get(0).getLocalPort();
+        }
+        NioServerEngine engine = nioEngine;
+        return engine != null ? engine.getLocalPort() : -1;
+    }
+
+    /*
+     * Stops accepting connections and stops watching the JSON directory , so runServer returns.
+     * Connections being served are finished by their worker threads.
+     * */
+    public void stop() {
+        for (ServerSocket socket : serverSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.error("Unable to close the server socket", e);
+            }
+        }
+        NioServerEngine engine = nioEngine;
+        if (engine != null) {
+            engine.close();
+        }
+        JsonFileCache cache = jsonFileCache;
+        if (cache != null) {
+            cache.close();
+        }
+        if (propertiesWatcher != null) {
+            propertiesWatcher.close();
+        }
+        ResourceStore store = resourceStore;
+        if (store != null) {
+            store.close();
+        }
+        TimerWheel wheel = timerWheel;
+        if (wheel != null) {
+            wheel.close();
+        }
+        IdleConnectionParker parker = idleParker;
+        if (parker != null) {
+            parker.close();
+        }
+        RecordingProxy proxy = recordingProxy;
+        if (proxy != null) {
+            proxy.close();
+        }
+    }
 
-                appendLog("Received request : " + request , LogLevel.INFO);
-                boolean isHttpRequest = isHttpRequest(request);
+    /*
+     * This method will read , parse and answer the requests of one client connection.
+     * HTTP/1.1 connections are kept open and pipelined requests are answered in order ,
+     * until the client sends "Connection: close" , stays idle longer than the keep-alive timeout
+     * or reaches the max requests per connection.
+     * A malformed or too large request is answered with its error response and ends the connection.
+     * It runs on a worker thread and closes the socket before returning , unless it handed the connection off :
+     * a response delayed by a fault rule waits on the timer wheel , and a kept-alive connection without
+     * a buffered request waits on the idle parker , both resume it on a worker thread.
+     * @Param socket : The accepted client socket
+     * */
+    private void handleClient(Socket socket) {
+        metrics.connectionOpened();
+        serveClient(new ClientConnection(socket, newRequestParser()));
+    }
 
-                OutputStream oStream = serverUtil.getOutputStream(socket);
-                if (!isHttpRequest) {
-                    returnErrorResponseToClient(oStream);
-                } else {
-                    appendLog("Handling HTTP Request ", LogLevel.INFO);
-                    respondHttpDataToClient(request, oStream);
-                    appendLog("Completed HTTP Request ", LogLevel.INFO);
+    private void serveClient(ClientConnection connection) {
+        Socket socket = connection.socket;
+        boolean handedOff = false;
+        try {
+            socket.setSoTimeout(getSocketTimeout());
+            InetAddress client = socket.getInetAddress();
+            InputStream iStream = serverUtil.getInputStream(socket);
+            OutputStream oStream = serverUtil.getOutputStream(socket);
+            boolean keepAlive = true;
+            if (connection.delayedResponse != null) {
+                writeDelayedResponse(connection, socket, oStream);
+                keepAlive = connection.keepAlive;
+                if (keepAlive && parkIdle(connection)) {
+                    handedOff = true;
+                    return;
+                }
+            }
+            while (keepAlive) {
+                HttpRequest request;
+                try {
+                    request = connection.parser.readRequest(iStream, TimeUnit.MILLISECONDS.toNanos(requestTimeout));
+                } catch (HttpParseException e) {
+                    logger.log(LogLevel.WARN, "Rejected request : {}", e.getMessage());
+                    long startTime = System.nanoTime();
+                    writeResponse(socket, e.getResponse(), oStream);
+                    recordRequest(null, e.getResponse(), startTime);
+                    return;
+                }
+                if (request == null) {
+                    return;
+                }
+                keepAlive = request.isKeepAlive() && ++connection.servedRequests < maxKeepAliveRequests;
+                long startTime = System.nanoTime();
+                HttpResponse response = getResponse(request, client);
+                FaultRule fault = request.getFaultRule();
+                if (fault != null && fault.nextDrops()) {
+                    logger.log(LogLevel.DEBUG, "Dropping the connection of a {} request , as configured.", request.getRouteKey());
+                    return;
+                }
+                long delay = fault != null ? fault.nextDelayMillis() : 0;
+                if (delay > 0) {
+                    connection.delay(request, response, startTime, keepAlive);
+                    resumeLater(connection, delay);
+                    handedOff = true;
+                    return;
+                }
+                writeResponse(socket, response, oStream);
+                recordRequest(request, response, startTime);
+                logger.log(LogLevel.DEBUG, "=======> Server Completed Serving Request <========= ");
+                if (keepAlive && parkIdle(connection)) {
+                    handedOff = true;
+                    return;
                 }
-                serverUtil.safeCloseSocket(socket);
-                appendLog("=======> Server Completed Serving Request <========= ", LogLevel.INFO);
             }
+        }catch (SocketTimeoutException e){
+            logger.log(LogLevel.DEBUG, "Connection idle for {} ms. Closing it.", keepAliveTimeout);
         }catch (IOException e){
-            appendLog("Input to Output Stream failed. Unable to handle the request. Internal Server Error.",LogLevel.ERROR);
-            e.printStackTrace(System.err);
+            logger.error("Input to Output Stream failed. Unable to handle the request. Internal Server Error.", e);
         }catch (Exception e){
-            appendLog("Unable to handle the request. Internal Server Error.",LogLevel.ERROR);
-            e.printStackTrace(System.err);
+            logger.error("Unable to handle the request. Internal Server Error.", e);
+        } finally {
+            if (!handedOff) {
+                closeClient(connection);
+            }
+        }
+    }
+
+    private void writeDelayedResponse(ClientConnection connection, Socket socket, OutputStream oStream) throws IOException {
+        HttpResponse response = connection.delayedResponse;
+        connection.delayedResponse = null;
+        writeResponse(socket, response, oStream);
+        recordRequest(connection.delayedRequest, response, connection.delayedStartTime);
+        connection.delayedRequest = null;
+    }
+
+    /*
+     * Writes a response to a blocking connection through its channel when it has one , so file bodies
+     * are sent with sendfile , else through the socket stream.
+     * */
+    private static void writeResponse(Socket socket, HttpResponse response, OutputStream oStream) throws IOException {
+        SocketChannel channel = socket.getChannel();
+        if (channel != null && channel.isBlocking()) {
+            response.writeTo(channel);
+            return;
+        }
+        response.writeTo(oStream);
+        oStream.flush();
+    }
+
+    /*
+     * Parks a connection on the timer wheel , no thread waits for it meanwhile.
+     * When due it goes back to the worker pool , or waits one more tick if the pool queue is full ,
+     * so the wheel thread never serves a connection itself.
+     * */
+    private void resumeLater(ClientConnection connection, long delayMillis) {
+        getTimerWheel().schedule(delayMillis, () -> {
+            ExecutorService executor = workerExecutor != null ? workerExecutor : ForkJoinPool.commonPool();
+            try {
+                executor.execute(() -> serveClient(connection));
+            } catch (RejectedExecutionException e) {
+                retryLater(connection, executor);
+            }
+        });
+    }
+
+    private void retryLater(ClientConnection connection, ExecutorService executor) {
+        if (executor.isShutdown()) {
+            closeClient(connection);
+            return;
+        }
+        try {
+            resumeLater(connection, ServerConstants.TIMER_TICK_MS);
+        } catch (IllegalStateException e) {
+            closeClient(connection);
+        }
+    }
+
+    /*
+     * Gives the worker of an idle keep-alive connection back to the pool until the next request arrives.
+     * Bytes of the next request already read keep the connection on this worker , as do a socket
+     * without a channel and a server without a parker.
+     * @Return boolean : true if the parker holds the connection now
+     * */
+    private boolean parkIdle(ClientConnection connection) {
+        IdleConnectionParker parker = idleParker;
+        SocketChannel channel = connection.socket.getChannel();
+        if (parker == null || channel == null || workerExecutor == null || connection.parser.hasBufferedBytes()) {
+            return false;
+        }
+        try {
+            parker.park(channel, () -> resumeIdle(connection), () -> {
+                logger.log(LogLevel.DEBUG, "Connection idle for {} ms. Closing it.", keepAliveTimeout);
+                closeClient(connection);
+            });
+            return true;
+        } catch (IOException e) {
+            logger.log(LogLevel.DEBUG, "Unable to park the idle connection : {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void resumeIdle(ClientConnection connection) {
+        try {
+            workerExecutor.execute(() -> serveClient(connection));
+        } catch (RejectedExecutionException e) {
+            logger.log(LogLevel.WARN, "Worker queue is full. Closing an idle connection.");
+            closeClient(connection);
+        }
+    }
+
+    private void closeClient(ClientConnection connection) {
+        serverUtil.safeCloseSocket(connection.socket);
+        metrics.connectionClosed();
+        releaseConnection();
+    }
+
+    /*
+     * The timer wheel holding delayed responses of both engines , started on the first delay.
+     * */
+    public TimerWheel getTimerWheel() {
+        TimerWheel wheel = timerWheel;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = timerWheel;
+                if (wheel == null) {
+                    wheel = new TimerWheel("server-timer", ServerConstants.TIMER_TICK_MS, ServerConstants.TIMER_SLOTS);
+                    timerWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    /*
+     * Read timeout of blocking sockets : the shorter of the keep-alive idle timeout and the request timeout , 0 means none.
+     * */
+    private int getSocketTimeout() {
+        if (requestTimeout <= 0 || keepAliveTimeout <= 0) {
+            return Math.max(requestTimeout, keepAliveTimeout);
+        }
+        return Math.min(requestTimeout, keepAliveTimeout);
+    }
+
+    /*
+     * This method checks if the connection can stay open after answering the request.
+     * @Param request : The request from the client
+     * @Return boolean : true for HTTP/1.1 requests without "Connection: close"
+     * */
+    public boolean isKeepAliveRequest(String request) {
+        return HttpRequest.parse(request).isKeepAlive();
+    }
+
+    /*
+     * This method finds the pre-encoded response for one request , no matter which engine read it.
+     * The non-blocking engine uses it directly , because it writes to the channel itself.
+     * The route key of the request is set on the way , for the metrics.
+     * A HEAD request gets the status line and headers of the GET answer only , whichever route answered it.
+     * @Param request : The parsed request from the client
+     * @Return HttpResponse : Status line , headers and body , shared between requests
+     * */
+    public HttpResponse getResponse(HttpRequest request) throws IOException {
+        return forMethod(request, findResponse(request));
+    }
+
+    private HttpResponse findResponse(HttpRequest request) throws IOException {
+        logger.log(LogLevel.DEBUG, "Received request : {} {}", request.getMethod(), request.getTarget());
+        if (!request.isHttpMethod()) {
+            request.setRouteKey(ServerMetrics.INVALID_ROUTE);
+            return ServerConstants.BAD_REQUEST_RESPONSE;
+        }
+        if (isMetricsRequest(request.getTarget())) {
+            request.setRouteKey(ServerMetrics.METRICS_ROUTE);
+            return getMetricsResponse(request);
+        }
+        return getHttpResponse(request);
+    }
+
+    /*
+     * Records one answered request in the metrics. Called by both engines once the last byte was written.
+     * @Param request : The answered request , null if it could not be parsed
+     * @Param response : The response written
+     * @Param startTime : System.nanoTime() when the request was parsed
+     * */
+    public void recordRequest(HttpRequest request, HttpResponse response, long startTime) {
+        String routeKey = request != null ? request.getRouteKey() : null;
+        metrics.record(routeKey != null ? routeKey : ServerMetrics.INVALID_ROUTE, response.getStatusCode(),
+                System.nanoTime() - startTime, response.getSize());
+    }
+
+    /*
+     * Records a connection turned away by admission control.
+     * */
+    public void recordRejected(HttpResponse response, long startTime) {
+        metrics.record(ServerMetrics.REJECTED_ROUTE, response.getStatusCode(), System.nanoTime() - startTime, response.getSize());
+    }
+
+    /*
+     * The metrics endpoint is reserved before the route mappings , an empty server.metrics.path disables it.
+     * */
+    private boolean isMetricsRequest(String target) {
+        if (metricsPath.isEmpty() || !target.startsWith(metricsPath)) {
+            return false;
+        }
+        return target.length() == metricsPath.length() || target.charAt(metricsPath.length()) == '?';
+    }
+
+    /*
+     * This method renders the metrics , in the Prometheus text format for "?format=prometheus"
+     * or an Accept header asking for text/plain , as JSON otherwise.
+     * */
+    private HttpResponse getMetricsResponse(HttpRequest request) throws IOException {
+        String accept = request.getHeader("Accept");
+        boolean prometheus = request.getTarget().contains("format=prometheus")
+                || (accept != null && accept.contains("text/plain"));
+        String body = prometheus ? metrics.toPrometheus(jsonFileCache) : metrics.toJson(jsonFileCache);
+        return EncodedResponse.newBuilder(ServerConstants.REQUEST_OK)
+                .header(ServerConstants.CACHE_CONTROL, "no-store")
+                .build(prometheus ? ServerConstants.CONTENT_TYPE_PROMETHEUS : ServerConstants.CONTENT_TYPE_JSON,
+                        body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Same as getResponse(HttpRequest) , after the rate limit of the client.
+     * @Param client : The client address , the key of its token bucket
+     * @Return HttpResponse : 429 Too Many Requests with Retry-After when the client is over server.ratelimit.requests.per.second
+     * */
+    public HttpResponse getResponse(HttpRequest request, Object client) throws IOException {
+        if (client != null && !rateLimiter.tryAcquire(client)) {
+            request.setRouteKey(ServerMetrics.REJECTED_ROUTE);
+            return forMethod(request, ServerConstants.TOO_MANY_REQUESTS_RESPONSE);
         }
+        return getResponse(request);
     }
 
+    /*
+     * Tells the non-blocking engine to answer a request on a worker thread instead of its event loop ,
+     * because the answer may wait : a write to the resource store waits for the fsync of the store log ,
+     * and a request no mapping matches waits for the back end when the proxy is on.
+     * */
+    public boolean isBlockingRequest(HttpRequest request) {
+        String method = request.getMethod();
+        if (statefulEnabled && !"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        return upstreamClient != null && request.isHttpMethod() && !isMetricsRequest(request.getTarget())
+                && routeConfig.routes.match(method, request.getTarget()) == null;
+    }
+
+    /*
+     * Runs a blocking task of the non-blocking engine on the worker executor.
+     * @Throws RejectedExecutionException : If the worker queue is full
+     * */
+    public void executeBlocking(Runnable task) {
+        ExecutorService executor = workerExecutor;
+        (executor != null ? executor : ForkJoinPool.commonPool()).execute(task);
+    }
+
+    /*
+     * @Return HttpResponse : The response without its body for a HEAD request , the response itself otherwise
+     * */
+    private static HttpResponse forMethod(HttpRequest request, HttpResponse response) {
+        return "HEAD".equals(request.getMethod()) ? response.withoutBody() : response;
+    }
+
+    /*
+     * Same as getResponse(HttpRequest) , for a request held as text.
+     * @Param request : The request text , like the text returned by readInputFromClient
+     * */
+    public HttpResponse getResponse(String request) throws IOException {
+        return getResponse(HttpRequest.parse(request));
+    }
+
+    /*
+     * Creates the parser reading the requests of one connection , limited by
+     * server.request.max.header.bytes and server.request.max.body.bytes.
+     * */
+    public HttpRequestParser newRequestParser() {
+        return new HttpRequestParser(maxHeaderBytes, maxBodyBytes);
+    }
 
     /*  This method return error response to client , if the request is not a HTTP request
      *@Param oStream : The output stream to write the response to
      *@Throws IOException : If there is an error writing to the output stream
      */
     private void returnErrorResponseToClient(OutputStream writer) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        builder.append(ServerConstants.BAD_REQUEST)
-                .append(ServerConstants.NEW_LINE)
-                .append(ServerConstants.CONTENT_TYPE)
-                .append(ServerConstants.CONTENT_TYPE_JSON)
-                .append(ServerConstants.NEW_LINE)
-                .append(ServerConstants.CONTENT_LENGTH)
-                .append(ServerConstants.HTTP_METHOD_ONLY_SUPPORTED.length())
-                .append(ServerConstants.NEW_LINE)
-                .append(ServerConstants.NEW_LINE)
-                .append(ServerConstants.HTTP_METHOD_ONLY_SUPPORTED);
-        writer.write(builder.toString().getBytes());
+        ServerConstants.BAD_REQUEST_RESPONSE.writeTo(writer);
         writer.flush();
-        writer.close();
     }
 
 
@@ -123,68 +762,121 @@ public class Server {
      * This method will load the server.properties file from the resources folder
      * @Return Properties : The properties object loaded from the server.properties file
      * @Throws IOException : If there is an error reading the server.properties file
-     * @Throws IOException : If there is an error reading the server.properties file
-     * @Throws IOException : If there is an error reading the server.properties file
      * */
     private Properties loadServerProperties() throws IOException {
-        Properties response = new Properties();
-        String pathStr = Server.class.getClassLoader().getResource("server.properties").getPath().replaceFirst("/", "");
-        Path path = Paths.get(pathStr);
-        boolean isServerProExists = Files.exists(path);
+        Path path = serverUtil.getResourcePath("server.properties");
+        boolean isServerProExists = path != null && Files.exists(path);
         if (!isServerProExists) {
             appendLog("Server Properties not exist ....",LogLevel.INFO);
             appendLog("Exiting the System....", LogLevel.ERROR);
             System.exit(1);
         }
-        response.load(new FileReader(path.toFile()));
+        propertiesPath = path;
+        return loadProperties(path);
+    }
+
+    /*
+     * @Throws IOException : If the file cannot be read
+     * @Throws IllegalArgumentException : If the file holds a malformed escape sequence
+     * */
+    private Properties loadProperties(Path path) throws IOException {
+        Properties response = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+            response.load(reader);
+        }
         return response;
     }
 
     /*
-     * This method will print the log message only once
-     * @Param log : The log message to be printed
-     * @Param count : The count to check if the log should be printed or not
+     * This method watches the server.properties file , every change re-reads it and swaps the route table
+     * and fault rules without a restart. Other settings under "server." are only read at startup.
      * */
-    private void appendOneTimeLog(String log, int count) {
-        if (count == 1) {
-            System.out.println(log);
+    private void watchServerProperties() {
+        Path path = propertiesPath;
+        if (path == null || path.getParent() == null || propertiesWatcher != null) {
+            return;
+        }
+        String fileName = path.getFileName().toString();
+        FileWatcher watcher = new FileWatcher(path.getParent(), changed -> {
+            if (changed == null || changed.equals(fileName)) {
+                reloadRoutes(path);
+            }
+        });
+        try {
+            watcher.start("server-properties-watcher");
+            propertiesWatcher = watcher;
+        } catch (IOException e) {
+            logger.error("Unable to watch " + path + ". Changed mappings need a restart.", e);
+        }
+    }
+
+    private void reloadRoutes(Path path) {
+        try {
+            if (Files.exists(path)) {
+                reloadRoutes(loadProperties(path));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(LogLevel.WARN, "Ignoring unreadable {} , keeping the current mappings : {}", path, e.getMessage());
+        }
+    }
+
+    /*
+     * This method compiles the mappings of the given properties into a new route table and swaps it in atomically.
+     * Requests already matched finish against the old table. Invalid mappings , or none at all like a file
+     * caught half written , are rejected and the current table is kept.
+     * The fault rules configured next to the mappings are swapped along with them , in one RouteConfig.
+     * Reloads are serialized with recordMapping , which builds on the current properties.
+     * @Param properties : The new content of server.properties
+     * @Return boolean : true if the new table is in use
+     * */
+    public synchronized boolean reloadRoutes(Properties properties) {
+        RouteIndex current = routeConfig.routes;
+        RouteIndex updated;
+        FaultRules updatedFaults;
+        try {
+            updated = compileRoutes(properties);
+            updatedFaults = FaultRules.parse(properties);
+        } catch (IllegalArgumentException e) {
+            logger.log(LogLevel.WARN, "Rejected the changed mappings , keeping the current ones : {}", e.getMessage());
+            return false;
+        }
+        if (updated.getRoutes().isEmpty()) {
+            logger.log(LogLevel.WARN, "Rejected the changed server properties without mappings , keeping the current ones.");
+            return false;
+        }
+        if (updated.getMappings().equals(current.getMappings())) {
+            routeConfig = new RouteConfig(current, updatedFaults, properties);
+            return true;
+        }
+        routeConfig = new RouteConfig(updated, updatedFaults, properties);
+        try {
+            preloadJsonFiles(updated);
+        } catch (IOException e) {
+            logger.error("Unable to preload the remapped JSON files", e);
         }
+        logger.log(LogLevel.INFO, "Reloaded {} mappings.", updated.getRoutes().size());
+        return true;
     }
 
     /*
-    * This method will print the log message based on the log level
+    * This method will hand the log message to the asynchronous logger based on the log level
      * @Param log : The log message to be printed
      * @Param level : The log level of the message
-     * @Throws IOException : If there is an error writing to the output stream
     * */
     private void appendLog(String log , LogLevel level ) {
-        if(level == LogLevel.INFO) {
-            System.out.println(log);
-        }else if(level == LogLevel.ERROR) {
-            System.err.println(log);
-        }
+        logger.log(level, log);
     }
 
     /*
      * Method to read the input from the client
      * @Param stream : The input stream from the client
-     * @Return String : The input from the client as a String
-     * @Throws IOException : If there is an error reading the input stream
+     * @Return String : Request line and headers of the first request , one per line , empty if nothing was sent
+     * @Throws IOException : If there is an error reading the input stream or the request is invalid
      * */
     public String readInputFromClient(InputStream stream) throws IOException {
         Assert.assertNotNull(stream);
-
-        BufferedReader buffReader = new BufferedReader(new InputStreamReader(stream));
-        StringBuffer response = new StringBuffer(); //Thread safety
-        String line = null;
-        while ((line = (buffReader.readLine())) != null) {
-            if (line.isEmpty()) {
-                break; // End of headers
-            }
-            response.append(line);
-            response.append("\n");
-        }
-        return response.toString();
+        HttpRequest request = newRequestParser().readRequest(stream);
+        return request != null ? request.toString() : "";
     }
 
     /*
@@ -194,19 +886,310 @@ public class Server {
      * @Throws IOException : If there is an error writing to the output stream
     * */
     private void respondHttpDataToClient(String request, OutputStream oStream) throws IOException{
-        String[] requestPath =  request.split(ServerConstants.NEW_LINE);
-        String path = requestPath[0].split(" ")[1];
-        path=path.replaceFirst("/","");
-        String response = readJsonFile(path);
-        String httpStatus = ServerConstants.REQUEST_OK;
-        if(response == null){
-            response = sendBadResponse(path);
-        }else{
-            response = getResponseToHttpClient(ServerConstants.CONTENT_TYPE_JSON, httpStatus,response);
-        }
-        oStream.write(response.getBytes());
+        HttpRequest httpRequest = HttpRequest.parse(request);
+        forMethod(httpRequest, getHttpResponse(httpRequest)).writeTo(oStream);
         oStream.flush();
-        oStream.close();
+    }
+
+    /*
+     * This method returns the pre-encoded response of the JSON file mapped to the request path ,
+     * in the content coding negotiated from Accept-Encoding , or its 304 Not Modified when the
+     * If-None-Match / If-Modified-Since conditions show the client copy is current , its 206 Partial Content
+     * for a Range request , or the constant bad request response when no file is mapped.
+     * @Param request : The HTTP request from the client
+     * @Return HttpResponse : The response to write
+     * */
+    private HttpResponse getHttpResponse(HttpRequest httpRequest) throws IOException {
+        RouteConfig config = routeConfig;
+        RouteMatch match = config.routes.match(httpRequest.getMethod(), httpRequest.getTarget());
+        httpRequest.setRouteKey(match != null ? match.getRoute().getKey() : ServerMetrics.UNMATCHED_ROUTE);
+        FaultRule fault = match != null ? config.faultRules.get(match.getRoute().getKey()) : null;
+        httpRequest.setFaultRule(fault);
+        if (fault != null && fault.nextFails()) {
+            return fault.getErrorResponse();
+        }
+        if (statefulEnabled) {
+            HttpResponse stored = getStoredResponse(httpRequest, config, match);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        CachedJsonFile jsonFile = findJsonFile(match);
+        if (jsonFile == null) {
+            if (match == null && upstreamClient != null) {
+                httpRequest.setRouteKey(ServerMetrics.PROXY_ROUTE);
+                return getRecordingProxy().getResponse(httpRequest);
+            }
+            return ServerConstants.NO_MAPPING_FOUND_RESPONSE;
+        }
+        if (queryEnabled) {
+            HttpResponse queried = getQueryResponse(httpRequest, match, jsonFile);
+            if (queried != null) {
+                return queried;
+            }
+        }
+        if (paginationEnabled) {
+            HttpResponse page = getPageResponse(httpRequest, jsonFile);
+            if (page != null) {
+                return page;
+            }
+        }
+        return jsonFile.getResponse(httpRequest);
+    }
+
+    /*
+     * The proxy forwarding unmapped requests to server.proxy.upstream , created on the first one.
+     * With server.proxy.record (the default) its recordings go to the JSON directory and server.properties.
+     * */
+    private RecordingProxy getRecordingProxy() throws IOException {
+        RecordingProxy proxy = recordingProxy;
+        if (proxy == null) {
+            synchronized (this) {
+                proxy = recordingProxy;
+                if (proxy == null) {
+                    boolean record = Boolean.parseBoolean(serverProperties.getProperty(ServerConstants.PROXY_RECORD, "true").trim());
+                    proxy = new RecordingProxy(upstreamClient, record ? getJsonFileCache().getDirectory() : null, this::recordMapping,
+                            serverProperties.getProperty(ServerConstants.PROXY_HEALTH_PATH, "/").trim(),
+                            serverUtil.getLongProperty(serverProperties, ServerConstants.PROXY_HEALTH_INTERVAL_MS, ServerConstants.DEFAULT_PROXY_HEALTH_INTERVAL));
+                    recordingProxy = proxy;
+                }
+            }
+        }
+        return proxy;
+    }
+
+    /*
+     * Adds the mapping of a recorded fixture : appended to the server.properties file the server was started with ,
+     * so it survives a restart , and swapped into the route table right away.
+     * The table is compiled from the file as it is now , or from the properties of the current table without a file ,
+     * so the mappings reloaded since startup are kept.
+     * */
+    private synchronized void recordMapping(String mappingKey, String fileName) throws IOException {
+        Path path = propertiesPath;
+        if (path == null) {
+            Properties properties = new Properties();
+            properties.putAll(routeConfig.properties);
+            properties.setProperty(mappingKey, fileName);
+            reloadRoutes(properties);
+            return;
+        }
+        byte[] content = Files.readAllBytes(path);
+        String line = (content.length > 0 && content[content.length - 1] != '\n' ? "\n" : "") + mappingKey + "=" + fileName + "\n";
+        Files.write(path, line.getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+        reloadRoutes(path);
+    }
+
+    /*
+     * This method answers requests on collection routes from the resource store in stateful mode.
+     * A route whose fixture is a JSON array of objects is a collection : GET lists it and POST adds a record ,
+     * "route/{id}" reads , replaces (PUT) or deletes (DELETE) one record.
+     * @Param config : The route table and fault rules the request was matched against
+     * @Param match : The route matching the whole path , null if none
+     * @Return HttpResponse : null if the request does not address a collection
+     * */
+    private HttpResponse getStoredResponse(HttpRequest httpRequest, RouteConfig config, RouteMatch match) throws IOException {
+        ResourceStore store = getResourceStore();
+        ResourceCollection collection = match != null ? getCollection(store, match) : null;
+        String id = null;
+        String path = getPath(httpRequest.getTarget());
+        if (collection == null) {
+            int slash = path.lastIndexOf('/');
+            RouteMatch parent = slash > 0 ? config.routes.match(httpRequest.getMethod(), path.substring(0, slash)) : null;
+            collection = parent != null ? getCollection(store, parent) : null;
+            if (collection == null) {
+                return null;
+            }
+            httpRequest.setRouteKey(parent.getRoute().getKey());
+            httpRequest.setFaultRule(config.faultRules.get(parent.getRoute().getKey()));
+            id = path.substring(slash + 1);
+        }
+        String method = httpRequest.getMethod();
+        try {
+            if (id == null) {
+                if ("GET".equals(method) || "HEAD".equals(method)) {
+                    return storedResponse(ServerConstants.REQUEST_OK, collection.toJson(), null);
+                }
+                if ("POST".equals(method)) {
+                    ResourceCollection.Record record = collection.create(getBody(httpRequest));
+                    if (record == null) {
+                        return ServerConstants.RECORD_EXISTS_RESPONSE;
+                    }
+                    String location = (path.startsWith("/") ? path : "/" + path) + "/" + URLEncoder.encode(record.getId(), "UTF-8");
+                    return storedResponse(ServerConstants.CREATED, record.getJson(), location);
+                }
+                return ServerConstants.COLLECTION_METHOD_NOT_ALLOWED_RESPONSE;
+            }
+            id = URLDecoder.decode(id, "UTF-8");
+            if ("GET".equals(method) || "HEAD".equals(method)) {
+                ResourceCollection.Record record = collection.get(id);
+                return record != null ? storedResponse(ServerConstants.REQUEST_OK, record.getJson(), null) : ServerConstants.RECORD_NOT_FOUND_RESPONSE;
+            }
+            if ("PUT".equals(method)) {
+                return storedResponse(ServerConstants.REQUEST_OK, collection.put(id, getBody(httpRequest)).getJson(), null);
+            }
+            if ("DELETE".equals(method)) {
+                return collection.delete(id) ? ServerConstants.NO_CONTENT_RESPONSE : ServerConstants.RECORD_NOT_FOUND_RESPONSE;
+            }
+            return ServerConstants.RECORD_METHOD_NOT_ALLOWED_RESPONSE;
+        } catch (IllegalArgumentException e) {
+            logger.log(LogLevel.DEBUG, "Invalid record for {} : {}", collection.getName(), e.getMessage());
+            return ServerConstants.INVALID_RECORD_RESPONSE;
+        } catch (IOException e) {
+            // The collection undid the change , the client learns it was not stored
+            logger.error("Unable to store the change of " + collection.getName(), e);
+            return ServerConstants.STORE_FAILED_RESPONSE;
+        }
+    }
+
+    private ResourceCollection getCollection(ResourceStore store, RouteMatch match) throws IOException {
+        return store.getCollection(match.getRoute().getKey(), () -> {
+            CachedJsonFile jsonFile = findJsonFile(match);
+            if (jsonFile == null) {
+                return null;
+            }
+            ByteBuffer content = jsonFile.getContent();
+            if (content == null) {
+                return Files.readAllBytes(jsonFile.getPath());
+            }
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            return bytes;
+        });
+    }
+
+    private static byte[] getBody(HttpRequest httpRequest) {
+        byte[] body = httpRequest.getBody();
+        if (body == null || body.length == 0) {
+            throw new IllegalArgumentException("The request has no body");
+        }
+        return body;
+    }
+
+    /* The request path without query string and trailing "/". */
+    private static String getPath(String target) {
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static HttpResponse storedResponse(String statusLine, byte[] json, String location) {
+        EncodedResponse.Builder builder = EncodedResponse.newBuilder(statusLine)
+                .header(ServerConstants.CACHE_CONTROL, "no-store");
+        if (location != null) {
+            builder.header(ServerConstants.LOCATION, location);
+        }
+        return builder.build(ServerConstants.CONTENT_TYPE_JSON, json);
+    }
+
+    /*
+     * This method returns the resource store of the stateful mode , opening its log on first use.
+     * @Return ResourceStore : The store , its log is server.stateful.log or none when the key is empty
+     * */
+    private ResourceStore getResourceStore() throws IOException {
+        ResourceStore store = resourceStore;
+        if (store == null) {
+            synchronized (this) {
+                store = resourceStore;
+                if (store == null) {
+                    String logFile = serverProperties.getProperty(ServerConstants.STATEFUL_LOG, "").trim();
+                    store = ResourceStore.open(logFile.isEmpty() ? null : Paths.get(logFile));
+                    resourceStore = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /*
+     * This method opens the resource store at startup , so the write log is replayed before the first request.
+     * */
+    private void prepareResourceStore() {
+        if (!statefulEnabled) {
+            return;
+        }
+        try {
+            getResourceStore();
+        } catch (IOException e) {
+            logger.error("Unable to open the store log. Stateful requests will fail.", e);
+        }
+    }
+
+    /*
+     * This method answers "?fields=" and filter requests with the projected and filtered file , see JsonQuery.
+     * Results are memoized by route , file version and query , a file served from disk is mapped to be read.
+     * @Return HttpResponse : null if the request has no such parameter or the file is not a JSON object or array
+     * */
+    private HttpResponse getQueryResponse(HttpRequest httpRequest, RouteMatch match, CachedJsonFile jsonFile) throws IOException {
+        if (httpRequest.getTarget().indexOf('?') < 0) {
+            return null;
+        }
+        JsonQuery query = JsonQuery.of(httpRequest.getQueryParameters());
+        if (query == null) {
+            return null;
+        }
+        String key = match.getRoute().getKey() + '\u0000' + jsonFile.getFileName() + '\u0000' + jsonFile.getEtag() + '\u0000' + query;
+        EncodedResponse response = queryResultCache.get(key);
+        if (response != null) {
+            return response;
+        }
+        ByteBuffer content = jsonFile.getContent();
+        if (content == null) {
+            try (FileChannel channel = FileChannel.open(jsonFile.getPath(), StandardOpenOption.READ)) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        byte[] body;
+        try {
+            body = query.apply(content);
+        } catch (IllegalArgumentException e) {
+            logger.log(LogLevel.DEBUG, "Unable to query {} : {}", jsonFile.getFileName(), e.getMessage());
+            return null;
+        }
+        if (body == null) {
+            return null;
+        }
+        response = EncodedResponse.newBuilder(ServerConstants.REQUEST_OK).build(ServerConstants.CONTENT_TYPE_JSON, body);
+        queryResultCache.put(key, response);
+        return response;
+    }
+
+    /*
+     * This method answers "?page=&size=" (page counted from 1) and "?offset=&limit=" requests on a JSON array
+     * with only the asked elements. The size is capped by server.pagination.max.size.
+     * @Return HttpResponse : null if the request asks for no page or the file is not a top-level array
+     * */
+    private HttpResponse getPageResponse(HttpRequest httpRequest, CachedJsonFile jsonFile) throws IOException {
+        String page = httpRequest.getQueryParameter("page");
+        String size = httpRequest.getQueryParameter("size");
+        String offset = httpRequest.getQueryParameter("offset");
+        String limit = httpRequest.getQueryParameter("limit");
+        if (page == null && size == null && offset == null && limit == null) {
+            return null;
+        }
+        long first;
+        long count;
+        try {
+            if (offset != null || limit != null) {
+                first = offset != null ? Long.parseLong(offset.trim()) : 0;
+                count = limit != null ? Long.parseLong(limit.trim()) : defaultPageSize;
+            } else {
+                count = size != null ? Long.parseLong(size.trim()) : defaultPageSize;
+                long pageNumber = page != null ? Long.parseLong(page.trim()) : 1;
+                if (pageNumber < 1) {
+                    return ServerConstants.INVALID_PAGE_RESPONSE;
+                }
+                first = Math.multiplyExact(pageNumber - 1, Math.min(count, maxPageSize));
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            return ServerConstants.INVALID_PAGE_RESPONSE;
+        }
+        if (first < 0 || count < 0) {
+            return ServerConstants.INVALID_PAGE_RESPONSE;
+        }
+        return jsonFile.getPage(first, (int) Math.min(count, maxPageSize));
     }
 
 
@@ -217,36 +1200,145 @@ public class Server {
      * @Throws IOException : If there is an error reading the json file
     * */
     private String readJsonFile(String jsonFileNameProperty) throws IOException {
-        String jsonData = null;
-        String pathStr = getJsonFileDirectory();
-        String fileName = serverProperties.getProperty(jsonFileNameProperty);
-        if(fileName != null) {
-            Path pathObj = Paths.get(pathStr, fileName);
-            boolean isFileExists = Files.exists(pathObj);
-            if (isFileExists) {
-                byte[] bytes = Files.readAllBytes(pathObj);
-                jsonData = new String(bytes);
-                appendLog("JSON data found and read.", LogLevel.INFO);
+        CachedJsonFile jsonFile = findJsonFile("GET", jsonFileNameProperty);
+        return jsonFile != null ? jsonFile.getJson() : null;
+    }
+
+    /*
+     * This method returns the cached JSON file mapped to the request through the route index.
+     * @Param method : The HTTP method of the request
+     * @Param target : The request path , with or without the leading "/" and query string
+     * @Return CachedJsonFile : null if no route matches or none of its files exist
+     * */
+    private CachedJsonFile findJsonFile(String method, String target) throws IOException {
+        return findJsonFile(routeConfig.routes.match(method, target));
+    }
+
+    /*
+     * The candidate files of the matched route are tried in order , so a parameter specific
+     * file like "user-{id}.json" can fall back to a shared one.
+     * @Param match : The matched route , null if no route matched
+     * */
+    private CachedJsonFile findJsonFile(RouteMatch match) throws IOException {
+        if (match == null) {
+            return null;
+        }
+        JsonFileCache cache = getJsonFileCache();
+        for (String fileName : match.getFileNames()) {
+            CachedJsonFile jsonFile = cache.get(fileName);
+            if (jsonFile != null) {
+                return jsonFile;
+            }
+        }
+        return null;
+    }
+
+    /*
+     * This method returns the cache of the JSON directory , creating it on first use.
+     * @Return JsonFileCache : The cache , bounded by server.cache.max.bytes
+     * */
+    private JsonFileCache getJsonFileCache() throws IOException {
+        JsonFileCache cache = jsonFileCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = jsonFileCache;
+                if (cache == null) {
+                    String pathStr = getJsonFileDirectory();
+                    long maxBytes = serverUtil.getLongProperty(serverProperties, ServerConstants.CACHE_MAX_BYTES, ServerConstants.DEFAULT_CACHE_MAX_BYTES);
+                    long transferThreshold = serverUtil.getLongProperty(serverProperties, ServerConstants.TRANSFER_THRESHOLD, ServerConstants.DEFAULT_TRANSFER_THRESHOLD);
+                    long compressionMinBytes = serverUtil.getLongProperty(serverProperties, ServerConstants.COMPRESSION_MIN_BYTES, ServerConstants.DEFAULT_COMPRESSION_MIN_BYTES);
+                    cache = new JsonFileCache(pathStr != null ? Paths.get(pathStr) : null, maxBytes, transferThreshold,
+                            compressionMinBytes, fixtureArchive);
+                    jsonFileCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /*
+     * This method loads every mapped JSON file into the cache and starts watching the JSON directory ,
+     * so steady state requests do not touch the file system and edited files are picked up without a restart.
+     * */
+    private void prepareJsonFileCache() {
+        try {
+            JsonFileCache cache = preloadJsonFiles(routeConfig.routes);
+            cache.watch();
+            logger.log(LogLevel.INFO, "Loaded the mapped JSON files in memory ( {} bytes ).", cache.getUsedBytes());
+        } catch (IOException e) {
+            logger.error("Unable to watch the JSON directory. Edited files need a restart.", e);
+        }
+    }
+
+    private JsonFileCache preloadJsonFiles(RouteIndex routes) throws IOException {
+        List<String> fileNames = new ArrayList<>();
+        for (Route route : routes.getRoutes()) {
+            fileNames.addAll(route.getStaticFileNames());
+        }
+        JsonFileCache cache = getJsonFileCache();
+        cache.preload(fileNames);
+        return cache;
+    }
+
+    /*
+     * This method maps the packed fixture archive , its files are then served from the mapping
+     * and its route mappings are compiled along with the ones of server.properties.
+     * @Param archiveFile : Path of the archive , empty if none is configured
+     * @Return FixtureArchive : null if none is configured
+     * @Throws IllegalArgumentException : If the archive cannot be opened
+     * */
+    private FixtureArchive openFixtureArchive(String archiveFile) {
+        if (archiveFile.isEmpty()) {
+            return null;
+        }
+        try {
+            FixtureArchive archive = FixtureArchive.open(Paths.get(archiveFile));
+            logger.log(LogLevel.INFO, "Mapped the fixture archive {} ( {} files ).", archiveFile, archive.getFileCount());
+            return archive;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to open the fixture archive " + archiveFile + " : " + e.getMessage(), e);
+        }
+    }
+
+    /*
+     * This method compiles the path mappings of server.properties into the route index.
+     * The mappings packed in the fixture archive come first , server.properties overrides them.
+     * @Throws IllegalArgumentException : If a mapping is invalid
+     * */
+    private RouteIndex compileRoutes(Properties properties) {
+        Map<String, String> mappings = new HashMap<>();
+        if (fixtureArchive != null) {
+            mappings.putAll(fixtureArchive.getMappings());
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (isRouteMapping(key)) {
+                mappings.put(key, properties.getProperty(key));
             }
         }
-        return jsonData;
+        return RouteIndex.compile(mappings);
+    }
+
+    /*
+     * Keys starting with "server." and the JSON location configure the server , every other key maps a path.
+     * */
+    private boolean isRouteMapping(String key) {
+        return !key.startsWith(ServerConstants.SERVER_PROPERTY_PREFIX) && !key.equals(ServerConstants.JSON_FILE_LOCATION);
     }
 
     private String getJsonFileDirectory() throws IOException {
-        String mappingPath = serverProperties.getProperty("json.file.location");
+        String mappingPath = serverProperties.getProperty(ServerConstants.JSON_FILE_LOCATION);
         if(mappingPath == null){
             appendLog("JSON file location not found in server.properties. Moving back to default path", LogLevel.INFO);
-            mappingPath =Server.class.getClassLoader().getResource("JSON_Files").getPath().replaceFirst("/", "");
+            mappingPath = serverUtil.getResourceLocation("JSON_Files");
         }else if(mappingPath.equalsIgnoreCase("./JSON_Files/")){
             appendLog("JSON file location found in server.properties but its mapped to default path", LogLevel.INFO);
-            mappingPath =Server.class.getClassLoader().getResource("JSON_Files").getPath().replaceFirst("/", "");
+            mappingPath = serverUtil.getResourceLocation("JSON_Files");
         }else {
             if(mappingPath.startsWith("./")){
                 appendLog("JSON file location found in server.properties but its mapped class file path. So trying to locate", LogLevel.INFO);
                 mappingPath = mappingPath.replaceFirst("./","");
-                URL url =Server.class.getClassLoader().getResource(mappingPath);
-                mappingPath = (url != null) ?url.getPath().replaceFirst("/", ""):null;
-                appendLog(" Final path of mapped location :" + mappingPath, LogLevel.INFO);
+                mappingPath = serverUtil.getResourceLocation(mappingPath);
+                logger.log(LogLevel.INFO, " Final path of mapped location :{}", mappingPath);
             }else {
                 appendLog("JSON file location found in server.properties but noticed it with absolute path", LogLevel.INFO);
             }
@@ -254,25 +1346,6 @@ public class Server {
         return mappingPath;
     }
 
-    /*
-    * This method returns error response
-    * when we cant read the JSON file for the requested Path.
-    * */
-    private String sendBadResponse(String path) {
-        StringBuffer buffer = new StringBuffer();
-        buffer.append(ServerConstants.BAD_REQUEST)
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.CONTENT_TYPE)
-        .append(ServerConstants.CONTENT_TYPE_JSON)
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.CONTENT_LENGTH)
-        .append(ServerConstants.HTTP_NO_MAPPING_FOUND.length())
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.HTTP_NO_MAPPING_FOUND);
-        return buffer.toString();
-    }
-
     /*
      * Response looks like the below example :
      * "HTTP/1.1 200 OK\r\n" +
@@ -282,37 +1355,85 @@ public class Server {
      * "Hello, this is a simple HTTP server!";
      * */
     private String getResponseToHttpClient(String contentType, String httpStatusCode, String payload) {
-        StringBuffer buffer = new StringBuffer();
-        buffer.append(httpStatusCode)
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.CONTENT_TYPE + contentType)
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.CONTENT_LENGTH + payload.length())
-        .append(ServerConstants.NEW_LINE)
-        .append(ServerConstants.NEW_LINE)
-        .append(payload);
-        return buffer.toString();
-    }
-
-    /*
-     * This method check is the current request is HTTP request by checking the first line of the request
-     * against the 8 HTTP Methods like GET , POST & so on .
-     * This method will be used to identify if the server should respond to the client in HTTP format or not.
-     *
-     * @Param firstLine : The first line of the request
-     * @Return boolean : true if the request is HTTP request else false
-     * */
-    private boolean isHttpRequest(String firstLine) {
-        //Check if the first line starts with a valid HTTP method and contains HTTP version
-        return firstLine.startsWith("GET") || firstLine.startsWith("POST") || firstLine.startsWith("PUT") || firstLine.startsWith("DELETE") || firstLine.startsWith("HEAD") || firstLine.startsWith("OPTIONS") || firstLine.startsWith("PATCH") || firstLine.startsWith("CONNECT") || firstLine.startsWith("TRACE");
+        return EncodedResponse.of(httpStatusCode, contentType, payload).toString();
     }
 
     public static void main(String[] args) throws Exception {
         start();
     }
 
+    /*Getter method for the keep-alive idle timeout in milliseconds.*/
+    public int getKeepAliveTimeout() {
+        return keepAliveTimeout;
+    }
+
+    /*Getter method for the time allowed to receive a complete request , in milliseconds.*/
+    public int getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /*Getter method for the max number of requests served on one connection.*/
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    /*Getter method for the listener and connection socket settings.*/
+    public SocketSettings getSocketSettings() {
+        return socketSettings;
+    }
+
+    /*Getter method for the request , connection and cache metrics.*/
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
     /*Getter method for serverProperties.*/
     public Properties getServerProperties() {
         return serverProperties;
     }
+
+    /*
+     * Route table , fault rules and the properties both were built from , one immutable snapshot
+     * so a request never pairs the routes of one server.properties with the fault rules of another.
+     * */
+    private static final class RouteConfig {
+
+        private final RouteIndex routes;
+        private final FaultRules faultRules;
+        /* Never modified once held here , recordMapping adds to a copy. */
+        private final Properties properties;
+
+        private RouteConfig(RouteIndex routes, FaultRules faultRules, Properties properties) {
+            this.routes = routes;
+            this.faultRules = faultRules;
+            this.properties = properties;
+        }
+    }
+
+    /*
+     * State of one blocking connection , kept while a delayed response waits on the timer wheel
+     * or the connection waits on the idle parker.
+     * */
+    private static final class ClientConnection {
+
+        private final Socket socket;
+        private final HttpRequestParser parser;
+        private int servedRequests;
+        private HttpRequest delayedRequest;
+        private HttpResponse delayedResponse;
+        private long delayedStartTime;
+        private boolean keepAlive;
+
+        private ClientConnection(Socket socket, HttpRequestParser parser) {
+            this.socket = socket;
+            this.parser = parser;
+        }
+
+        private void delay(HttpRequest request, HttpResponse response, long startTime, boolean keepAlive) {
+            this.delayedRequest = request;
+            this.delayedResponse = response;
+            this.delayedStartTime = startTime;
+            this.keepAlive = keepAlive;
+        }
+    }
 }
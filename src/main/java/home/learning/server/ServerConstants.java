@@ -1,16 +1,169 @@
 package home.learning.server;
 
+import home.learning.server.http.EncodedResponse;
+
+import java.nio.charset.StandardCharsets;
+
 public class ServerConstants {
 
     public static final String HTTP_METHOD_ONLY_SUPPORTED = "{\"error\":true,\"message\":\"Only HTTP Protocol is supported\"}";
     public static final String HTTP_NO_MAPPING_FOUND = "{\"error\":true,\"message\":\"No mapping found for request Path\"}";
+    public static final String HTTP_MALFORMED_REQUEST = "{\"error\":true,\"message\":\"Malformed HTTP request\"}";
+    public static final String HTTP_HEADER_TOO_LARGE = "{\"error\":true,\"message\":\"Request headers too large\"}";
+    public static final String HTTP_REQUEST_TIMEOUT = "{\"error\":true,\"message\":\"Request not received in time\"}";
+    public static final String HTTP_TOO_MANY_CONNECTIONS = "{\"error\":true,\"message\":\"Too many connections , retry later\"}";
+    public static final String HTTP_TOO_MANY_REQUESTS = "{\"error\":true,\"message\":\"Too many requests , retry later\"}";
+    public static final String HTTP_RANGE_NOT_SATISFIABLE = "{\"error\":true,\"message\":\"None of the requested byte ranges is within the body\"}";
+    public static final String HTTP_INVALID_PAGE = "{\"error\":true,\"message\":\"Invalid page , offset , limit or size parameter\"}";
+    public static final String HTTP_RECORD_NOT_FOUND = "{\"error\":true,\"message\":\"No record with this id\"}";
+    public static final String HTTP_RECORD_EXISTS = "{\"error\":true,\"message\":\"A record with this id exists already\"}";
+    public static final String HTTP_INVALID_RECORD = "{\"error\":true,\"message\":\"The body has to be a JSON object with a string or number id\"}";
+    public static final String HTTP_METHOD_NOT_ALLOWED = "{\"error\":true,\"message\":\"Method not allowed on this resource\"}";
+    public static final String HTTP_INJECTED_FAULT = "{\"error\":true,\"message\":\"Injected fault\"}";
+    public static final String HTTP_STORE_FAILED = "{\"error\":true,\"message\":\"The change could not be written to the store log and was not applied\"}";
+    public static final String HTTP_UPSTREAM_UNAVAILABLE = "{\"error\":true,\"message\":\"The upstream is unavailable and nothing was recorded for this path\"}";
+    public static final String HTTP_PAYLOAD_TOO_LARGE = "{\"error\":true,\"message\":\"Request body too large\"}";
 
     public static final String NEW_LINE = "\r\n";
     public static final String CONTENT_TYPE = "Content-Type: ";
     public static final String CONTENT_TYPE_JSON = "application/json";
+    public static final String CONTENT_TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String CONNECTION = "Connection";
     public static final String CONTENT_LENGTH = "Content-Length: ";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String VARY = "Vary";
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+    public static final String TOTAL_COUNT = "X-Total-Count";
+    public static final String LOCATION = "Location";
+    public static final String RANGE = "Range";
+    public static final String CONTENT_RANGE = "Content-Range";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String BYTES_UNIT = "bytes";
+    public static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+    public static final String ALLOW = "Allow";
 
     public static final String BAD_REQUEST = "HTTP/1.1 400 Bad Request";
 
     public static final String REQUEST_OK = "HTTP/1.1 200 OK";
+    public static final String CREATED = "HTTP/1.1 201 Created";
+    public static final String NO_CONTENT = "HTTP/1.1 204 No Content";
+    public static final String PARTIAL_CONTENT = "HTTP/1.1 206 Partial Content";
+    public static final String NOT_MODIFIED = "HTTP/1.1 304 Not Modified";
+    public static final String NOT_FOUND = "HTTP/1.1 404 Not Found";
+    public static final String METHOD_NOT_ALLOWED = "HTTP/1.1 405 Method Not Allowed";
+    public static final String CONFLICT = "HTTP/1.1 409 Conflict";
+    public static final String REQUEST_TIMEOUT = "HTTP/1.1 408 Request Timeout";
+    public static final String PAYLOAD_TOO_LARGE = "HTTP/1.1 413 Payload Too Large";
+    public static final String TOO_MANY_REQUESTS = "HTTP/1.1 429 Too Many Requests";
+    public static final String INTERNAL_SERVER_ERROR = "HTTP/1.1 500 Internal Server Error";
+    public static final String BAD_GATEWAY = "HTTP/1.1 502 Bad Gateway";
+    public static final String SERVICE_UNAVAILABLE = "HTTP/1.1 503 Service Unavailable";
+    public static final String HEADER_TOO_LARGE = "HTTP/1.1 431 Request Header Fields Too Large";
+    public static final String RANGE_NOT_SATISFIABLE = "HTTP/1.1 416 Range Not Satisfiable";
+
+    /* Constant error responses , encoded once. */
+    public static final EncodedResponse BAD_REQUEST_RESPONSE = EncodedResponse.of(BAD_REQUEST, CONTENT_TYPE_JSON, HTTP_METHOD_ONLY_SUPPORTED);
+    public static final EncodedResponse NO_MAPPING_FOUND_RESPONSE = EncodedResponse.of(BAD_REQUEST, CONTENT_TYPE_JSON, HTTP_NO_MAPPING_FOUND);
+    public static final EncodedResponse MALFORMED_REQUEST_RESPONSE = EncodedResponse.of(BAD_REQUEST, CONTENT_TYPE_JSON, HTTP_MALFORMED_REQUEST);
+    public static final EncodedResponse INVALID_PAGE_RESPONSE = EncodedResponse.of(BAD_REQUEST, CONTENT_TYPE_JSON, HTTP_INVALID_PAGE);
+    /* Answers of the stateful mode resource store. */
+    public static final EncodedResponse RECORD_NOT_FOUND_RESPONSE = EncodedResponse.of(NOT_FOUND, CONTENT_TYPE_JSON, HTTP_RECORD_NOT_FOUND);
+    public static final EncodedResponse RECORD_EXISTS_RESPONSE = EncodedResponse.of(CONFLICT, CONTENT_TYPE_JSON, HTTP_RECORD_EXISTS);
+    public static final EncodedResponse INVALID_RECORD_RESPONSE = EncodedResponse.of(BAD_REQUEST, CONTENT_TYPE_JSON, HTTP_INVALID_RECORD);
+    public static final EncodedResponse STORE_FAILED_RESPONSE = EncodedResponse.of(INTERNAL_SERVER_ERROR, CONTENT_TYPE_JSON, HTTP_STORE_FAILED);
+    public static final EncodedResponse NO_CONTENT_RESPONSE = EncodedResponse.newBuilder(NO_CONTENT).buildWithoutBody();
+    public static final EncodedResponse COLLECTION_METHOD_NOT_ALLOWED_RESPONSE = EncodedResponse.newBuilder(METHOD_NOT_ALLOWED)
+            .header(ALLOW, "GET, HEAD, POST")
+            .build(CONTENT_TYPE_JSON, HTTP_METHOD_NOT_ALLOWED.getBytes(StandardCharsets.UTF_8));
+    public static final EncodedResponse RECORD_METHOD_NOT_ALLOWED_RESPONSE = EncodedResponse.newBuilder(METHOD_NOT_ALLOWED)
+            .header(ALLOW, "GET, HEAD, PUT, DELETE")
+            .build(CONTENT_TYPE_JSON, HTTP_METHOD_NOT_ALLOWED.getBytes(StandardCharsets.UTF_8));
+    public static final EncodedResponse HEADER_TOO_LARGE_RESPONSE = EncodedResponse.of(HEADER_TOO_LARGE, CONTENT_TYPE_JSON, HTTP_HEADER_TOO_LARGE);
+    public static final EncodedResponse PAYLOAD_TOO_LARGE_RESPONSE = EncodedResponse.of(PAYLOAD_TOO_LARGE, CONTENT_TYPE_JSON, HTTP_PAYLOAD_TOO_LARGE);
+    public static final EncodedResponse REQUEST_TIMEOUT_RESPONSE = EncodedResponse.newBuilder(REQUEST_TIMEOUT)
+            .header(CONNECTION, "close")
+            .build(CONTENT_TYPE_JSON, HTTP_REQUEST_TIMEOUT.getBytes(StandardCharsets.UTF_8));
+    /* Over-limit answers , Retry-After tells well behaved clients when to come back. */
+    public static final EncodedResponse SERVICE_UNAVAILABLE_RESPONSE = EncodedResponse.newBuilder(SERVICE_UNAVAILABLE)
+            .header(RETRY_AFTER, "1")
+            .header(CONNECTION, "close")
+            .build(CONTENT_TYPE_JSON, HTTP_TOO_MANY_CONNECTIONS.getBytes(StandardCharsets.UTF_8));
+    public static final EncodedResponse UPSTREAM_UNAVAILABLE_RESPONSE = EncodedResponse.of(BAD_GATEWAY, CONTENT_TYPE_JSON, HTTP_UPSTREAM_UNAVAILABLE);
+    public static final EncodedResponse TOO_MANY_REQUESTS_RESPONSE = EncodedResponse.newBuilder(TOO_MANY_REQUESTS)
+            .header(RETRY_AFTER, "1")
+            .build(CONTENT_TYPE_JSON, HTTP_TOO_MANY_REQUESTS.getBytes(StandardCharsets.UTF_8));
+
+    public static final String JSON_FILE_LOCATION = "json.file.location";
+
+    /* Keys starting with "server." in server.properties configure the server itself , not a mapping. */
+    public static final String SERVER_PROPERTY_PREFIX = "server.";
+    public static final String SERVER_PORT = "server.port";
+    public static final String SERVER_MODE = "server.mode";
+    public static final String NIO_LOOPS = "server.nio.loops";
+    public static final String ACCEPTORS = "server.acceptors";
+    public static final String BACKLOG = "server.backlog";
+    public static final String TCP_NODELAY = "server.tcp.nodelay";
+    public static final String SEND_BUFFER_BYTES = "server.socket.send.buffer.bytes";
+    public static final String RECEIVE_BUFFER_BYTES = "server.socket.receive.buffer.bytes";
+    public static final String WORKER_MODE = "server.worker.mode";
+    public static final String WORKER_THREADS = "server.worker.threads";
+    public static final String WORKER_QUEUE_SIZE = "server.worker.queue.size";
+
+    public static final String CACHE_MAX_BYTES = "server.cache.max.bytes";
+    public static final String TRANSFER_THRESHOLD = "server.transfer.threshold.bytes";
+    public static final String COMPRESSION_MIN_BYTES = "server.compression.min.bytes";
+    public static final String ARCHIVE_FILE = "server.archive.file";
+    public static final String KEEP_ALIVE_TIMEOUT = "server.keepalive.timeout.ms";
+    public static final String KEEP_ALIVE_MAX_REQUESTS = "server.keepalive.max.requests";
+    public static final String METRICS_PATH = "server.metrics.path";
+    public static final String LOG_LEVEL = "server.log.level";
+    public static final String MAX_CONNECTIONS = "server.connections.max";
+    public static final String REQUEST_TIMEOUT_MS = "server.request.timeout.ms";
+    public static final String RATE_LIMIT_PER_SECOND = "server.ratelimit.requests.per.second";
+    public static final String RATE_LIMIT_BURST = "server.ratelimit.burst";
+    public static final String PAGINATION_ENABLED = "server.pagination.enabled";
+    public static final String PAGINATION_DEFAULT_SIZE = "server.pagination.default.size";
+    public static final String PAGINATION_MAX_SIZE = "server.pagination.max.size";
+    public static final String QUERY_ENABLED = "server.query.enabled";
+    public static final String QUERY_CACHE_MAX_BYTES = "server.query.cache.max.bytes";
+    public static final String STATEFUL_ENABLED = "server.stateful.enabled";
+    public static final String STATEFUL_LOG = "server.stateful.log";
+    public static final String PROXY_UPSTREAM = "server.proxy.upstream";
+    public static final String PROXY_RECORD = "server.proxy.record";
+    public static final String PROXY_CONNECT_TIMEOUT_MS = "server.proxy.connect.timeout.ms";
+    public static final String PROXY_READ_TIMEOUT_MS = "server.proxy.read.timeout.ms";
+    public static final String PROXY_HEALTH_PATH = "server.proxy.health.path";
+    public static final String PROXY_HEALTH_INTERVAL_MS = "server.proxy.health.interval.ms";
+    /* Per route fault rules , "server.fault.<route>.delay.ms" and so on , see FaultRules. */
+    public static final String FAULT_PREFIX = "server.fault.";
+    public static final String MAX_HEADER_BYTES = "server.request.max.header.bytes";
+    public static final String MAX_BODY_BYTES = "server.request.max.body.bytes";
+
+    public static final String SERVER_MODE_NIO = "nio";
+    public static final String WORKER_MODE_POOL = "pool";
+    public static final int DEFAULT_BACKLOG = 1024;
+    public static final int DEFAULT_WORKER_QUEUE_SIZE = 1024;
+    public static final long DEFAULT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    public static final long DEFAULT_QUERY_CACHE_MAX_BYTES = 8L * 1024 * 1024;
+    public static final long DEFAULT_TRANSFER_THRESHOLD = 1024 * 1024;
+    public static final long DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+    public static final int DEFAULT_KEEP_ALIVE_TIMEOUT = 5000;
+    public static final int DEFAULT_KEEP_ALIVE_MAX_REQUESTS = 100;
+    public static final String DEFAULT_METRICS_PATH = "/__metrics";
+    public static final int DEFAULT_MAX_CONNECTIONS = 1024;
+    public static final int DEFAULT_REQUEST_TIMEOUT = 10000;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int DEFAULT_MAX_PAGE_SIZE = 1000;
+    public static final int DEFAULT_PROXY_CONNECT_TIMEOUT = 2000;
+    public static final int DEFAULT_PROXY_READ_TIMEOUT = 10000;
+    public static final long DEFAULT_PROXY_HEALTH_INTERVAL = 5000;
+    /* Resolution and ring size of the timer wheel holding delayed responses. */
+    public static final long TIMER_TICK_MS = 10;
+    public static final int TIMER_SLOTS = 512;
+    public static final int DEFAULT_MAX_HEADER_BYTES = 16 * 1024;
+    public static final int DEFAULT_MAX_BODY_BYTES = 1024 * 1024;
 }
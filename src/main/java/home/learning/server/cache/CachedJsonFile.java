@@ -0,0 +1,443 @@
+package home.learning.server.cache;
+
+import home.learning.server.ServerConstants;
+import home.learning.server.http.BufferResponse;
+import home.learning.server.http.ByteRanges;
+import home.learning.server.http.ConditionalRequest;
+import home.learning.server.http.ContentEncoding;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.FileResponse;
+import home.learning.server.http.HttpDates;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.http.RangeResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * One JSON file known to the JsonFileCache , together with its complete responses built once when the file is loaded.
+ * Small files are held in memory as a pre-encoded response , plus gzip and deflate variants when they are
+ * large enough to be worth compressing. Files above the transfer threshold only keep their metadata
+ * and are streamed from disk with FileChannel.transferTo. Files of a FixtureArchive are served from the
+ * mapped archive , with the gzip variant packed next to them.
+ * Every variant carries a strong ETag and Last-Modified , and has its 304 Not Modified response ready as well.
+ * Range requests are answered 206 Partial Content with byte ranges of the negotiated variant.
+ * A file holding a top-level array can also be served one page at a time , see getPage.
+ * */
+public class CachedJsonFile {
+
+    private static final byte[] ARRAY_END = {']'};
+
+    private final String fileName;
+    private final Path path;
+    private final long length;
+    private final long lastModified;
+    /* Read only content , on the heap or in the mapped archive , null when the file is served from disk. */
+    private final ByteBuffer content;
+    private final Representation identity;
+    private final Representation gzip;
+    private final Representation deflate;
+    private volatile long lastAccess;
+    private volatile JsonArrayIndex arrayIndex;
+    /* Told once the element index was built , see JsonFileCache. */
+    private volatile Consumer<CachedJsonFile> indexListener;
+
+    private CachedJsonFile(String fileName, Path path, long length, long lastModified, ByteBuffer content,
+                           Representation identity, Representation gzip, Representation deflate) {
+        this.fileName = fileName;
+        this.path = path;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.content = content;
+        this.identity = identity;
+        this.gzip = gzip;
+        this.deflate = deflate;
+        this.lastAccess = System.nanoTime();
+    }
+
+    /*
+     * Entry holding the file content in memory. The ETag is a hash of the content.
+     * @Param compressionMinBytes : Content at least this large also gets gzip and deflate variants , 0 or less disables compression
+     * @Throws IOException : If compressing the content fails
+     * */
+    public static CachedJsonFile inMemory(String fileName, Path path, byte[] content, long lastModified,
+                                          long compressionMinBytes) throws IOException {
+        String hash = contentHash(content);
+        boolean compress = compressionMinBytes > 0 && content.length >= compressionMinBytes;
+        Representation gzip = compress ? compressed(content, ContentEncoding.GZIP, hash, lastModified) : null;
+        Representation deflate = compress ? compressed(content, ContentEncoding.DEFLATE, hash, lastModified) : null;
+        String vary = gzip != null || deflate != null ? ServerConstants.ACCEPT_ENCODING : null;
+        String etag = "\"" + hash + "\"";
+        EncodedResponse encodedResponse = newBuilder(ServerConstants.REQUEST_OK, etag, lastModified, vary)
+                .build(ServerConstants.CONTENT_TYPE_JSON, content);
+        Representation identity = new Representation(encodedResponse, null, etag, lastModified, vary);
+        return new CachedJsonFile(fileName, path, content.length, lastModified, encodedResponse.getBody(), identity, gzip, deflate);
+    }
+
+    /*
+     * Entry serving the file content from disk. Hashing a large file would mean reading it ,
+     * so its ETag is built from size and modification time instead , which changes whenever the file does.
+     * */
+    public static CachedJsonFile onDisk(String fileName, Path path, long length, long lastModified) {
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        byte[] head = newBuilder(ServerConstants.REQUEST_OK, etag, lastModified, null)
+                .buildHead(ServerConstants.CONTENT_TYPE_JSON, length);
+        Representation identity = new Representation(new FileResponse(head, path, length), null, etag, lastModified, null);
+        return new CachedJsonFile(fileName, path, length, lastModified, null, identity, null, null);
+    }
+
+    /*
+     * Entry serving the file from a region of the mapped fixture archive , only its headers are on the heap.
+     * The ETag is the content hash computed when the archive was packed , the same as inMemory would give.
+     * @Param archive : The archive file
+     * @Param content : Read only view over the file content in the mapped archive
+     * @Param hash : Content hash , see contentHash
+     * @Param gzipContent : The packed gzip variant , null if the file was not compressed
+     * */
+    public static CachedJsonFile mapped(String fileName, Path archive, ByteBuffer content, String hash,
+                                        ByteBuffer gzipContent, long lastModified) {
+        String vary = gzipContent != null ? ServerConstants.ACCEPT_ENCODING : null;
+        String etag = "\"" + hash + "\"";
+        byte[] head = newBuilder(ServerConstants.REQUEST_OK, etag, lastModified, vary)
+                .buildHead(ServerConstants.CONTENT_TYPE_JSON, content.remaining());
+        Representation identity = new Representation(new BufferResponse(head, content), null, etag, lastModified, vary);
+        Representation gzip = null;
+        if (gzipContent != null) {
+            String gzipEtag = "\"" + hash + "-" + ContentEncoding.GZIP.getToken() + "\"";
+            byte[] gzipHead = newBuilder(ServerConstants.REQUEST_OK, gzipEtag, lastModified, ServerConstants.ACCEPT_ENCODING)
+                    .header(ServerConstants.CONTENT_ENCODING, ContentEncoding.GZIP.getToken())
+                    .buildHead(ServerConstants.CONTENT_TYPE_JSON, gzipContent.remaining());
+            gzip = new Representation(new BufferResponse(gzipHead, gzipContent), ContentEncoding.GZIP.getToken(), gzipEtag,
+                    lastModified, ServerConstants.ACCEPT_ENCODING);
+        }
+        return new CachedJsonFile(fileName, archive, content.remaining(), lastModified, content.slice(), identity, gzip, null);
+    }
+
+    /*
+     * @Return Representation : The compressed variant , null when compressing does not make the body smaller
+     * */
+    private static Representation compressed(byte[] content, ContentEncoding encoding, String hash, long lastModified) throws IOException {
+        byte[] compressed = encoding.compress(content);
+        if (compressed.length >= content.length) {
+            return null;
+        }
+        String etag = "\"" + hash + "-" + encoding.getToken() + "\"";
+        EncodedResponse response = newBuilder(ServerConstants.REQUEST_OK, etag, lastModified, ServerConstants.ACCEPT_ENCODING)
+                .header(ServerConstants.CONTENT_ENCODING, encoding.getToken())
+                .build(ServerConstants.CONTENT_TYPE_JSON, compressed);
+        return new Representation(response, encoding.getToken(), etag, lastModified, ServerConstants.ACCEPT_ENCODING);
+    }
+
+    private static EncodedResponse.Builder newBuilder(String statusLine, String etag, long lastModified, String vary) {
+        EncodedResponse.Builder builder = EncodedResponse.newBuilder(statusLine)
+                .header(ServerConstants.ACCEPT_RANGES, ServerConstants.BYTES_UNIT)
+                .header(ServerConstants.ETAG, etag)
+                .header(ServerConstants.LAST_MODIFIED, HttpDates.format(lastModified));
+        if (vary != null) {
+            builder.header(ServerConstants.VARY, vary);
+        }
+        return builder;
+    }
+
+    /*
+     * @Return String : First 16 bytes of the SHA-256 of the content in hex , stable across restarts
+     * */
+    static String contentHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isInMemory() {
+        return content != null;
+    }
+
+    /*
+     * @Return ByteBuffer : Read only view over the cached content , null when the file is served from disk
+     * */
+    public ByteBuffer getContent() {
+        return content != null ? content.duplicate() : null;
+    }
+
+    /* File content decoded as UTF-8 , built on every call and read from disk for large files. */
+    public String getJson() throws IOException {
+        if (content == null) {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        }
+        return StandardCharsets.UTF_8.decode(content.duplicate()).toString();
+    }
+
+    /* The identity 200 OK response. */
+    public HttpResponse getResponse() {
+        return identity.ok;
+    }
+
+    /*
+     * Picks the variant from Accept-Encoding , then answers 304 Not Modified
+     * when the request conditions show the client copy of that variant is current.
+     * @Param request : The request from the client
+     * @Return HttpResponse : Pre-built response , nothing is encoded per request
+     * */
+    public HttpResponse getResponse(HttpRequest request) {
+        Representation representation = identity;
+        if (gzip != null || deflate != null) {
+            ContentEncoding encoding = ContentEncoding.negotiate(request.getHeader(ServerConstants.ACCEPT_ENCODING));
+            if (encoding == ContentEncoding.GZIP && gzip != null) {
+                representation = gzip;
+            } else if (encoding == ContentEncoding.DEFLATE && deflate != null) {
+                representation = deflate;
+            }
+        }
+        return representation.respond(request);
+    }
+
+    /*
+     * Builds the response holding elements [offset , offset + limit) of the top-level array , cut straight
+     * out of the cached content or , for a file served from disk , sent from the file region with transferTo.
+     * Element offsets are indexed on the first page request , every later page costs the same whatever its position.
+     * The JsonFileCache keeps the index of the file version past this entry , see its arrayIndexes.
+     * @Param offset : Index of the first element , past the end gives an empty array
+     * @Param limit : Max number of elements
+     * @Return HttpResponse : null if the file is not a top-level array
+     * @Throws IOException : If the file served from disk cannot be indexed
+     * */
+    public HttpResponse getPage(long offset, int limit) throws IOException {
+        JsonArrayIndex index = getArrayIndex();
+        if (index == null) {
+            return null;
+        }
+        int first = (int) Math.min(offset, index.size());
+        int last = (int) Math.min((long) first + limit, index.size());
+        long start = first < last ? index.getStart(first) : 0;
+        long end = first < last ? index.getEnd(last - 1) : 0;
+        EncodedResponse.Builder builder = EncodedResponse.newBuilder(ServerConstants.REQUEST_OK)
+                .header(ServerConstants.TOTAL_COUNT, String.valueOf(index.size()));
+        if (content == null) {
+            byte[] head = builder.buildHead(ServerConstants.CONTENT_TYPE_JSON, end - start + 2);
+            byte[] headWithStart = Arrays.copyOf(head, head.length + 1);
+            headWithStart[head.length] = '[';
+            return new FileResponse(headWithStart, path, start, end - start, ARRAY_END);
+        }
+        byte[] body = new byte[(int) (end - start) + 2];
+        body[0] = '[';
+        ByteBuffer view = content.duplicate();
+        view.position((int) start);
+        view.get(body, 1, body.length - 2);
+        body[body.length - 1] = ']';
+        return builder.build(ServerConstants.CONTENT_TYPE_JSON, body);
+    }
+
+    /*
+     * @Return JsonArrayIndex : The element offsets , null if the file is not a top-level array
+     * */
+    private JsonArrayIndex getArrayIndex() throws IOException {
+        JsonArrayIndex index = arrayIndex;
+        if (index == null) {
+            boolean built = false;
+            synchronized (this) {
+                index = arrayIndex;
+                if (index == null) {
+                    index = content != null ? JsonArrayIndex.of(content) : JsonArrayIndex.of(path);
+                    if (index == null) {
+                        index = JsonArrayIndex.NOT_AN_ARRAY;
+                    }
+                    arrayIndex = index;
+                    built = true;
+                }
+            }
+            Consumer<CachedJsonFile> listener = indexListener;
+            if (built && listener != null) {
+                listener.accept(this);
+            }
+        }
+        return index != JsonArrayIndex.NOT_AN_ARRAY ? index : null;
+    }
+
+    /* The element index , null while no page was requested. */
+    JsonArrayIndex getBuiltArrayIndex() {
+        return arrayIndex;
+    }
+
+    /* Reuses the element index built for an earlier entry of the same file version. */
+    void setArrayIndex(JsonArrayIndex index) {
+        arrayIndex = index;
+    }
+
+    void setIndexListener(Consumer<CachedJsonFile> listener) {
+        indexListener = listener;
+    }
+
+    public String getEtag() {
+        return identity.etag;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /*
+     * Approximate heap used by this entry , counted against the cache budget.
+     * The element index counts from the first page request on.
+     * */
+    public long getSize() {
+        JsonArrayIndex index = arrayIndex;
+        return identity.size() + (gzip != null ? gzip.size() : 0) + (deflate != null ? deflate.size() : 0)
+                + (index != null ? index.getSize() : 0);
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    /*
+     * One content coding of the file : its 200 OK response , validators and 304 Not Modified response ,
+     * and the body its 206 Partial Content responses are cut from.
+     * */
+    private static final class Representation {
+
+        private static final byte[] NO_SEPARATOR = new byte[0];
+
+        private final HttpResponse ok;
+        /* The headers of ok alone , the answer to HEAD. */
+        private final HttpResponse head;
+        private final EncodedResponse notModified;
+        private final String encoding;
+        private final String etag;
+        private final long lastModified;
+        private final String vary;
+        /* Body of the 200 OK response , a read only view or else the file holding it. */
+        private final ByteBuffer body;
+        private final Path file;
+        private final long length;
+
+        /*
+         * @Param encoding : Content-Encoding token , null for the identity variant
+         * */
+        private Representation(HttpResponse ok, String encoding, String etag, long lastModified, String vary) {
+            this.ok = ok;
+            this.head = ok.withoutBody();
+            this.encoding = encoding;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.vary = vary;
+            this.notModified = newBuilder(ServerConstants.NOT_MODIFIED, etag, lastModified, vary).buildWithoutBody();
+            if (ok instanceof FileResponse) {
+                this.body = null;
+                this.file = ((FileResponse) ok).getFile();
+                this.length = ((FileResponse) ok).getLength();
+            } else {
+                this.body = ok instanceof EncodedResponse ? ((EncodedResponse) ok).getBody() : ((BufferResponse) ok).getBody();
+                this.file = null;
+                this.length = body.remaining();
+            }
+        }
+
+        /*
+         * The validators are checked first , a current client copy gets 304 whatever it asks for.
+         * A GET with a Range header gets 206 , or 416 if no range is satisfiable , unless If-Range shows
+         * the client holds another version or the header is ignored by ByteRanges.parse : then 200 with the whole body.
+         * A HEAD request gets the headers of that 200 response only.
+         * */
+        private HttpResponse respond(HttpRequest request) {
+            if (ConditionalRequest.isNotModified(request, etag, lastModified)) {
+                return notModified;
+            }
+            String range = "GET".equals(request.getMethod()) ? request.getHeader(ServerConstants.RANGE) : null;
+            if (range != null && ConditionalRequest.isRangeApplicable(request, etag, lastModified)) {
+                long[] ranges = ByteRanges.parse(range, length);
+                if (ranges != null) {
+                    return ranges.length == 0 ? notSatisfiable() : partial(ranges);
+                }
+            }
+            return "HEAD".equals(request.getMethod()) ? head : ok;
+        }
+
+        /*
+         * One range is sent as the body with its Content-Range , several as a multipart/byteranges body
+         * whose parts carry their own Content-Range.
+         * */
+        private HttpResponse partial(long[] ranges) {
+            EncodedResponse.Builder builder = newBuilder(ServerConstants.PARTIAL_CONTENT, etag, lastModified, vary);
+            if (encoding != null) {
+                builder.header(ServerConstants.CONTENT_ENCODING, encoding);
+            }
+            byte[][] separators = new byte[ranges.length / 2 + 1][];
+            byte[] head;
+            if (ranges.length == 2) {
+                separators[0] = NO_SEPARATOR;
+                separators[1] = NO_SEPARATOR;
+                head = builder.header(ServerConstants.CONTENT_RANGE, contentRange(ranges[0], ranges[1]))
+                        .buildHead(ServerConstants.CONTENT_TYPE_JSON, ranges[1] - ranges[0] + 1);
+            } else {
+                // The ETag is a hex hash , or size and time , which cannot show up as a line in the body
+                String boundary = "byteranges-" + etag.replace("\"", "");
+                long bodyLength = 0;
+                for (int i = 0; i < ranges.length / 2; i++) {
+                    separators[i] = ((i > 0 ? ServerConstants.NEW_LINE : "") + "--" + boundary + ServerConstants.NEW_LINE
+                            + "Content-Type: " + ServerConstants.CONTENT_TYPE_JSON + ServerConstants.NEW_LINE
+                            + ServerConstants.CONTENT_RANGE + ": " + contentRange(ranges[i * 2], ranges[i * 2 + 1]) + ServerConstants.NEW_LINE
+                            + ServerConstants.NEW_LINE).getBytes(StandardCharsets.US_ASCII);
+                    bodyLength += separators[i].length + ranges[i * 2 + 1] - ranges[i * 2] + 1;
+                }
+                separators[separators.length - 1] = (ServerConstants.NEW_LINE + "--" + boundary + "--" + ServerConstants.NEW_LINE)
+                        .getBytes(StandardCharsets.US_ASCII);
+                bodyLength += separators[separators.length - 1].length;
+                head = builder.buildHead(ServerConstants.MULTIPART_BYTERANGES + boundary, bodyLength);
+            }
+            return body != null ? RangeResponse.ofBuffer(head, body, ranges, separators) : RangeResponse.ofFile(head, file, ranges, separators);
+        }
+
+        private HttpResponse notSatisfiable() {
+            return newBuilder(ServerConstants.RANGE_NOT_SATISFIABLE, etag, lastModified, vary)
+                    .header(ServerConstants.CONTENT_RANGE, ServerConstants.BYTES_UNIT + " */" + length)
+                    .build(ServerConstants.CONTENT_TYPE_JSON, ServerConstants.HTTP_RANGE_NOT_SATISFIABLE.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private String contentRange(long first, long last) {
+            return ServerConstants.BYTES_UNIT + " " + first + "-" + last + "/" + length;
+        }
+
+        private long size() {
+            long okSize;
+            if (ok instanceof EncodedResponse) {
+                okSize = ((EncodedResponse) ok).length();
+            } else if (ok instanceof BufferResponse) {
+                okSize = ((BufferResponse) ok).getHeadLength();
+            } else {
+                okSize = ((FileResponse) ok).getHeadLength();
+            }
+            return okSize + notModified.length();
+        }
+    }
+}
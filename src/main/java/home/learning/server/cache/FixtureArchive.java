@@ -0,0 +1,179 @@
+package home.learning.server.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Read side of the packed fixture archive written by FixtureArchiveWriter : the route mappings and
+ * every JSON file of a directory in one file , memory-mapped once when it is opened.
+ * Opening only reads the header and the index , a body is neither read nor copied until the
+ * OS pages it in for the first client , and it stays outside the Java heap.
+ *
+ * Layout , big-endian :
+ *   header   : magic "MFXA" , int version , int mapping count , int file count
+ *   mappings : (short key length , key , short file list length , file list) , UTF-8
+ *   index    : sorted by file name , (short name length , name , long last modified , long offset , int length ,
+ *              long gzip offset , int gzip length , 0 if not compressed , 32 bytes content hash)
+ *   bodies   : file contents and gzip variants at the offsets of the index
+ * */
+public class FixtureArchive {
+
+    static final int MAGIC = 0x4D465841;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int HASH_BYTES = 32;
+    /* Fixed part of an index record , after the name. */
+    static final int INDEX_RECORD_BYTES = 8 + 8 + 4 + 8 + 4 + HASH_BYTES;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final Map<String, String> mappings;
+    private final String[] fileNames;
+    /* Position of the fixed part of each index record. */
+    private final int[] recordPositions;
+    private final AtomicReferenceArray<CachedJsonFile> files;
+
+    private FixtureArchive(Path path, ByteBuffer buffer, Map<String, String> mappings, String[] fileNames, int[] recordPositions) {
+        this.path = path;
+        this.buffer = buffer;
+        this.mappings = mappings;
+        this.fileNames = fileNames;
+        this.recordPositions = recordPositions;
+        this.files = new AtomicReferenceArray<>(fileNames.length);
+    }
+
+    /*
+     * Maps the whole archive read only and reads its index. The mapping outlives the channel.
+     * @Param path : Archive file , at most 2 GB as it is a single mapping
+     * @Return FixtureArchive : The opened archive
+     * @Throws IOException : If the file cannot be mapped or is not a valid archive
+     * */
+    public static FixtureArchive open(Path path) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than the 2 GB a single mapping can hold");
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.asReadOnlyBuffer();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a fixture archive");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(path + " has the unsupported archive version " + version);
+            }
+            int mappingCount = buffer.getInt();
+            int fileCount = buffer.getInt();
+            if (mappingCount < 0 || fileCount < 0) {
+                throw new IOException(path + " has a corrupt header");
+            }
+            Map<String, String> mappings = new LinkedHashMap<>();
+            for (int i = 0; i < mappingCount; i++) {
+                mappings.put(readString(buffer), readString(buffer));
+            }
+            String[] fileNames = new String[fileCount];
+            int[] recordPositions = new int[fileCount];
+            for (int i = 0; i < fileCount; i++) {
+                fileNames[i] = readString(buffer);
+                recordPositions[i] = buffer.position();
+                buffer.position(buffer.position() + INDEX_RECORD_BYTES);
+                if (i > 0 && fileNames[i - 1].compareTo(fileNames[i]) >= 0) {
+                    throw new IOException(path + " has an unsorted index");
+                }
+            }
+            FixtureArchive archive = new FixtureArchive(path, buffer, Collections.unmodifiableMap(mappings), fileNames, recordPositions);
+            for (int i = 0; i < fileCount; i++) {
+                archive.checkBounds(i);
+            }
+            return archive;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(path + " is truncated or corrupt", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkBounds(int index) throws IOException {
+        int record = recordPositions[index];
+        long offset = buffer.getLong(record + 8);
+        int length = buffer.getInt(record + 16);
+        long gzipOffset = buffer.getLong(record + 20);
+        int gzipLength = buffer.getInt(record + 28);
+        if (offset < 0 || length < 0 || offset + length > buffer.capacity()
+                || gzipOffset < 0 || gzipLength < 0 || gzipOffset + gzipLength > buffer.capacity()) {
+            throw new IOException(path + " has a body of " + fileNames[index] + " outside the file");
+        }
+    }
+
+    /*
+     * Looks the file up with a binary search of the index. Its entry is built on the first lookup
+     * and shared afterwards , it only holds the headers and views over the mapped bodies.
+     * @Param fileName : File name , as in the JSON directory
+     * @Return CachedJsonFile : null if the archive does not hold the file
+     * */
+    public CachedJsonFile get(String fileName) {
+        int index = Arrays.binarySearch(fileNames, fileName);
+        if (index < 0) {
+            return null;
+        }
+        CachedJsonFile file = files.get(index);
+        if (file == null) {
+            file = load(index);
+            if (!files.compareAndSet(index, null, file)) {
+                file = files.get(index);
+            }
+        }
+        return file;
+    }
+
+    private CachedJsonFile load(int index) {
+        int record = recordPositions[index];
+        long lastModified = buffer.getLong(record);
+        ByteBuffer content = slice((int) buffer.getLong(record + 8), buffer.getInt(record + 16));
+        int gzipLength = buffer.getInt(record + 28);
+        ByteBuffer gzip = gzipLength > 0 ? slice((int) buffer.getLong(record + 20), gzipLength) : null;
+        byte[] hash = new byte[HASH_BYTES];
+        ByteBuffer hashView = buffer.duplicate();
+        hashView.position(record + 32);
+        hashView.get(hash);
+        return CachedJsonFile.mapped(fileNames[index], path, content, new String(hash, StandardCharsets.US_ASCII), gzip, lastModified);
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + length);
+        return view.slice();
+    }
+
+    /* Route mappings packed with the files , in the "[METHOD@]path=file[,fallback file]" form of server.properties. */
+    public Map<String, String> getMappings() {
+        return mappings;
+    }
+
+    public int getFileCount() {
+        return fileNames.length;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
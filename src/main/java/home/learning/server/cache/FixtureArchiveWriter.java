@@ -0,0 +1,162 @@
+package home.learning.server.cache;
+
+import home.learning.server.ServerConstants;
+import home.learning.server.http.ContentEncoding;
+import home.learning.server.util.ServerUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/*
+ * Packs the JSON files of a directory and the route mappings into one FixtureArchive.
+ * Run it at build time or by hand whenever the fixtures change :
+ *   java -cp server.jar home.learning.server.cache.FixtureArchiveWriter <JSON directory> <server.properties> <archive file>
+ * and point server.archive.file at the result.
+ * */
+public class FixtureArchiveWriter {
+
+    private final long compressionMinBytes;
+
+    /*
+     * @Param compressionMinBytes : Files at least this large are also packed gzip compressed , 0 or less disables compression
+     * */
+    public FixtureArchiveWriter(long compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
+
+    /*
+     * The index has fixed size records , so its size is known from the names alone : the bodies are written
+     * one file at a time after it and the index is written last , only one file is on the heap at once.
+     * The archive is written to a temporary file and moved in place , a running server never sees half of it.
+     * @Param directory : Directory holding the JSON files , every regular file in it is packed
+     * @Param mappings : Route mappings , like the path mappings of server.properties
+     * @Param archive : Archive file to write , replaced if it exists
+     * @Return int : Number of packed files
+     * @Throws IOException : If a file cannot be read , a name is too long or the archive cannot be written
+     * */
+    public int write(Path directory, Map<String, String> mappings, Path archive) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path target = archive.toAbsolutePath().normalize();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(file -> Files.isRegularFile(file) && !file.toAbsolutePath().normalize().equals(target))
+                    .sorted((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()))
+                    .forEach(files::add);
+        }
+        ByteBuffer header = ByteBuffer.allocate(FixtureArchive.HEADER_BYTES)
+                .putInt(FixtureArchive.MAGIC).putInt(FixtureArchive.VERSION).putInt(mappings.size()).putInt(files.size());
+        ByteBuffer mappingBytes = ByteBuffer.allocate(encodedSize(mappings));
+        for (Map.Entry<String, String> mapping : new TreeMap<>(mappings).entrySet()) {
+            putString(mappingBytes, mapping.getKey());
+            putString(mappingBytes, mapping.getValue());
+        }
+        int indexSize = 0;
+        for (Path file : files) {
+            indexSize += 2 + utf8(file.getFileName().toString()).length + FixtureArchive.INDEX_RECORD_BYTES;
+        }
+        ByteBuffer index = ByteBuffer.allocate(indexSize);
+
+        Path temporary = Files.createTempFile(target.getParent(), "fixtures-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                long position = FixtureArchive.HEADER_BYTES + mappingBytes.capacity() + indexSize;
+                for (Path file : files) {
+                    byte[] content = Files.readAllBytes(file);
+                    byte[] gzip = compressionMinBytes > 0 && content.length >= compressionMinBytes
+                            ? ContentEncoding.GZIP.compress(content) : null;
+                    if (gzip != null && gzip.length >= content.length) {
+                        gzip = null;
+                    }
+                    putString(index, file.getFileName().toString());
+                    index.putLong(Files.getLastModifiedTime(file).toMillis()).putLong(position).putInt(content.length);
+                    position = writeFully(channel, ByteBuffer.wrap(content), position);
+                    index.putLong(gzip != null ? position : 0).putInt(gzip != null ? gzip.length : 0);
+                    if (gzip != null) {
+                        position = writeFully(channel, ByteBuffer.wrap(gzip), position);
+                    }
+                    index.put(CachedJsonFile.contentHash(content).getBytes(StandardCharsets.US_ASCII));
+                    if (position > Integer.MAX_VALUE) {
+                        throw new IOException("The archive exceeds the 2 GB a single mapping can hold at " + file);
+                    }
+                }
+                header.flip();
+                mappingBytes.flip();
+                index.flip();
+                long indexPosition = writeFully(channel, header, 0);
+                indexPosition = writeFully(channel, mappingBytes, indexPosition);
+                writeFully(channel, index, indexPosition);
+                channel.force(true);
+            }
+            Files.move(temporary, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return files.size();
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+        return position;
+    }
+
+    private static int encodedSize(Map<String, String> mappings) throws IOException {
+        int size = 0;
+        for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+            size += 4 + utf8(mapping.getKey()).length + utf8(mapping.getValue()).length;
+        }
+        return size;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = utf8(value);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static byte[] utf8(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Too long for the archive : " + value.substring(0, 64) + "...");
+        }
+        return bytes;
+    }
+
+    /*
+     * Packs the directory with the path mappings of the properties file , compressing like
+     * the server would with its server.compression.min.bytes.
+     * */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage : FixtureArchiveWriter <JSON directory> <server.properties> <archive file>");
+            System.exit(2);
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(Paths.get(args[1]))) {
+            properties.load(inputStream);
+        }
+        Map<String, String> mappings = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(ServerConstants.SERVER_PROPERTY_PREFIX) && !key.equals(ServerConstants.JSON_FILE_LOCATION)) {
+                mappings.put(key, properties.getProperty(key));
+            }
+        }
+        long compressionMinBytes = new ServerUtil().getLongProperty(properties, ServerConstants.COMPRESSION_MIN_BYTES,
+                ServerConstants.DEFAULT_COMPRESSION_MIN_BYTES);
+        int count = new FixtureArchiveWriter(compressionMinBytes).write(Paths.get(args[0]), mappings, Paths.get(args[2]));
+        System.out.println("Packed " + count + " files and " + mappings.size() + " mappings into " + args[2]);
+    }
+}
@@ -0,0 +1,180 @@
+package home.learning.server.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Byte offsets of the elements of a JSON file holding a top-level array , found with one streaming pass.
+ * Only strings and nesting are tracked , values are not parsed , so a page of elements is a single
+ * region of the file : from the start of its first element to the end of its last one.
+ * The offsets live in one long[] , two entries per element , 16 bytes per element whatever their size.
+ * */
+public final class JsonArrayIndex {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /* Marker remembering that a file was scanned and is not a top-level array. */
+    static final JsonArrayIndex NOT_AN_ARRAY = new JsonArrayIndex(new long[0], 0);
+
+    private final long[] bounds;
+    private final int size;
+
+    private JsonArrayIndex(long[] bounds, int size) {
+        this.bounds = bounds;
+        this.size = size;
+    }
+
+    /*
+     * @Param content : File content , read from its position without changing it
+     * @Return JsonArrayIndex : null if the content is not a well formed top-level array
+     * */
+    public static JsonArrayIndex of(ByteBuffer content) {
+        Scanner scanner = new Scanner();
+        scanner.feed(content.duplicate());
+        return scanner.finish();
+    }
+
+    /*
+     * Scans the file in fixed size chunks , so the heap holds the offsets but never the file.
+     * @Return JsonArrayIndex : null if the file is not a well formed top-level array
+     * @Throws IOException : If the file cannot be read
+     * */
+    public static JsonArrayIndex of(Path file) throws IOException {
+        Scanner scanner = new Scanner();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                if (!scanner.feed(buffer)) {
+                    return null;
+                }
+                buffer.clear();
+            }
+        }
+        return scanner.finish();
+    }
+
+    /* Number of elements of the array. */
+    public int size() {
+        return size;
+    }
+
+    /* Approximate heap used by the offsets. */
+    long getSize() {
+        return 16L + bounds.length * 8L;
+    }
+
+    /* Offset of the first byte of the element. */
+    public long getStart(int element) {
+        return bounds[element * 2];
+    }
+
+    /* Offset just past the last byte of the element. */
+    public long getEnd(int element) {
+        return bounds[element * 2 + 1];
+    }
+
+    /*
+     * State of one pass over the content , fed chunk by chunk.
+     * */
+    private static final class Scanner {
+
+        private long[] bounds = new long[64];
+        private int size;
+        private long position;
+        private int depth;
+        private boolean opened;
+        private boolean closed;
+        private boolean inString;
+        private boolean escaped;
+        private long elementStart = -1;
+        private long elementEnd;
+        private boolean failed;
+
+        /*
+         * @Return boolean : false once the content is known not to be a well formed array
+         * */
+        private boolean feed(ByteBuffer chunk) {
+            while (chunk.hasRemaining() && !failed) {
+                accept(chunk.get());
+                position++;
+            }
+            return !failed;
+        }
+
+        private void accept(byte value) {
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (value == '\\') {
+                    escaped = true;
+                } else if (value == '"') {
+                    inString = false;
+                    elementEnd = position + 1;
+                }
+                return;
+            }
+            if (isWhitespace(value)) {
+                return;
+            }
+            if (closed || (!opened && value != '[')) {
+                failed = true;
+                return;
+            }
+            if (!opened) {
+                opened = true;
+                depth = 1;
+                return;
+            }
+            if (depth == 1 && (value == ',' || value == ']')) {
+                if (elementStart >= 0) {
+                    add(elementStart, elementEnd);
+                    elementStart = -1;
+                } else if (value == ',' || size > 0) {
+                    failed = true;
+                    return;
+                }
+                if (value == ']') {
+                    closed = true;
+                    depth = 0;
+                }
+                return;
+            }
+            if (depth == 1 && elementStart < 0) {
+                elementStart = position;
+            }
+            if (value == '"') {
+                inString = true;
+            } else if (value == '[' || value == '{') {
+                depth++;
+            } else if (value == ']' || value == '}') {
+                depth--;
+            }
+            elementEnd = position + 1;
+        }
+
+        private void add(long start, long end) {
+            if (size * 2 == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size * 2] = start;
+            bounds[size * 2 + 1] = end;
+            size++;
+        }
+
+        private JsonArrayIndex finish() {
+            if (failed || !closed) {
+                return null;
+            }
+            return new JsonArrayIndex(Arrays.copyOf(bounds, size * 2), size);
+        }
+
+        private static boolean isWhitespace(byte value) {
+            return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+        }
+    }
+}
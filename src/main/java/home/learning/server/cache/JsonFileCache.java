@@ -0,0 +1,279 @@
+package home.learning.server.cache;
+
+import home.learning.server.util.AsyncLogger;
+import home.learning.server.util.FileWatcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * In-memory cache of the mapped JSON files , bounded by a memory budget.
+ * Lookups are lock free , when the budget is exceeded the least recently used files are evicted.
+ * A FileWatcher on the JSON directory invalidates and reloads edited files , so a hit never touches the file system.
+ * While it watches , missing files are remembered as well until they are created , so a request for
+ * a missing fixture does not look at the file system each time either.
+ * With a FixtureArchive the files it holds are served from the mapped archive instead , outside the budget ,
+ * and only the files missing from it are read from the directory.
+ * The element index built for a page request is kept apart as well , keyed by file name and ETag , so an entry
+ * which is evicted or not cached at all does not scan the whole file again on its next page request.
+ * */
+public class JsonFileCache {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    /* Missing file names remembered at most , the set starts over beyond it. */
+    private static final int MAX_ABSENT_FILES = 10000;
+
+    /* Element indexes remembered at most , the map starts over beyond it. */
+    private static final int MAX_ARRAY_INDEXES = 64;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long transferThreshold;
+    private final long compressionMinBytes;
+    private final FixtureArchive archive;
+    private final Map<String, CachedJsonFile> entries = new ConcurrentHashMap<>();
+    private final Set<String> absentFiles = ConcurrentHashMap.newKeySet();
+    /* Element indexes by file name and ETag , an index counts against the budget only while its entry is cached. */
+    private final Map<String, JsonArrayIndex> arrayIndexes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile FileWatcher fileWatcher;
+
+    /*
+     * @Param directory : Directory holding the JSON files , null if it could not be resolved
+     * @Param maxBytes : Memory budget , 0 or less disables caching
+     * @Param transferThreshold : Files larger than this are served from disk instead of memory
+     * @Param compressionMinBytes : Files at least this large get gzip and deflate variants , 0 or less disables compression
+     * */
+    public JsonFileCache(Path directory, long maxBytes, long transferThreshold, long compressionMinBytes) {
+        this(directory, maxBytes, transferThreshold, compressionMinBytes, null);
+    }
+
+    /*
+     * @Param archive : Packed fixtures looked up before the directory , null to only use the directory
+     * */
+    public JsonFileCache(Path directory, long maxBytes, long transferThreshold, long compressionMinBytes, FixtureArchive archive) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.transferThreshold = transferThreshold;
+        this.compressionMinBytes = compressionMinBytes;
+        this.archive = archive;
+    }
+
+    /*
+     * Returns the file from the archive or memory , or reads it from the JSON directory on a miss.
+     * @Param fileName : File name inside the JSON directory
+     * @Return CachedJsonFile : null if the file does not exist or lies outside the JSON directory
+     * @Throws IOException : If the file exists but cannot be read
+     * */
+    public CachedJsonFile get(String fileName) throws IOException {
+        CachedJsonFile archived = archive != null ? archive.get(fileName) : null;
+        if (archived != null) {
+            hits.increment();
+            return archived;
+        }
+        CachedJsonFile cached = entries.get(fileName);
+        if (cached != null) {
+            cached.touch();
+            hits.increment();
+            return cached;
+        }
+        if (absentFiles.contains(fileName)) {
+            hits.increment();
+            return null;
+        }
+        misses.increment();
+        return load(fileName);
+    }
+
+    /*
+     * Reads the file and caches it , unless the file changed while it was being read.
+     * */
+    private CachedJsonFile load(String fileName) throws IOException {
+        if (directory == null) {
+            return null;
+        }
+        Path path = directory.resolve(fileName).normalize();
+        if (!path.startsWith(directory.normalize())) {
+            return null;
+        }
+        long loadGeneration = generation.get();
+        if (!Files.exists(path)) {
+            rememberAbsent(fileName, path, loadGeneration);
+            return null;
+        }
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        long size = Files.size(path);
+        CachedJsonFile file = size > transferThreshold
+                ? CachedJsonFile.onDisk(fileName, path, size, lastModified)
+                : CachedJsonFile.inMemory(fileName, path, Files.readAllBytes(path), lastModified, compressionMinBytes);
+        JsonArrayIndex arrayIndex = arrayIndexes.get(indexKey(file));
+        if (arrayIndex != null) {
+            file.setArrayIndex(arrayIndex);
+        } else {
+            file.setIndexListener(this::onArrayIndexed);
+        }
+        if (maxBytes > 0 && file.getSize() <= maxBytes && loadGeneration == generation.get()) {
+            entries.put(fileName, file);
+            if (loadGeneration != generation.get()) {
+                remove(fileName);
+            }
+            evictIfNeeded();
+        }
+        return file;
+    }
+
+    /*
+     * Remembers the element index just built for the file , and evicts if it pushed a cached entry over the budget.
+     * */
+    private void onArrayIndexed(CachedJsonFile file) {
+        if (arrayIndexes.size() >= MAX_ARRAY_INDEXES) {
+            arrayIndexes.clear();
+        }
+        arrayIndexes.put(indexKey(file), file.getBuiltArrayIndex());
+        if (entries.get(file.getFileName()) == file) {
+            evictIfNeeded();
+        }
+    }
+
+    private static String indexKey(CachedJsonFile file) {
+        return file.getFileName() + " " + file.getEtag();
+    }
+
+    /*
+     * Remembers a missing file , only while the watcher runs as it is the one forgetting it again.
+     * Files below a sub directory are not watched , so they are looked up every time.
+     * */
+    private void rememberAbsent(String fileName, Path path, long loadGeneration) {
+        if (fileWatcher == null || !directory.normalize().equals(path.getParent())) {
+            return;
+        }
+        if (absentFiles.size() >= MAX_ABSENT_FILES) {
+            absentFiles.clear();
+        }
+        absentFiles.add(fileName);
+        if (loadGeneration != generation.get()) {
+            absentFiles.remove(fileName);
+        }
+    }
+
+    /*
+     * Loads the given files into memory , used at startup with every mapped file.
+     * */
+    public void preload(Iterable<String> fileNames) {
+        for (String fileName : fileNames) {
+            try {
+                get(fileName);
+            } catch (IOException e) {
+                logger.error("Unable to preload " + fileName, e);
+            }
+        }
+    }
+
+    /*
+     * Starts invalidating entries whenever a file of the JSON directory changes.
+     * @Throws IOException : If the directory cannot be watched
+     * */
+    public void watch() throws IOException {
+        if (directory == null || fileWatcher != null) {
+            return;
+        }
+        fileWatcher = new FileWatcher(directory, this::onFileChanged);
+        fileWatcher.start("json-file-watcher");
+    }
+
+    /*
+     * Drops the changed file and reloads it right away if it was cached ,
+     * so the next request is still served from memory.
+     * @Param fileName : Changed file , null means every file may have changed
+     * */
+    void onFileChanged(String fileName) {
+        generation.incrementAndGet();
+        if (fileName == null) {
+            absentFiles.clear();
+            for (String cachedName : entries.keySet()) {
+                onFileChanged(cachedName);
+            }
+            return;
+        }
+        absentFiles.remove(fileName);
+        if (remove(fileName) != null) {
+            try {
+                load(fileName);
+            } catch (IOException e) {
+                logger.error("Unable to reload " + fileName, e);
+            }
+        }
+    }
+
+    private CachedJsonFile remove(String fileName) {
+        return entries.remove(fileName);
+    }
+
+    /*
+     * Evicts the least recently used files until the cache fits its budget again.
+     * Only runs after a miss or a new element index , so the scan is not on the hit path.
+     * The used bytes are summed here rather than counted along , as an entry grows once its index is built.
+     * */
+    private synchronized void evictIfNeeded() {
+        long usedBytes = getUsedBytes();
+        while (usedBytes > maxBytes) {
+            String eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (CachedJsonFile file : entries.values()) {
+                if (file.getLastAccess() < eldestAccess) {
+                    eldestAccess = file.getLastAccess();
+                    eldest = file.getFileName();
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            CachedJsonFile removed = remove(eldest);
+            usedBytes -= removed != null ? removed.getSize() : 0;
+        }
+    }
+
+    public boolean contains(String fileName) {
+        return entries.containsKey(fileName);
+    }
+
+    /* The JSON directory , null if it could not be resolved. */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /* Number of get calls answered from memory. */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /* Number of get calls which had to look at the file system. */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /* Approximate heap used by the cached entries , summed on every call. */
+    public long getUsedBytes() {
+        long usedBytes = 0;
+        for (CachedJsonFile file : entries.values()) {
+            usedBytes += file.getSize();
+        }
+        return usedBytes;
+    }
+
+    public void close() {
+        FileWatcher watcher = fileWatcher;
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+}
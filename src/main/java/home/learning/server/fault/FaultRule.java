@@ -0,0 +1,97 @@
+package home.learning.server.fault;
+
+import home.learning.server.ServerConstants;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.HttpResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Latency and failures injected into the responses of one route , for testing how clients handle them.
+ * Every request rolls its own dice : a drop closes the connection without an answer , an error
+ * answers the configured status instead of the fixture , and every answer is held back by the delay
+ * plus a random jitter.
+ * */
+public class FaultRule {
+
+    private final String routeKey;
+    private final long delayMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final double dropRate;
+    private final EncodedResponse errorResponse;
+
+    /*
+     * @Param routeKey : Key of the route mapping , like "users/{id}"
+     * @Param delayMillis : Fixed delay of every answer
+     * @Param jitterMillis : Up to this much is added at random to the delay
+     * @Param errorRate : Share of the requests answered with the error status , from 0 to 1
+     * @Param errorStatus : Status code of the injected errors
+     * @Param dropRate : Share of the requests whose connection is closed without an answer , from 0 to 1
+     * @Throws IllegalArgumentException : If a value is out of range
+     * */
+    public FaultRule(String routeKey, long delayMillis, long jitterMillis, double errorRate, int errorStatus, double dropRate) {
+        if (delayMillis < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("Negative delay or jitter for " + routeKey);
+        }
+        if (!isRate(errorRate) || !isRate(dropRate)) {
+            throw new IllegalArgumentException("Error and drop rates of " + routeKey + " have to be between 0 and 1");
+        }
+        if (errorStatus < 100 || errorStatus > 599) {
+            throw new IllegalArgumentException("Invalid error status " + errorStatus + " for " + routeKey);
+        }
+        this.routeKey = routeKey;
+        this.delayMillis = delayMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.dropRate = dropRate;
+        this.errorResponse = EncodedResponse.newBuilder("HTTP/1.1 " + errorStatus + " " + reasonPhrase(errorStatus))
+                .header(ServerConstants.CACHE_CONTROL, "no-store")
+                .build(ServerConstants.CONTENT_TYPE_JSON, ServerConstants.HTTP_INJECTED_FAULT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isRate(double rate) {
+        return rate >= 0 && rate <= 1;
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 429:
+                return "Too Many Requests";
+            case 500:
+                return "Internal Server Error";
+            case 502:
+                return "Bad Gateway";
+            case 503:
+                return "Service Unavailable";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                return status >= 500 ? "Server Error" : "Error";
+        }
+    }
+
+    /* Delay of the next answer : the fixed delay plus a uniform jitter , in milliseconds. */
+    public long nextDelayMillis() {
+        return jitterMillis > 0 ? delayMillis + ThreadLocalRandom.current().nextLong(jitterMillis + 1) : delayMillis;
+    }
+
+    /* true if the next request has to be answered with the error response. */
+    public boolean nextFails() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    /* true if the connection of the next request has to be closed without an answer. */
+    public boolean nextDrops() {
+        return dropRate > 0 && ThreadLocalRandom.current().nextDouble() < dropRate;
+    }
+
+    public HttpResponse getErrorResponse() {
+        return errorResponse;
+    }
+
+    public String getRouteKey() {
+        return routeKey;
+    }
+}
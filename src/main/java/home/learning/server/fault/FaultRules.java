@@ -0,0 +1,93 @@
+package home.learning.server.fault;
+
+import home.learning.server.ServerConstants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/*
+ * The fault rules of server.properties , one per route key , configured next to the mappings :
+ * "server.fault.<route>.delay.ms" , ".jitter.ms" , ".error.rate" , ".error.status" and ".drop.rate" ,
+ * like server.fault.users/{id}.delay.ms=800 for the mapping users/{id}=user-{id}.json.
+ * */
+public class FaultRules {
+
+    public static final FaultRules NONE = new FaultRules(Collections.emptyMap());
+
+    private static final String DELAY = ".delay.ms";
+    private static final String JITTER = ".jitter.ms";
+    private static final String ERROR_RATE = ".error.rate";
+    private static final String ERROR_STATUS = ".error.status";
+    private static final String DROP_RATE = ".drop.rate";
+    private static final String[] SETTINGS = {DELAY, JITTER, ERROR_RATE, ERROR_STATUS, DROP_RATE};
+    private static final int DEFAULT_ERROR_STATUS = 500;
+
+    private final Map<String, FaultRule> rules;
+
+    private FaultRules(Map<String, FaultRule> rules) {
+        this.rules = rules;
+    }
+
+    /*
+     * @Param properties : Content of server.properties
+     * @Return FaultRules : The rules found , NONE if there are none
+     * @Throws IllegalArgumentException : If a fault setting is unknown , not a number or out of range
+     * */
+    public static FaultRules parse(Properties properties) {
+        Map<String, Map<String, String>> settings = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(ServerConstants.FAULT_PREFIX)) {
+                continue;
+            }
+            String name = key.substring(ServerConstants.FAULT_PREFIX.length());
+            String setting = null;
+            for (String candidate : SETTINGS) {
+                if (name.endsWith(candidate) && name.length() > candidate.length()) {
+                    setting = candidate;
+                }
+            }
+            if (setting == null) {
+                throw new IllegalArgumentException("Unknown fault setting " + key);
+            }
+            String routeKey = name.substring(0, name.length() - setting.length());
+            settings.computeIfAbsent(routeKey, route -> new HashMap<>()).put(setting, properties.getProperty(key).trim());
+        }
+        if (settings.isEmpty()) {
+            return NONE;
+        }
+        Map<String, FaultRule> rules = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> route : settings.entrySet()) {
+            Map<String, String> values = route.getValue();
+            try {
+                rules.put(route.getKey(), new FaultRule(route.getKey(),
+                        Long.parseLong(values.getOrDefault(DELAY, "0")),
+                        Long.parseLong(values.getOrDefault(JITTER, "0")),
+                        Double.parseDouble(values.getOrDefault(ERROR_RATE, "0")),
+                        Integer.parseInt(values.getOrDefault(ERROR_STATUS, String.valueOf(DEFAULT_ERROR_STATUS))),
+                        Double.parseDouble(values.getOrDefault(DROP_RATE, "0"))));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid fault setting for " + route.getKey() + " : " + e.getMessage());
+            }
+        }
+        return new FaultRules(Collections.unmodifiableMap(rules));
+    }
+
+    /*
+     * @Param routeKey : Key of the matched route , see HttpRequest.getRouteKey
+     * @Return FaultRule : null if the route has no fault rule
+     * */
+    public FaultRule get(String routeKey) {
+        return routeKey != null ? rules.get(routeKey) : null;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    public Set<String> getRouteKeys() {
+        return rules.keySet();
+    }
+}
@@ -0,0 +1,83 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * Response whose body is a read only ByteBuffer , like a region of the memory-mapped fixture archive.
+ * Only the headers live on the heap , the body is written from the buffer without being copied into a byte array ,
+ * with one gathering write of headers and body when the channel supports it.
+ * */
+public final class BufferResponse implements HttpResponse {
+
+    private final byte[] head;
+    private final ByteBuffer body;
+
+    /*
+     * @Param head : Status line and headers , see EncodedResponse.Builder.buildHead
+     * @Param body : Body bytes between position and limit , the buffer itself is never moved
+     * */
+    public BufferResponse(byte[] head, ByteBuffer body) {
+        this.head = head;
+        this.body = body.slice();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(head);
+        ByteBuffer view = body.duplicate();
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        while (view.hasRemaining()) {
+            target.write(view);
+        }
+    }
+
+    @Override
+    public ResponseWriter newWriter() {
+        ByteBuffer[] buffers = {ByteBuffer.wrap(head), body.duplicate()};
+        return channel -> {
+            if (channel instanceof GatheringByteChannel) {
+                ((GatheringByteChannel) channel).write(buffers);
+            } else {
+                for (ByteBuffer buffer : buffers) {
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        return false;
+                    }
+                }
+            }
+            return !buffers[0].hasRemaining() && !buffers[1].hasRemaining();
+        };
+    }
+
+    /*
+     * @Return ByteBuffer : Read only view over the body with its own position
+     * */
+    public ByteBuffer getBody() {
+        return body.duplicate();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return HttpResponse.statusCode(head);
+    }
+
+    @Override
+    public HttpResponse withoutBody() {
+        return EncodedResponse.ofHead(head);
+    }
+
+    @Override
+    public long getSize() {
+        return head.length + body.remaining();
+    }
+
+    /* Size of the headers , the only part of this response held on the heap. */
+    public int getHeadLength() {
+        return head.length;
+    }
+}
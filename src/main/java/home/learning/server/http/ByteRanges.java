@@ -0,0 +1,103 @@
+package home.learning.server.http;
+
+/*
+ * Parser of the Range request header , in bytes units : "bytes=0-499" , "bytes=500-" , "bytes=-500" or a comma separated list.
+ * */
+public final class ByteRanges {
+
+    /* More ranges than this are not worth a multipart answer , the whole body is sent instead. */
+    static final int MAX_RANGES = 32;
+
+    private ByteRanges() {
+    }
+
+    /*
+     * Unsatisfiable ranges , starting past the end , are dropped. A header which cannot be parsed , uses another unit ,
+     * has too many ranges or asks for more bytes than the body holds (overlapping ranges) is ignored ,
+     * the whole body is sent then as the RFC allows.
+     * @Param header : Value of the Range header
+     * @Param length : Body size in bytes
+     * @Return long[] : First and last (inclusive) position of every satisfiable range in request order ,
+     * empty if none is satisfiable , null if the header must be ignored
+     * */
+    public static long[] parse(String header, long length) {
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = value.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        long[] ranges = new long[specs.length * 2];
+        int count = 0;
+        int specCount = 0;
+        long total = 0;
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            specCount++;
+            int dash = trimmed.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first;
+            long last;
+            String firstText = trimmed.substring(0, dash).trim();
+            String lastText = trimmed.substring(dash + 1).trim();
+            if (firstText.isEmpty()) {
+                long suffix = parseDigits(lastText);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || length == 0) {
+                    continue;
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = parseDigits(firstText);
+                last = lastText.isEmpty() ? Long.MAX_VALUE : parseDigits(lastText);
+                if (first < 0 || last < 0 || last < first) {
+                    return null;
+                }
+                if (first >= length) {
+                    continue;
+                }
+                last = Math.min(last, length - 1);
+            }
+            total += last - first + 1;
+            if (total > length) {
+                return null;
+            }
+            ranges[count++] = first;
+            ranges[count++] = last;
+        }
+        if (specCount == 0) {
+            return null;
+        }
+        long[] satisfiable = new long[count];
+        System.arraycopy(ranges, 0, satisfiable, 0, count);
+        return satisfiable;
+    }
+
+    /*
+     * @Return long : The value , -1 if the text is not a non negative decimal number
+     * */
+    private static long parseDigits(String text) {
+        if (text.isEmpty() || text.length() > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package home.learning.server.http;
+
+/*
+ * Evaluation of the If-None-Match , If-Modified-Since and If-Range request headers.
+ * */
+public final class ConditionalRequest {
+
+    private ConditionalRequest() {
+    }
+
+    /*
+     * If-None-Match wins when both headers are sent. If-Modified-Since is compared at second precision ,
+     * which is all an HTTP-date carries. Only GET and HEAD requests can be answered with 304.
+     * @Param request : The request from the client
+     * @Param etag : Current entity tag , quoted
+     * @Param lastModified : Current last modification time in epoch milliseconds
+     * @Return boolean : true if the client copy is still current and 304 Not Modified can be sent
+     * */
+    public static boolean isNotModified(HttpRequest request, String etag, long lastModified) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            long since = HttpDates.parse(ifModifiedSince);
+            return since >= 0 && lastModified / 1000 <= since / 1000;
+        }
+        return false;
+    }
+
+    /*
+     * If-Range holds the ETag or Last-Modified the client got with the part it already has. The range only
+     * applies if that is still the current version : ETags are compared strongly , as a byte range of
+     * another version would corrupt the client copy , a date has to be exactly the Last-Modified.
+     * @Return boolean : true if there is no If-Range or it matches , false to send the whole body
+     * */
+    public static boolean isRangeApplicable(HttpRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            return validator.equals(etag);
+        }
+        long date = HttpDates.parse(validator);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    /*
+     * Weak comparison , as If-None-Match requires : a "W/" prefix on either side is ignored.
+     * */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || stripWeakPrefix(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
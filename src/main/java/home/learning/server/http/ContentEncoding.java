@@ -0,0 +1,91 @@
+package home.learning.server.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Content codings the server can send , and the Accept-Encoding negotiation between them.
+ * */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /*
+     * Compresses the body once , the result is cached next to the identity body.
+     * @Param body : Identity body
+     * @Return byte[] : Compressed body
+     * */
+    public byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream stream = this == GZIP ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed)) {
+            stream.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /*
+     * Picks the coding to send for an Accept-Encoding header. gzip wins over deflate when both are accepted ,
+     * codings with "q=0" are refused and "*" accepts any coding.
+     * @Param acceptEncoding : Header value , may be null
+     * @Return ContentEncoding : null when the identity body must be sent
+     * */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        boolean gzipRefused = false;
+        boolean deflateRefused = false;
+        boolean any = false;
+        for (String part : acceptEncoding.split(",")) {
+            int parameters = part.indexOf(';');
+            String coding = (parameters < 0 ? part : part.substring(0, parameters)).trim();
+            boolean refused = parameters >= 0 && isZeroQuality(part.substring(parameters + 1));
+            if (coding.equalsIgnoreCase(GZIP.token) || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = !refused;
+                gzipRefused = refused;
+            } else if (coding.equalsIgnoreCase(DEFLATE.token)) {
+                deflate = !refused;
+                deflateRefused = refused;
+            } else if (coding.equals("*")) {
+                any = !refused;
+            }
+        }
+        if (gzip || (any && !gzipRefused)) {
+            return GZIP;
+        }
+        if (deflate || (any && !deflateRefused)) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    private static boolean isZeroQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.startsWith("q=") || trimmed.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,170 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Complete HTTP response (status line , headers and body) encoded once into an immutable byte array.
+ * Writing it to a client is a single write of the shared bytes , nothing is built per request.
+ * */
+public final class EncodedResponse implements HttpResponse {
+
+    private static final String NEW_LINE = "\r\n";
+
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final int bodyLength;
+    private final int statusCode;
+    /* Answer to HEAD , created on the first one. */
+    private volatile EncodedResponse headResponse;
+
+    private EncodedResponse(byte[] bytes, int bodyLength) {
+        this.bytes = bytes;
+        this.buffer = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        this.bodyLength = bodyLength;
+        this.statusCode = HttpResponse.statusCode(bytes);
+    }
+
+    /*
+     * @Param statusLine : Status line like "HTTP/1.1 200 OK"
+     * @Return Builder : Builder adding headers in the given order , Content-Type and Content-Length come first
+     * */
+    public static Builder newBuilder(String statusLine) {
+        return new Builder(statusLine);
+    }
+
+    /*
+     * Response with a UTF-8 encoded body and a Content-Length counted in bytes.
+     * */
+    public static EncodedResponse of(String statusLine, String contentType, String body) {
+        return newBuilder(statusLine).build(contentType, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(bytes);
+    }
+
+    @Override
+    public ResponseWriter newWriter() {
+        ByteBuffer view = buffer.duplicate();
+        return channel -> {
+            channel.write(view);
+            return !view.hasRemaining();
+        };
+    }
+
+    /*
+     * @Return ByteBuffer : Read only view over the encoded bytes with its own position , for channel writes
+     * */
+    public ByteBuffer asReadOnlyBuffer() {
+        return buffer.duplicate();
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public EncodedResponse withoutBody() {
+        if (bodyLength == 0) {
+            return this;
+        }
+        EncodedResponse response = headResponse;
+        if (response == null) {
+            response = new EncodedResponse(Arrays.copyOf(bytes, bytes.length - bodyLength), 0);
+            headResponse = response;
+        }
+        return response;
+    }
+
+    /*
+     * @Param head : Status line and headers of a response whose body is sent separately , see Builder.buildHead
+     * @Return EncodedResponse : The headers alone , body bytes following them in the array are left out
+     * */
+    static EncodedResponse ofHead(byte[] head) {
+        return new EncodedResponse(Arrays.copyOf(head, HttpResponse.headerLength(head)), 0);
+    }
+
+    @Override
+    public long getSize() {
+        return bytes.length;
+    }
+
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    /*
+     * @Return ByteBuffer : Read only view over the body part of the encoded bytes
+     * */
+    public ByteBuffer getBody() {
+        ByteBuffer body = buffer.duplicate();
+        body.position(bytes.length - bodyLength);
+        return body.slice();
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Builder {
+
+        private final String statusLine;
+        private final StringBuilder headers = new StringBuilder();
+
+        private Builder(String statusLine) {
+            this.statusLine = statusLine;
+        }
+
+        public Builder header(String name, String value) {
+            headers.append(name).append(": ").append(value).append(NEW_LINE);
+            return this;
+        }
+
+        /*
+         * @Param contentType : Content-Type of the body , null to send no Content-Type
+         * @Param body : Body bytes , copied into the response
+         * */
+        public EncodedResponse build(String contentType, byte[] body) {
+            byte[] headBytes = buildHead(contentType, body.length);
+            byte[] bytes = new byte[headBytes.length + body.length];
+            System.arraycopy(headBytes, 0, bytes, 0, headBytes.length);
+            System.arraycopy(body, 0, bytes, headBytes.length, body.length);
+            return new EncodedResponse(bytes, body.length);
+        }
+
+        /*
+         * Response made of the status line and headers only , like 304 Not Modified.
+         * */
+        public EncodedResponse buildWithoutBody() {
+            String head = statusLine + NEW_LINE + headers + NEW_LINE;
+            return new EncodedResponse(head.getBytes(StandardCharsets.US_ASCII), 0);
+        }
+
+        /*
+         * Status line and headers of a response whose body is sent separately , like a file.
+         * @Param contentType : Content-Type of the body , null to send no Content-Type
+         * @Param contentLength : Body size in bytes
+         * */
+        public byte[] buildHead(String contentType, long contentLength) {
+            StringBuilder head = new StringBuilder(statusLine).append(NEW_LINE);
+            if (contentType != null) {
+                head.append("Content-Type: ").append(contentType).append(NEW_LINE);
+            }
+            head.append("Content-Length: ").append(contentLength).append(NEW_LINE)
+                    .append(headers)
+                    .append(NEW_LINE);
+            return head.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
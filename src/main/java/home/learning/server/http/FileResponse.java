@@ -0,0 +1,146 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Response whose body is served straight from a file with FileChannel.transferTo ,
+ * which is sendfile on a socket channel. Only the headers , built from the file metadata , live on the heap ,
+ * so large bodies keep the heap flat no matter how many clients download them at once.
+ * Both engines write it to the socket channel , writeTo(OutputStream) copies through the stream wrapper
+ * and is only the fallback for streams without a channel.
+ * */
+public final class FileResponse implements HttpResponse {
+
+    private static final byte[] NO_TAIL = new byte[0];
+
+    private final Path file;
+    private final long offset;
+    private final long length;
+    private final byte[] head;
+    private final byte[] tail;
+
+    /*
+     * @Param head : Status line and headers , see EncodedResponse.Builder.buildHead
+     * @Param file : File holding the body
+     * @Param length : File size in bytes , sent as Content-Length
+     * */
+    public FileResponse(byte[] head, Path file, long length) {
+        this(head, file, 0, length, NO_TAIL);
+    }
+
+    /*
+     * Response sending one region of the file between the head and the tail , like a page of a JSON array.
+     * @Param head : Status line , headers and any body bytes sent before the region
+     * @Param offset : Position of the region in the file
+     * @Param length : Region size in bytes
+     * @Param tail : Body bytes sent after the region
+     * */
+    public FileResponse(byte[] head, Path file, long offset, long length, byte[] tail) {
+        this.head = head;
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.tail = tail;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(head);
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = 0;
+            while (position < length) {
+                long transferred = fileChannel.transferTo(offset + position, length - position, target);
+                if (transferred <= 0) {
+                    throw new IOException(file + " became shorter than " + (offset + length) + " bytes while it was sent");
+                }
+                position += transferred;
+            }
+        }
+        outputStream.write(tail);
+    }
+
+    @Override
+    public ResponseWriter newWriter() throws IOException {
+        return new FileWriter(ByteBuffer.wrap(head), FileChannel.open(file, StandardOpenOption.READ), ByteBuffer.wrap(tail));
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return HttpResponse.statusCode(head);
+    }
+
+    @Override
+    public HttpResponse withoutBody() {
+        return EncodedResponse.ofHead(head);
+    }
+
+    @Override
+    public long getSize() {
+        return head.length + length + tail.length;
+    }
+
+    /* Size of the headers and tail , the only part of this response held on the heap. */
+    public int getHeadLength() {
+        return head.length + tail.length;
+    }
+
+    /*
+     * Writes the headers , then hands the file region to transferTo until everything was sent , then the tail.
+     * */
+    private final class FileWriter implements ResponseWriter {
+
+        private final ByteBuffer headBuffer;
+        private final FileChannel fileChannel;
+        private final ByteBuffer tailBuffer;
+        private long position;
+
+        private FileWriter(ByteBuffer headBuffer, FileChannel fileChannel, ByteBuffer tailBuffer) {
+            this.headBuffer = headBuffer;
+            this.fileChannel = fileChannel;
+            this.tailBuffer = tailBuffer;
+        }
+
+        @Override
+        public boolean writeTo(WritableByteChannel channel) throws IOException {
+            if (headBuffer.hasRemaining()) {
+                channel.write(headBuffer);
+                if (headBuffer.hasRemaining()) {
+                    return false;
+                }
+            }
+            if (position < length) {
+                long transferred = fileChannel.transferTo(offset + position, length - position, channel);
+                if (transferred < 0 || (transferred == 0 && offset + position >= fileChannel.size())) {
+                    throw new IOException(file + " became shorter than " + (offset + length) + " bytes while it was sent");
+                }
+                position += transferred;
+                if (position < length) {
+                    return false;
+                }
+            }
+            channel.write(tailBuffer);
+            return !tailBuffer.hasRemaining();
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package home.learning.server.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/*
+ * HTTP-date formatting and parsing , like "Sun, 06 Nov 1994 08:49:37 GMT".
+ * */
+public final class HttpDates {
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private HttpDates() {
+    }
+
+    public static String format(long epochMillis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /*
+     * @Param date : HTTP-date , the RFC 1123 form with or without a leading zero in the day
+     * @Return long : Epoch milliseconds , -1 if the date cannot be parsed
+     * */
+    public static long parse(String date) {
+        try {
+            return ZonedDateTime.parse(date.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
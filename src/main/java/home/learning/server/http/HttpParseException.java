@@ -0,0 +1,23 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+
+/*
+ * Thrown when a request cannot be parsed or breaks a size limit.
+ * Carries the error response to send before the connection is closed.
+ * */
+public class HttpParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final EncodedResponse response;
+
+    public HttpParseException(String message, EncodedResponse response) {
+        super(message);
+        this.response = response;
+    }
+
+    public EncodedResponse getResponse() {
+        return response;
+    }
+}
@@ -0,0 +1,309 @@
+package home.learning.server.http;
+
+import home.learning.server.fault.FaultRule;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Structured view of one request read from the client.
+ * The HttpRequestParser copies the header block once and records where each name and value sits ,
+ * a header value only becomes a String when somebody asks for it.
+ * */
+public class HttpRequest {
+
+    public static final String HTTP_1_1 = "HTTP/1.1";
+    public static final String HTTP_1_0 = "HTTP/1.0";
+
+    static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "CONNECT", "TRACE"};
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final String method;
+    private final String target;
+    private final String version;
+    private final byte[] head;
+    private final int[] headerOffsets;
+    private final int headerCount;
+    private final byte[] body;
+    private String routeKey;
+    private FaultRule faultRule;
+
+    /*
+     * @Param head : Request line and header lines as received
+     * @Param headerOffsets : Start and end of the name and of the value of every header inside head
+     * */
+    HttpRequest(String method, String target, String version, byte[] head, int[] headerOffsets, int headerCount, byte[] body) {
+        this.method = method;
+        this.target = target;
+        this.version = version;
+        this.head = head;
+        this.headerOffsets = headerOffsets;
+        this.headerCount = headerCount;
+        this.body = body != null ? body : NO_BODY;
+    }
+
+    /*
+     * Parses a request held as text , like the text returned by Server.readInputFromClient.
+     * A missing blank line after the headers is accepted.
+     * @Param request : The request text
+     * @Return HttpRequest : Missing request line parts are empty strings
+     * */
+    public static HttpRequest parse(String request) {
+        HttpRequestParser parser = new HttpRequestParser(Integer.MAX_VALUE - 16, Integer.MAX_VALUE - 16);
+        try {
+            HttpRequest parsed = parser.parse(request.getBytes(StandardCharsets.ISO_8859_1));
+            return parsed != null ? parsed : new HttpRequest("", "", "", NO_BODY, new int[0], 0, null);
+        } catch (HttpParseException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /*
+     * @Return boolean : true if the request line starts with one of the nine HTTP methods
+     * */
+    public boolean isHttpMethod() {
+        for (String known : METHODS) {
+            if (known == method) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * HTTP/1.1 connections stay open unless the client sends "Connection: close".
+     * HTTP/1.0 keep-alive is not offered , those connections are closed after the response.
+     * */
+    public boolean isKeepAlive() {
+        if (!HTTP_1_1.equals(version) || !isHttpMethod()) {
+            return false;
+        }
+        return !headerContains("Connection", "close");
+    }
+
+    /*
+     * @Param name : Header name , case insensitive
+     * @Return String : Value of the first header with that name , null if the header was not sent
+     * */
+    public String getHeader(String name) {
+        int index = indexOfHeader(name);
+        if (index < 0) {
+            return null;
+        }
+        int valueStart = headerOffsets[index * 4 + 2];
+        return new String(head, valueStart, headerOffsets[index * 4 + 3] - valueStart, StandardCharsets.ISO_8859_1);
+    }
+
+    /*
+     * Checks a comma separated header value for a token without building a String , like "close" in "Connection: close".
+     * Every element is trimmed and compared as a whole , case insensitive , so "x-closed" does not match "close".
+     * Parameters of an element (";q=1") are ignored.
+     * */
+    public boolean headerContains(String name, String token) {
+        int index = indexOfHeader(name);
+        if (index < 0) {
+            return false;
+        }
+        int start = headerOffsets[index * 4 + 2];
+        int end = headerOffsets[index * 4 + 3];
+        while (start <= end) {
+            int elementEnd = indexOf(',', start, end);
+            if (isToken(start, elementEnd, token)) {
+                return true;
+            }
+            start = elementEnd + 1;
+        }
+        return false;
+    }
+
+    /*
+     * Checks the last element of a comma separated header value , like "chunked" being the final coding
+     * of "Transfer-Encoding: gzip, chunked".
+     * @Return boolean : false if the header was not sent
+     * */
+    public boolean headerEndsWithToken(String name, String token) {
+        int index = indexOfHeader(name);
+        if (index < 0) {
+            return false;
+        }
+        int start = headerOffsets[index * 4 + 2];
+        int end = headerOffsets[index * 4 + 3];
+        int elementStart = start;
+        for (int i = end - 1; i >= start; i--) {
+            if (head[i] == ',') {
+                elementStart = i + 1;
+                break;
+            }
+        }
+        return isToken(elementStart, end, token);
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (head[i] == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private boolean isToken(int from, int to, String token) {
+        to = indexOf(';', from, to);
+        while (from < to && isWhitespace(head[from])) {
+            from++;
+        }
+        while (to > from && isWhitespace(head[to - 1])) {
+            to--;
+        }
+        return to - from == token.length() && equalsIgnoreCase(from, token);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    /*
+     * @Param name : Query parameter name , case sensitive
+     * @Return String : Percent decoded value of the first parameter with that name , "" for a name without value ,
+     * null if the parameter was not sent
+     * */
+    public String getQueryParameter(String name) {
+        int queryStart = target.indexOf('?');
+        while (queryStart >= 0) {
+            int start = queryStart + 1;
+            int end = target.indexOf('&', start);
+            if (end < 0) {
+                end = target.length();
+            }
+            int separator = target.indexOf('=', start);
+            int nameEnd = separator >= 0 && separator < end ? separator : end;
+            if (nameEnd - start == name.length() && target.startsWith(name, start)) {
+                return nameEnd == end ? "" : decode(target.substring(nameEnd + 1, end));
+            }
+            queryStart = end < target.length() ? end : -1;
+        }
+        return null;
+    }
+
+    /*
+     * @Return Map : Percent decoded query parameters in request order , the first value wins for a repeated name
+     * */
+    public Map<String, String> getQueryParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        int queryStart = target.indexOf('?');
+        while (queryStart >= 0) {
+            int start = queryStart + 1;
+            int end = target.indexOf('&', start);
+            if (end < 0) {
+                end = target.length();
+            }
+            int separator = target.indexOf('=', start);
+            int nameEnd = separator >= 0 && separator < end ? separator : end;
+            if (nameEnd > start) {
+                parameters.putIfAbsent(decode(target.substring(start, nameEnd)), nameEnd == end ? "" : decode(target.substring(nameEnd + 1, end)));
+            }
+            queryStart = end < target.length() ? end : -1;
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+    private int indexOfHeader(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            int nameStart = headerOffsets[i * 4];
+            if (headerOffsets[i * 4 + 1] - nameStart == name.length() && equalsIgnoreCase(nameStart, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean equalsIgnoreCase(int offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.toLowerCase((char) (head[offset + i] & 0xFF)) != Character.toLowerCase(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /* Body bytes read from Content-Length or chunked encoding , empty when the request has no body. */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /* Key of the route the request was dispatched to , set by the server and used for metrics. */
+    public String getRouteKey() {
+        return routeKey;
+    }
+
+    public void setRouteKey(String routeKey) {
+        this.routeKey = routeKey;
+    }
+
+    /* Fault rule of the route , looked up by the server along with the route so both come from the same mappings. */
+    public FaultRule getFaultRule() {
+        return faultRule;
+    }
+
+    public void setFaultRule(FaultRule faultRule) {
+        this.faultRule = faultRule;
+    }
+
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    /*
+     * @Param index : Header position , from 0 to getHeaderCount() - 1 , in the order received
+     * */
+    public String getHeaderName(int index) {
+        int nameStart = headerOffsets[index * 4];
+        return new String(head, nameStart, headerOffsets[index * 4 + 1] - nameStart, StandardCharsets.ISO_8859_1);
+    }
+
+    public String getHeaderValue(int index) {
+        int valueStart = headerOffsets[index * 4 + 2];
+        return new String(head, valueStart, headerOffsets[index * 4 + 3] - valueStart, StandardCharsets.ISO_8859_1);
+    }
+
+    byte[] getHead() {
+        return head;
+    }
+
+    int[] getHeaderOffsets() {
+        return headerOffsets;
+    }
+
+    /*
+     * @Return String : Request line and headers , one per line , as Server.readInputFromClient returns them
+     * */
+    @Override
+    public String toString() {
+        String text = new String(head, StandardCharsets.ISO_8859_1).replace("\r\n", "\n");
+        return text.endsWith("\n") ? text : text + "\n";
+    }
+}
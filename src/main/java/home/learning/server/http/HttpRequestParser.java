@@ -0,0 +1,503 @@
+package home.learning.server.http;
+
+import home.learning.server.ServerConstants;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Byte level HTTP/1.1 request parser , one instance per connection.
+ * Bytes are read into one reusable buffer , the request line and headers are parsed in place
+ * and bodies are read from Content-Length or chunked transfer coding. Bytes following a request
+ * stay in the buffer , so pipelined requests are parsed in order.
+ * Header block and body sizes are limited , breaking a limit ends in an HttpParseException.
+ * A chunked body is decoded as its bytes arrive , in place right after the headers , so every byte
+ * is looked at once and only the decoded body counts against the body limit.
+ * */
+public class HttpRequestParser {
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /* Room for a chunk size line or trailer line on top of the header and body limits. */
+    private static final int MAX_LINE_BYTES = 1024;
+
+    private static final int CHUNK_SIZE = 0;
+    private static final int CHUNK_DATA = 1;
+    private static final int CHUNK_DATA_END = 2;
+    private static final int CHUNK_TRAILER = 3;
+
+    private final int maxHeaderBytes;
+    private final int maxBodyBytes;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer channelView = ByteBuffer.wrap(buffer);
+    private int start;
+    private int end;
+    private int scanPosition;
+    private HttpRequest pendingHead;
+    private int bodyStart;
+    private int contentLength;
+    private boolean chunked;
+    private int chunkPhase;
+    /* Next chunked body byte not parsed yet. */
+    private int chunkPosition;
+    /* Data bytes of the current chunk not buffered yet. */
+    private int chunkRemaining;
+    /* End of the decoded body , which starts at bodyStart. */
+    private int decodedEnd;
+    private long requestStart;
+
+    /*
+     * @Param maxHeaderBytes : Max size of the request line and headers
+     * @Param maxBodyBytes : Max size of a request body
+     * */
+    public HttpRequestParser(int maxHeaderBytes, int maxBodyBytes) {
+        this.maxHeaderBytes = maxHeaderBytes;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /*
+     * Blocking read of the next request.
+     * @Param stream : The input stream of the connection
+     * @Return HttpRequest : The next request , null if the client closed the connection before sending one
+     * @Throws IOException : If reading fails or the request is invalid
+     * */
+    public HttpRequest readRequest(InputStream stream) throws IOException {
+        return readRequest(stream, 0);
+    }
+
+    /*
+     * Blocking read of the next request , which has to be complete within the timeout once its first byte arrived ,
+     * so a client trickling bytes cannot hold the connection forever.
+     * @Param timeoutNanos : Time allowed per request , 0 for no limit
+     * @Throws HttpParseException : With 408 Request Timeout when the time ran out
+     * */
+    public HttpRequest readRequest(InputStream stream, long timeoutNanos) throws IOException {
+        while (true) {
+            HttpRequest request = poll();
+            if (request != null) {
+                return request;
+            }
+            ensureSpace();
+            int read = stream.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                return finish();
+            }
+            end += read;
+            markRequestStart();
+            if (timeoutNanos > 0 && isTimedOut(System.nanoTime(), timeoutNanos)) {
+                throw new HttpParseException("Request not received within " + timeoutNanos / 1000000 + " ms",
+                        ServerConstants.REQUEST_TIMEOUT_RESPONSE);
+            }
+        }
+    }
+
+    /*
+     * Non-blocking read of whatever the channel has available.
+     * @Return int : Number of bytes read , -1 at end of stream
+     * @Throws IOException : If reading fails or the buffer is full
+     * */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        ensureSpace();
+        channelView.limit(buffer.length).position(end);
+        int read = channel.read(channelView);
+        if (read > 0) {
+            end += read;
+            markRequestStart();
+        }
+        return read;
+    }
+
+    /*
+     * @Return boolean : true if the bytes of an incomplete request arrived over the timeout ago
+     * */
+    public boolean isTimedOut(long now, long timeoutNanos) {
+        return requestStart != 0 && now - requestStart > timeoutNanos;
+    }
+
+    private void markRequestStart() {
+        if (requestStart == 0) {
+            requestStart = System.nanoTime();
+        }
+    }
+
+    /*
+     * Parses a complete request held in memory.
+     * @Return HttpRequest : null if the bytes hold no request
+     * */
+    HttpRequest parse(byte[] bytes) throws HttpParseException {
+        buffer = bytes;
+        end = bytes.length;
+        HttpRequest request = poll();
+        return request != null ? request : finish();
+    }
+
+    /*
+     * @Return HttpRequest : The next complete buffered request , null if more bytes are needed
+     * @Throws HttpParseException : If the request is invalid or too large
+     * */
+    public HttpRequest poll() throws HttpParseException {
+        if (pendingHead == null) {
+            skipLeadingLineBreaks();
+            int headerEnd = findHeaderEnd();
+            if (headerEnd < 0) {
+                if (end - start > maxHeaderBytes) {
+                    throw new HttpParseException("Request headers exceed " + maxHeaderBytes + " bytes",
+                            ServerConstants.HEADER_TOO_LARGE_RESPONSE);
+                }
+                return null;
+            }
+            if (headerEnd - start > maxHeaderBytes) {
+                throw new HttpParseException("Request headers exceed " + maxHeaderBytes + " bytes",
+                        ServerConstants.HEADER_TOO_LARGE_RESPONSE);
+            }
+            pendingHead = parseHead(start, headerEnd);
+            bodyStart = headerEnd;
+            chunkPhase = CHUNK_SIZE;
+            chunkPosition = headerEnd;
+            decodedEnd = headerEnd;
+            readBodyFraming(pendingHead);
+        }
+        return chunked ? pollChunkedBody() : pollFixedBody();
+    }
+
+    /*
+     * Called at end of stream : bytes without the blank line ending the headers still count as a request ,
+     * like a client sending only "GET /person HTTP/1.1" and closing its side.
+     * @Return HttpRequest : The last request , null if nothing usable was left
+     * */
+    public HttpRequest finish() throws HttpParseException {
+        if (pendingHead != null) {
+            return null;
+        }
+        skipLeadingLineBreaks();
+        if (start >= end) {
+            return null;
+        }
+        if (end - start > maxHeaderBytes) {
+            throw new HttpParseException("Request headers exceed " + maxHeaderBytes + " bytes",
+                    ServerConstants.HEADER_TOO_LARGE_RESPONSE);
+        }
+        HttpRequest request = parseHead(start, end);
+        start = end;
+        scanPosition = end;
+        requestStart = 0;
+        return request;
+    }
+
+    /* True when bytes of a next request are already buffered. */
+    public boolean hasBufferedBytes() {
+        return end > start;
+    }
+
+    private HttpRequest pollFixedBody() {
+        if (end - bodyStart < contentLength) {
+            return null;
+        }
+        byte[] body = null;
+        if (contentLength > 0) {
+            body = new byte[contentLength];
+            System.arraycopy(buffer, bodyStart, body, 0, contentLength);
+        }
+        return complete(bodyStart + contentLength, body);
+    }
+
+    /*
+     * Decodes the buffered part of the chunked body , going on where the last read stopped.
+     * Chunk data is moved down to decodedEnd , the gap it leaves is closed by ensureSpace.
+     * Chunk extensions and trailers are skipped.
+     * */
+    private HttpRequest pollChunkedBody() throws HttpParseException {
+        while (true) {
+            if (chunkPhase == CHUNK_DATA) {
+                int available = Math.min(chunkRemaining, end - chunkPosition);
+                System.arraycopy(buffer, chunkPosition, buffer, decodedEnd, available);
+                decodedEnd += available;
+                chunkPosition += available;
+                chunkRemaining -= available;
+                if (chunkRemaining > 0) {
+                    return null;
+                }
+                chunkPhase = CHUNK_DATA_END;
+                continue;
+            }
+            int lineEnd = indexOfLineFeed(chunkPosition);
+            if (lineEnd < 0) {
+                return null;
+            }
+            int lineStart = chunkPosition;
+            chunkPosition = lineEnd + 1;
+            if (chunkPhase == CHUNK_DATA_END) {
+                chunkPhase = CHUNK_SIZE;
+            } else if (chunkPhase == CHUNK_SIZE) {
+                int chunkSize = parseChunkSize(lineStart, lineEnd);
+                if (decodedEnd - bodyStart + chunkSize > maxBodyBytes) {
+                    throw new HttpParseException("Request body exceeds " + maxBodyBytes + " bytes", ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE);
+                }
+                chunkRemaining = chunkSize;
+                chunkPhase = chunkSize == 0 ? CHUNK_TRAILER : CHUNK_DATA;
+            } else if (lineEnd == lineStart || (lineEnd == lineStart + 1 && buffer[lineStart] == '\r')) {
+                byte[] body = new byte[decodedEnd - bodyStart];
+                System.arraycopy(buffer, bodyStart, body, 0, body.length);
+                return complete(chunkPosition, body);
+            }
+        }
+    }
+
+    private HttpRequest complete(int requestEnd, byte[] body) {
+        HttpRequest head = pendingHead;
+        HttpRequest request = new HttpRequest(head.getMethod(), head.getTarget(), head.getVersion(),
+                head.getHead(), head.getHeaderOffsets(), head.getHeaderCount(), body);
+        pendingHead = null;
+        start = requestEnd;
+        scanPosition = requestEnd;
+        requestStart = end > start ? System.nanoTime() : 0;
+        return request;
+    }
+
+    private void readBodyFraming(HttpRequest head) throws HttpParseException {
+        chunked = head.headerEndsWithToken("Transfer-Encoding", "chunked");
+        if (!chunked && head.getHeader("Transfer-Encoding") != null) {
+            // Without chunked as the final coding the body length is unknown , RFC 9112 section 6.3
+            throw new HttpParseException("Transfer-Encoding without final chunked coding", ServerConstants.MALFORMED_REQUEST_RESPONSE);
+        }
+        contentLength = 0;
+        String length = chunked ? null : head.getHeader("Content-Length");
+        if (length != null) {
+            try {
+                long parsed = Long.parseLong(length.trim());
+                if (parsed < 0) {
+                    throw new NumberFormatException(length);
+                }
+                if (parsed > maxBodyBytes) {
+                    throw new HttpParseException("Request body exceeds " + maxBodyBytes + " bytes", ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE);
+                }
+                contentLength = (int) parsed;
+            } catch (NumberFormatException e) {
+                throw new HttpParseException("Invalid Content-Length " + length, ServerConstants.MALFORMED_REQUEST_RESPONSE);
+            }
+        }
+    }
+
+    /*
+     * Parses the request line and records the header offsets. The header block is copied once ,
+     * because the buffer is reused for the next request.
+     * */
+    private HttpRequest parseHead(int from, int to) {
+        byte[] head = new byte[to - from];
+        System.arraycopy(buffer, from, head, 0, head.length);
+        int length = trimLineBreaks(head);
+        int lineEnd = indexOf(head, (byte) '\n', 0, length);
+        int requestLineEnd = lineEnd < 0 ? length : trimCarriageReturn(head, lineEnd);
+        int methodEnd = indexOf(head, (byte) ' ', 0, requestLineEnd);
+        int targetStart = methodEnd < 0 ? requestLineEnd : skipSpaces(head, methodEnd, requestLineEnd);
+        int targetEnd = indexOf(head, (byte) ' ', targetStart, requestLineEnd);
+        if (targetEnd < 0) {
+            targetEnd = requestLineEnd;
+        }
+        String method = method(head, methodEnd < 0 ? requestLineEnd : methodEnd);
+        String target = new String(head, targetStart, targetEnd - targetStart, StandardCharsets.ISO_8859_1);
+        int versionStart = skipSpaces(head, targetEnd, requestLineEnd);
+        String version = version(head, versionStart, requestLineEnd);
+
+        int[] offsets = new int[32];
+        int count = 0;
+        int position = lineEnd < 0 ? length : lineEnd + 1;
+        while (position < length) {
+            int nextLineFeed = indexOf(head, (byte) '\n', position, length);
+            int lineStop = nextLineFeed < 0 ? length : nextLineFeed;
+            int lineLimit = trimCarriageReturn(head, lineStop);
+            int colon = indexOf(head, (byte) ':', position, lineLimit);
+            if (colon > position) {
+                if ((count + 1) * 4 > offsets.length) {
+                    int[] larger = new int[offsets.length * 2];
+                    System.arraycopy(offsets, 0, larger, 0, offsets.length);
+                    offsets = larger;
+                }
+                int valueStart = skipSpaces(head, colon + 1, lineLimit);
+                int valueEnd = lineLimit;
+                while (valueEnd > valueStart && (head[valueEnd - 1] == ' ' || head[valueEnd - 1] == '\t')) {
+                    valueEnd--;
+                }
+                offsets[count * 4] = position;
+                offsets[count * 4 + 1] = trimEnd(head, position, colon);
+                offsets[count * 4 + 2] = valueStart;
+                offsets[count * 4 + 3] = valueEnd;
+                count++;
+            }
+            position = lineStop + 1;
+        }
+        byte[] trimmedHead = head;
+        if (length != head.length) {
+            trimmedHead = new byte[length];
+            System.arraycopy(head, 0, trimmedHead, 0, length);
+        }
+        return new HttpRequest(method, target, version, trimmedHead, offsets, count, null);
+    }
+
+    /*
+     * Known methods map to their shared constant , so the common case allocates nothing.
+     * */
+    private static String method(byte[] head, int methodEnd) {
+        for (String known : HttpRequest.METHODS) {
+            if (matches(head, 0, methodEnd, known)) {
+                return known;
+            }
+        }
+        return new String(head, 0, methodEnd, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String version(byte[] head, int from, int to) {
+        if (matches(head, from, to, HttpRequest.HTTP_1_1)) {
+            return HttpRequest.HTTP_1_1;
+        }
+        if (matches(head, from, to, HttpRequest.HTTP_1_0)) {
+            return HttpRequest.HTTP_1_0;
+        }
+        return new String(head, from, to - from, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    private static boolean matches(byte[] bytes, int from, int to, String text) {
+        if (to - from != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes[from + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseChunkSize(int from, int lineEnd) throws HttpParseException {
+        int size = 0;
+        boolean digits = false;
+        for (int i = from; i < lineEnd; i++) {
+            int digit = Character.digit((char) buffer[i], 16);
+            if (digit < 0) {
+                break;
+            }
+            digits = true;
+            size = size * 16 + digit;
+            if (size > maxBodyBytes) {
+                throw new HttpParseException("Request body exceeds " + maxBodyBytes + " bytes", ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE);
+            }
+        }
+        if (!digits) {
+            throw new HttpParseException("Invalid chunk size", ServerConstants.MALFORMED_REQUEST_RESPONSE);
+        }
+        return size;
+    }
+
+    /*
+     * @Return int : Index just after the blank line ending the headers , -1 if not buffered yet
+     * */
+    private int findHeaderEnd() {
+        for (int i = Math.max(scanPosition, start + 1); i < end; i++) {
+            if (buffer[i] == '\n') {
+                if (buffer[i - 1] == '\n') {
+                    return i + 1;
+                }
+                if (i - start >= 3 && buffer[i - 1] == '\r' && buffer[i - 2] == '\n') {
+                    return i + 1;
+                }
+            }
+        }
+        scanPosition = Math.max(start, end - 1);
+        return -1;
+    }
+
+    /* Line breaks before a request line are ignored , as RFC 9112 allows. */
+    private void skipLeadingLineBreaks() {
+        while (start < end && (buffer[start] == '\r' || buffer[start] == '\n')) {
+            start++;
+        }
+        if (scanPosition < start) {
+            scanPosition = start;
+        }
+    }
+
+    private int indexOfLineFeed(int from) {
+        for (int i = from; i < end; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Makes room for more bytes : drops consumed bytes and the framing of a decoded chunked body first ,
+     * grows the buffer only when a single request needs it , up to the header and body limits.
+     * A request then holds its headers , its (decoded) body and at most one unparsed chunk line.
+     * */
+    private void ensureSpace() throws HttpParseException {
+        if (end < buffer.length) {
+            return;
+        }
+        if (chunked && pendingHead != null && chunkPosition > decodedEnd) {
+            System.arraycopy(buffer, chunkPosition, buffer, decodedEnd, end - chunkPosition);
+            end -= chunkPosition - decodedEnd;
+            chunkPosition = decodedEnd;
+            return;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            scanPosition -= start;
+            bodyStart -= start;
+            chunkPosition -= start;
+            decodedEnd -= start;
+            start = 0;
+            return;
+        }
+        long maxBufferSize = (long) maxHeaderBytes + maxBodyBytes + MAX_LINE_BYTES;
+        if (buffer.length >= maxBufferSize) {
+            throw new HttpParseException("Request exceeds " + maxBufferSize + " bytes", ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE);
+        }
+        byte[] larger = new byte[(int) Math.min(maxBufferSize, buffer.length * 2L)];
+        System.arraycopy(buffer, 0, larger, 0, end);
+        buffer = larger;
+        channelView = ByteBuffer.wrap(buffer);
+    }
+
+    private static int indexOf(byte[] bytes, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(byte[] bytes, int from, int to) {
+        int position = from;
+        while (position < to && (bytes[position] == ' ' || bytes[position] == '\t')) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        int position = to;
+        while (position > from && (bytes[position - 1] == ' ' || bytes[position - 1] == '\t')) {
+            position--;
+        }
+        return position;
+    }
+
+    private static int trimCarriageReturn(byte[] bytes, int lineEnd) {
+        return lineEnd > 0 && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    /* @Return int : Length of the header block without the trailing blank line */
+    private static int trimLineBreaks(byte[] head) {
+        int length = head.length;
+        while (length > 0 && (head[length - 1] == '\n' || head[length - 1] == '\r')) {
+            length--;
+        }
+        return length;
+    }
+}
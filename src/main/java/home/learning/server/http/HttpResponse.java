@@ -0,0 +1,79 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * A response ready to be written to a client. Instances are shared between requests ,
+ * per-connection write progress lives in the ResponseWriter.
+ * */
+public interface HttpResponse {
+
+    /*
+     * Writes the whole response to a blocking stream.
+     * @Throws IOException : If there is an error writing to the output stream
+     * */
+    void writeTo(OutputStream outputStream) throws IOException;
+
+    /*
+     * Writes the whole response to a blocking channel , like the channel of a blocking socket.
+     * A file body goes out with transferTo straight to the channel (sendfile) instead of being copied
+     * through a heap array , writeTo(OutputStream) stays the fallback for streams without a channel.
+     * @Throws IOException : If there is an error writing to the channel
+     * */
+    default void writeTo(WritableByteChannel channel) throws IOException {
+        try (ResponseWriter writer = newWriter()) {
+            while (!writer.writeTo(channel)) {
+                // A blocking channel takes everything , a short write only means one more round.
+            }
+        }
+    }
+
+    /*
+     * @Return ResponseWriter : New cursor over this response for non-blocking channel writes
+     * @Throws IOException : If the body source cannot be opened
+     * */
+    ResponseWriter newWriter() throws IOException;
+
+    /* Status code of the status line , like 200. */
+    int getStatusCode();
+
+    /* Number of bytes written to the client , status line and headers included. */
+    long getSize();
+
+    /*
+     * The answer to a HEAD request : the same status line and headers , Content-Length still the size of the body ,
+     * but no body , so a kept-alive client does not read it as the next response.
+     * @Return HttpResponse : Response writing only the status line and headers
+     * */
+    HttpResponse withoutBody();
+
+    /*
+     * Reads the status code from an encoded status line like "HTTP/1.1 200 OK".
+     * @Return int : The code , 0 if the bytes do not start with a status line
+     * */
+    static int statusCode(byte[] head) {
+        int code = 0;
+        for (int i = 9; i < 12 && i < head.length; i++) {
+            if (head[i] < '0' || head[i] > '9') {
+                return 0;
+            }
+            code = code * 10 + (head[i] - '0');
+        }
+        return code;
+    }
+
+    /*
+     * @Param head : Encoded status line and headers , possibly followed by body bytes
+     * @Return int : Length up to and including the blank line ending the headers , the whole length if there is none
+     * */
+    static int headerLength(byte[] head) {
+        for (int i = 3; i < head.length; i++) {
+            if (head[i] == '\n' && head[i - 1] == '\r' && head[i - 2] == '\n' && head[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return head.length;
+    }
+}
@@ -0,0 +1,176 @@
+package home.learning.server.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * 206 Partial Content response sending byte ranges of a body , each preceded by a separator :
+ * nothing around a single range , the part headers of a multipart/byteranges body around several.
+ * The ranges are sent from a read only buffer view or with FileChannel.transferTo from their file position ,
+ * so only the asked bytes are ever read and a file is never loaded whole.
+ * */
+public final class RangeResponse implements HttpResponse {
+
+    private final byte[] head;
+    private final ByteBuffer content;
+    private final Path file;
+    private final long[] ranges;
+    private final byte[][] separators;
+
+    private RangeResponse(byte[] head, ByteBuffer content, Path file, long[] ranges, byte[][] separators) {
+        this.head = head;
+        this.content = content;
+        this.file = file;
+        this.ranges = ranges;
+        this.separators = separators;
+    }
+
+    /*
+     * @Param head : Status line and headers
+     * @Param content : Whole body , read only
+     * @Param ranges : First and last (inclusive) position of every range , see ByteRanges.parse
+     * @Param separators : Bytes sent before every range , plus the bytes sent after the last one
+     * */
+    public static RangeResponse ofBuffer(byte[] head, ByteBuffer content, long[] ranges, byte[][] separators) {
+        return new RangeResponse(head, content.slice(), null, ranges, separators);
+    }
+
+    /*
+     * @Param file : File holding the whole body
+     * */
+    public static RangeResponse ofFile(byte[] head, Path file, long[] ranges, byte[][] separators) {
+        return new RangeResponse(head, null, file, ranges, separators);
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        outputStream.write(head);
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        try (FileChannel fileChannel = file != null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            for (int i = 0; i < ranges.length / 2; i++) {
+                outputStream.write(separators[i]);
+                long position = ranges[i * 2];
+                long end = ranges[i * 2 + 1] + 1;
+                if (fileChannel == null) {
+                    ByteBuffer view = region(i);
+                    while (view.hasRemaining()) {
+                        target.write(view);
+                    }
+                    continue;
+                }
+                while (position < end) {
+                    long transferred = fileChannel.transferTo(position, end - position, target);
+                    if (transferred <= 0) {
+                        throw new IOException(file + " became shorter than " + end + " bytes while it was sent");
+                    }
+                    position += transferred;
+                }
+            }
+        }
+        outputStream.write(separators[separators.length - 1]);
+    }
+
+    @Override
+    public ResponseWriter newWriter() throws IOException {
+        return new RangeWriter(file != null ? FileChannel.open(file, StandardOpenOption.READ) : null);
+    }
+
+    private ByteBuffer region(int index) {
+        ByteBuffer view = content.duplicate();
+        view.limit((int) ranges[index * 2 + 1] + 1);
+        view.position((int) ranges[index * 2]);
+        return view;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return HttpResponse.statusCode(head);
+    }
+
+    @Override
+    public HttpResponse withoutBody() {
+        return EncodedResponse.ofHead(head);
+    }
+
+    @Override
+    public long getSize() {
+        long size = head.length;
+        for (byte[] separator : separators) {
+            size += separator.length;
+        }
+        for (int i = 0; i < ranges.length; i += 2) {
+            size += ranges[i + 1] - ranges[i] + 1;
+        }
+        return size;
+    }
+
+    /*
+     * Writes the headers , then every separator and range in turn , ending with the last separator.
+     * Step 2 * i is the separator before range i and step 2 * i + 1 the range itself.
+     * */
+    private final class RangeWriter implements ResponseWriter {
+
+        private final ByteBuffer headBuffer = ByteBuffer.wrap(head);
+        private final FileChannel fileChannel;
+        private int step;
+        private ByteBuffer current;
+        /* Position of the next byte of the file range being sent , -1 before it started. */
+        private long position = -1;
+
+        private RangeWriter(FileChannel fileChannel) {
+            this.fileChannel = fileChannel;
+        }
+
+        @Override
+        public boolean writeTo(WritableByteChannel channel) throws IOException {
+            if (headBuffer.hasRemaining()) {
+                channel.write(headBuffer);
+                if (headBuffer.hasRemaining()) {
+                    return false;
+                }
+            }
+            while (step <= ranges.length) {
+                int range = step / 2;
+                if (step % 2 == 0 || fileChannel == null) {
+                    if (current == null) {
+                        current = step % 2 == 0 ? ByteBuffer.wrap(separators[range]) : region(range);
+                    }
+                    channel.write(current);
+                    if (current.hasRemaining()) {
+                        return false;
+                    }
+                    current = null;
+                } else {
+                    if (position < 0) {
+                        position = ranges[range * 2];
+                    }
+                    long end = ranges[range * 2 + 1] + 1;
+                    long transferred = fileChannel.transferTo(position, end - position, channel);
+                    if (transferred < 0 || (transferred == 0 && position >= fileChannel.size())) {
+                        throw new IOException(file + " became shorter than " + end + " bytes while it was sent");
+                    }
+                    position += transferred;
+                    if (position < end) {
+                        return false;
+                    }
+                    position = -1;
+                }
+                step++;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileChannel != null) {
+                fileChannel.close();
+            }
+        }
+    }
+}
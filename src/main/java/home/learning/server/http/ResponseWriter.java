@@ -0,0 +1,23 @@
+package home.learning.server.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * Write progress of one response on one connection.
+ * */
+public interface ResponseWriter extends Closeable {
+
+    /*
+     * Writes as much as the channel accepts right now.
+     * @Return boolean : true once the whole response was written
+     * @Throws IOException : If there is an error writing to the channel
+     * */
+    boolean writeTo(WritableByteChannel channel) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        // Nothing to release by default.
+    }
+}
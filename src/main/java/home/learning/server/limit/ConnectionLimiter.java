@@ -0,0 +1,52 @@
+package home.learning.server.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Bounds the number of connections served at the same time.
+ * The acceptor asks before handing a connection to a worker or an event loop ,
+ * an over-limit connection gets a quick 503 instead of waiting in a queue.
+ * */
+public class ConnectionLimiter {
+
+    private final int maxConnections;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /*
+     * @Param maxConnections : Max open connections , 0 or less means no limit
+     * */
+    public ConnectionLimiter(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /*
+     * @Return boolean : true if the connection may be served , release() has to follow when it closes
+     * */
+    public boolean tryAcquire() {
+        if (maxConnections <= 0) {
+            connections.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = connections.get();
+            if (current >= maxConnections) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        connections.decrementAndGet();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+}
@@ -0,0 +1,111 @@
+package home.learning.server.limit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+ * Token bucket rate limit per client address.
+ * Every client gets a bucket of "burst" tokens refilled at "ratePerSecond" , each request takes one.
+ * Buckets are refilled lazily when a request arrives , so idle clients cost nothing but their map entry ,
+ * and entries of clients idle long enough to be full again are swept once the map grows.
+ * */
+public class RateLimiter {
+
+    private static final int SWEEP_THRESHOLD = 4096;
+
+    private final double ratePerNano;
+    private final double burst;
+    private final LongSupplier clock;
+    private final Map<Object, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /*
+     * @Param ratePerSecond : Sustained requests per second per client , 0 or less disables the limit
+     * @Param burst : Requests a client may send at once , at least 1
+     * */
+    public RateLimiter(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    /*
+     * @Param clock : Source of the current time in nanoseconds
+     * */
+    public RateLimiter(double ratePerSecond, int burst, LongSupplier clock) {
+        this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return ratePerNano > 0;
+    }
+
+    /*
+     * @Param client : Client key , like the remote InetAddress
+     * @Return boolean : true if the request may be served , false if the client is over its limit
+     * */
+    public boolean tryAcquire(Object client) {
+        if (!isEnabled()) {
+            return true;
+        }
+        long now = clock.getAsLong();
+        Bucket bucket = buckets.get(client);
+        if (bucket == null) {
+            if (buckets.size() >= SWEEP_THRESHOLD) {
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(client, key -> new Bucket(burst, now));
+        }
+        return bucket.tryTake(now, ratePerNano, burst);
+    }
+
+    /*
+     * Removes the buckets which refilled completely , a new bucket would be in the same state.
+     * */
+    private void sweep(long now) {
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(now, ratePerNano, burst)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    int getClientCount() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private synchronized boolean tryTake(long now, double ratePerNano, double burst) {
+            refill(now, ratePerNano, burst);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized boolean isFull(long now, double ratePerNano, double burst) {
+            refill(now, ratePerNano, burst);
+            return tokens >= burst;
+        }
+
+        private void refill(long now, double ratePerNano, double burst) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package home.learning.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Fixed-bucket log-linear latency histogram , in microseconds.
+ * Every power of two range is split into SUB_BUCKETS linear buckets , so the relative error
+ * stays below 1 / SUB_BUCKETS (12.5 %) from one microsecond up to about 18 minutes.
+ * Recording is a few shifts and one atomic increment , nothing is allocated.
+ * */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    /*
+     * @Param nanos : Measured duration in nanoseconds
+     * */
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /*
+     * @Param micros : Measured duration in microseconds , negative values count as 0
+     * */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+    }
+
+    /*
+     * Values below SUB_BUCKETS get a bucket each. Above , the top SUB_BUCKET_BITS + 1 bits select the bucket.
+     * */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /* Highest value counted in the bucket. */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /* Sum of the recorded values in microseconds. */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /*
+     * @Param quantile : Between 0 and 1 , like 0.99
+     * @Return long : Upper bound in microseconds of the bucket holding the quantile , 0 if nothing was recorded
+     * */
+    public long getValueAtQuantile(double quantile) {
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    /* Upper bound in microseconds of the highest non empty bucket. */
+    public long getMax() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (buckets.get(i) > 0) {
+                return bucketUpperBound(i);
+            }
+        }
+        return 0;
+    }
+}
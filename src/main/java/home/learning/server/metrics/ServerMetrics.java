@@ -0,0 +1,228 @@
+package home.learning.server.metrics;
+
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.util.AsyncLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Request , connection and cache metrics of one server.
+ * Counters are LongAdders , so request threads do not contend on a shared cache line.
+ * Recording a request looks its route up by the route key already held by the request
+ * and its status in a fixed array , so nothing is allocated once a route / status pair was seen.
+ * Snapshots are rendered as JSON or in the Prometheus text format.
+ * */
+public final class ServerMetrics {
+
+    /* Route key of requests which matched no mapping. */
+    public static final String UNMATCHED_ROUTE = "unmatched";
+    /* Route key of requests which could not be parsed or are not HTTP. */
+    public static final String INVALID_ROUTE = "invalid";
+    /* Route key of connections and requests turned away by admission control or the rate limit. */
+    public static final String REJECTED_ROUTE = "rejected";
+    /* Route key of the metrics endpoint itself. */
+    public static final String METRICS_ROUTE = "metrics";
+    /* Route key of unmapped requests forwarded to the upstream in proxy mode. */
+    public static final String PROXY_ROUTE = "proxy";
+
+    private static final int MAX_STATUS = 600;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final long startTime = System.currentTimeMillis();
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final LongAdder activeConnections = new LongAdder();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    public void connectionOpened() {
+        activeConnections.increment();
+        totalConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /*
+     * Records one answered request.
+     * @Param routeKey : Key of the matched route , or one of the reserved route keys
+     * @Param status : Status code of the response
+     * @Param nanos : Time from the parsed request to the last byte written
+     * @Param bytes : Bytes written for the response
+     * */
+    public void record(String routeKey, int status, long nanos, long bytes) {
+        RouteMetrics route = routes.get(routeKey);
+        if (route == null) {
+            route = routes.computeIfAbsent(routeKey, RouteMetrics::new);
+        }
+        route.get(status).record(nanos, bytes);
+        bytesWritten.add(bytes);
+    }
+
+    public long getActiveConnections() {
+        return activeConnections.sum();
+    }
+
+    public long getTotalConnections() {
+        return totalConnections.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /*
+     * @Return long : Number of requests recorded for the route and status , 0 if none
+     * */
+    public long getRequestCount(String routeKey, int status) {
+        RouteMetrics route = routes.get(routeKey);
+        StatusMetrics metrics = route != null && status >= 0 && status < MAX_STATUS ? route.statuses.get(status) : null;
+        return metrics != null ? metrics.latency.getCount() : 0;
+    }
+
+    /*
+     * @Param cache : Cache of the JSON files , null if it was not created yet
+     * @Return String : Snapshot of every metric as a JSON object
+     * */
+    public String toJson(JsonFileCache cache) {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"uptimeSeconds\":").append(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startTime))
+                .append(",\"connections\":{\"active\":").append(getActiveConnections())
+                .append(",\"total\":").append(getTotalConnections())
+                .append("},\"bytesWritten\":").append(getBytesWritten());
+        long hits = cache != null ? cache.getHitCount() : 0;
+        long misses = cache != null ? cache.getMissCount() : 0;
+        json.append(",\"cache\":{\"hits\":").append(hits)
+                .append(",\"misses\":").append(misses)
+                .append(",\"hitRatio\":").append(format(hitRatio(hits, misses)))
+                .append(",\"usedBytes\":").append(cache != null ? cache.getUsedBytes() : 0)
+                .append("},\"droppedLogMessages\":").append(AsyncLogger.getLogger().getDroppedCount())
+                .append(",\"routes\":[");
+        boolean first = true;
+        for (RouteMetrics route : sortedRoutes()) {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                StatusMetrics metrics = route.statuses.get(status);
+                if (metrics == null) {
+                    continue;
+                }
+                LatencyHistogram latency = metrics.latency;
+                long count = latency.getCount();
+                json.append(first ? "" : ",")
+                        .append("{\"route\":\"").append(escape(route.key))
+                        .append("\",\"status\":").append(status)
+                        .append(",\"count\":").append(count)
+                        .append(",\"bytes\":").append(metrics.bytes.sum())
+                        .append(",\"latencyMicros\":{\"mean\":").append(count > 0 ? latency.getSum() / count : 0);
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    json.append(",\"").append(QUANTILE_NAMES[i]).append("\":").append(latency.getValueAtQuantile(QUANTILES[i]));
+                }
+                json.append(",\"max\":").append(latency.getMax()).append("}}");
+                first = false;
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    /*
+     * @Param cache : Cache of the JSON files , null if it was not created yet
+     * @Return String : Snapshot of every metric in the Prometheus text exposition format
+     * */
+    public String toPrometheus(JsonFileCache cache) {
+        StringBuilder text = new StringBuilder(2048);
+        metric(text, "server_active_connections", "gauge", "Open client connections", getActiveConnections());
+        metric(text, "server_connections_total", "counter", "Accepted client connections", getTotalConnections());
+        metric(text, "server_bytes_written_total", "counter", "Response bytes written", getBytesWritten());
+        long hits = cache != null ? cache.getHitCount() : 0;
+        long misses = cache != null ? cache.getMissCount() : 0;
+        metric(text, "server_cache_hits_total", "counter", "JSON file cache hits", hits);
+        metric(text, "server_cache_misses_total", "counter", "JSON file cache misses", misses);
+        text.append("# HELP server_cache_hit_ratio JSON file cache hit ratio\n# TYPE server_cache_hit_ratio gauge\n")
+                .append("server_cache_hit_ratio ").append(format(hitRatio(hits, misses))).append('\n');
+        metric(text, "server_log_dropped_total", "counter", "Log messages dropped on a full buffer", AsyncLogger.getLogger().getDroppedCount());
+
+        text.append("# HELP server_request_duration_seconds Time from the parsed request to the last byte written\n")
+                .append("# TYPE server_request_duration_seconds summary\n");
+        for (RouteMetrics route : sortedRoutes()) {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                StatusMetrics metrics = route.statuses.get(status);
+                if (metrics == null) {
+                    continue;
+                }
+                String labels = "route=\"" + escape(route.key) + "\",status=\"" + status + "\"";
+                LatencyHistogram latency = metrics.latency;
+                for (double quantile : QUANTILES) {
+                    text.append("server_request_duration_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(format(latency.getValueAtQuantile(quantile) / 1e6)).append('\n');
+                }
+                text.append("server_request_duration_seconds_sum{").append(labels).append("} ").append(format(latency.getSum() / 1e6)).append('\n')
+                        .append("server_request_duration_seconds_count{").append(labels).append("} ").append(latency.getCount()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private List<RouteMetrics> sortedRoutes() {
+        List<RouteMetrics> sorted = new ArrayList<>(routes.values());
+        Collections.sort(sorted, (a, b) -> a.key.compareTo(b.key));
+        return sorted;
+    }
+
+    private static void metric(StringBuilder text, String name, String type, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n')
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static double hitRatio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /* Metrics of one route , one slot per status code. */
+    private static final class RouteMetrics {
+
+        private final String key;
+        private final AtomicReferenceArray<StatusMetrics> statuses = new AtomicReferenceArray<>(MAX_STATUS);
+
+        private RouteMetrics(String key) {
+            this.key = key;
+        }
+
+        private StatusMetrics get(int status) {
+            int index = status >= 0 && status < MAX_STATUS ? status : 0;
+            StatusMetrics metrics = statuses.get(index);
+            if (metrics == null) {
+                statuses.compareAndSet(index, null, new StatusMetrics());
+                metrics = statuses.get(index);
+            }
+            return metrics;
+        }
+    }
+
+    private static final class StatusMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder bytes = new LongAdder();
+
+        private void record(long nanos, long bytesWritten) {
+            latency.recordNanos(nanos);
+            bytes.add(bytesWritten);
+        }
+    }
+}
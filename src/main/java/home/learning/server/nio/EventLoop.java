@@ -0,0 +1,179 @@
+package home.learning.server.nio;
+
+import home.learning.server.Server;
+import home.learning.server.util.AsyncLogger;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One selector thread. Channels are handed over by the acceptor through a queue
+ * and registered by the loop thread itself , so the selector is only touched from one thread.
+ * Other threads , like the timer wheel , hand work to the loop the same way with execute().
+ * */
+class EventLoop implements Runnable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private final Server server;
+    private final Selector selector;
+    private long lastIdleCheck = System.currentTimeMillis();
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    EventLoop(Server server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    void register(SocketChannel channel) {
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /*
+     * Runs the task on the loop thread , after the current select.
+     * */
+    void execute(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(IDLE_CHECK_INTERVAL);
+                registerPendingChannels();
+                runPendingTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+                closeIdleConnections();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.error("Event loop stopped", e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            NioConnection connection = null;
+            try {
+                channel.configureBlocking(false);
+                connection = new NioConnection(server, this, channel);
+                channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                logger.error("Unable to register the connection", e);
+                if (connection != null) {
+                    connection.close(null);
+                } else {
+                    closeQuietly(channel);
+                    server.releaseConnection();
+                }
+            }
+        }
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Event loop task failed", e);
+            }
+        }
+    }
+
+    private void handleKey(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable(key);
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.onWritable(key);
+            }
+        } catch (Exception e) {
+            connection.close(key);
+        }
+    }
+
+    /*
+     * Closes keep-alive connections which stayed idle longer than the configured timeout ,
+     * and answers 408 to connections whose request did not arrive completely within the request timeout.
+     * Runs at most once per second , so the scan cost does not grow with the request rate.
+     * */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL) {
+            return;
+        }
+        lastIdleCheck = now;
+        long nanoTime = System.nanoTime();
+        long requestTimeout = TimeUnit.MILLISECONDS.toNanos(server.getRequestTimeout());
+        for (SelectionKey key : selector.keys()) {
+            NioConnection connection = (NioConnection) key.attachment();
+            if (!key.isValid()) {
+                continue;
+            }
+            if (connection.isRequestTimedOut(nanoTime, requestTimeout)) {
+                try {
+                    connection.onRequestTimeout(key);
+                } catch (IOException e) {
+                    connection.close(key);
+                }
+            } else if (connection.isIdle(now, server.getKeepAliveTimeout())) {
+                connection.close(key);
+            }
+        }
+    }
+
+    void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).close(key);
+        }
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            closeQuietly(channel);
+            server.releaseConnection();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.error("Unable to close the selector", e);
+        }
+    }
+
+    private void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to do for this connection.
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package home.learning.server.nio;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.fault.FaultRule;
+import home.learning.server.http.HttpParseException;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpRequestParser;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.http.ResponseWriter;
+import home.learning.server.util.AsyncLogger;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+ * Per-connection state machine of the non-blocking engine.
+ * READING collects bytes until the request and its body are complete (or end of stream) ,
+ * WRITING drains the response and then goes back to READING for the next request
+ * of a keep-alive connection , CLOSED releases the channel.
+ * ANSWERING waits for a response found on a worker thread , for requests which may block like a store write ,
+ * and DELAYED holds a response a fault rule delays : in both the channel is registered for nothing and
+ * the connection goes back to its event loop once the response is ready or due.
+ * Pipelined requests already in the parser buffer are answered one after the other , in order.
+ * A malformed or too large request is answered with its error response and closes the connection.
+ * */
+class NioConnection {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    enum State { READING, ANSWERING, DELAYED, WRITING, CLOSED }
+
+    private final Server server;
+    private final EventLoop eventLoop;
+    private final SocketChannel channel;
+    private final HttpRequestParser parser;
+    private ResponseWriter responseWriter;
+    private HttpRequest request;
+    private HttpResponse response;
+    private long requestStartTime;
+    private final Object client;
+    private State state = State.READING;
+    private boolean keepAlive;
+    private boolean inputClosed;
+    private int servedRequests;
+    private long lastActivity = System.currentTimeMillis();
+
+    NioConnection(Server server, EventLoop eventLoop, SocketChannel channel) {
+        this.server = server;
+        this.eventLoop = eventLoop;
+        this.channel = channel;
+        this.parser = server.newRequestParser();
+        this.client = channel.socket().getInetAddress();
+        server.getMetrics().connectionOpened();
+    }
+
+    void onReadable(SelectionKey key) throws IOException {
+        if (state != State.READING) {
+            return;
+        }
+        try {
+            int read = parser.readFrom(channel);
+            if (read < 0) {
+                inputClosed = true;
+            } else if (read > 0) {
+                lastActivity = System.currentTimeMillis();
+            }
+            handleBufferedRequest(key);
+        } catch (HttpParseException e) {
+            reject(key, e);
+        }
+    }
+
+    /*
+     * Answers the next request in the parser buffer if it is complete.
+     * When the client closed its side , whatever was received is taken as the last request.
+     * */
+    private void handleBufferedRequest(SelectionKey key) throws IOException {
+        HttpRequest request = parser.poll();
+        if (request == null && inputClosed) {
+            request = parser.finish();
+            if (request == null) {
+                close(key);
+                return;
+            }
+        }
+        if (request != null) {
+            handleRequest(key, request);
+        }
+    }
+
+    /*
+     * Sends the error response of an invalid request , then closes the connection.
+     * */
+    private void reject(SelectionKey key, HttpParseException e) throws IOException {
+        keepAlive = false;
+        request = null;
+        response = e.getResponse();
+        requestStartTime = System.nanoTime();
+        responseWriter = response.newWriter();
+        state = State.WRITING;
+        key.interestOps(SelectionKey.OP_WRITE);
+        onWritable(key);
+    }
+
+    void onWritable(SelectionKey key) throws IOException {
+        if (state != State.WRITING) {
+            return;
+        }
+        lastActivity = System.currentTimeMillis();
+        if (!responseWriter.writeTo(channel)) {
+            return;
+        }
+        responseWriter.close();
+        responseWriter = null;
+        server.recordRequest(request, response, requestStartTime);
+        request = null;
+        response = null;
+        if (!keepAlive || inputClosed) {
+            close(key);
+            return;
+        }
+        state = State.READING;
+        key.interestOps(SelectionKey.OP_READ);
+        try {
+            handleBufferedRequest(key);
+        } catch (HttpParseException e) {
+            reject(key, e);
+        }
+    }
+
+    /*
+     * @Return boolean : true if no byte was read or written for longer than the timeout
+     * */
+    boolean isIdle(long now, int idleTimeout) {
+        return state == State.READING && now - lastActivity > idleTimeout;
+    }
+
+    /*
+     * @Return boolean : true if part of a request arrived , but not all of it within the timeout
+     * */
+    boolean isRequestTimedOut(long nanoTime, long timeoutNanos) {
+        return state == State.READING && timeoutNanos > 0 && parser.isTimedOut(nanoTime, timeoutNanos);
+    }
+
+    /*
+     * Answers a request which did not arrive in time with 408 , then closes the connection.
+     * */
+    void onRequestTimeout(SelectionKey key) throws IOException {
+        reject(key, new HttpParseException("Request not received in time", ServerConstants.REQUEST_TIMEOUT_RESPONSE));
+    }
+
+    /*
+     * Starts writing the answer of a parsed request , found exactly like the blocking engine does.
+     * */
+    private void handleRequest(SelectionKey key, HttpRequest request) throws IOException {
+        keepAlive = request.isKeepAlive() && ++servedRequests < server.getMaxKeepAliveRequests();
+        this.request = request;
+        requestStartTime = System.nanoTime();
+        if (server.isBlockingRequest(request)) {
+            answerOnWorker(key, request);
+            return;
+        }
+        response = server.getResponse(request, client);
+        respond(key);
+    }
+
+    /*
+     * Finds the response on a worker thread , the event loop goes on with the other connections meanwhile.
+     * A full worker queue is answered with 503 , like the blocking engine answers a connection it cannot take.
+     * */
+    private void answerOnWorker(SelectionKey key, HttpRequest request) throws IOException {
+        state = State.ANSWERING;
+        key.interestOps(0);
+        try {
+            server.executeBlocking(() -> {
+                try {
+                    HttpResponse answer = server.getResponse(request, client);
+                    eventLoop.execute(() -> answered(key, answer));
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Unable to answer " + request.getTarget(), e);
+                    eventLoop.execute(() -> close(key));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            keepAlive = false;
+            response = ServerConstants.SERVICE_UNAVAILABLE_RESPONSE;
+            startWriting(key);
+        }
+    }
+
+    /*
+     * Goes on with the response found on a worker thread , on the event loop thread.
+     * */
+    private void answered(SelectionKey key, HttpResponse answer) {
+        if (state != State.ANSWERING) {
+            return;
+        }
+        response = answer;
+        try {
+            respond(key);
+        } catch (IOException | RuntimeException e) {
+            close(key);
+        }
+    }
+
+    /*
+     * Applies the fault rule of the route , then writes the response.
+     * */
+    private void respond(SelectionKey key) throws IOException {
+        FaultRule fault = request.getFaultRule();
+        if (fault != null && fault.nextDrops()) {
+            close(key);
+            return;
+        }
+        long delay = fault != null ? fault.nextDelayMillis() : 0;
+        if (delay > 0) {
+            state = State.DELAYED;
+            key.interestOps(0);
+            server.getTimerWheel().schedule(delay, () -> eventLoop.execute(() -> resume(key)));
+            return;
+        }
+        startWriting(key);
+    }
+
+    /*
+     * Writes the delayed response once it is due , on the event loop thread.
+     * */
+    private void resume(SelectionKey key) {
+        if (state != State.DELAYED) {
+            return;
+        }
+        try {
+            startWriting(key);
+        } catch (IOException | RuntimeException e) {
+            close(key);
+        }
+    }
+
+    private void startWriting(SelectionKey key) throws IOException {
+        responseWriter = response.newWriter();
+        state = State.WRITING;
+        key.interestOps(SelectionKey.OP_WRITE);
+        onWritable(key);
+    }
+
+    void close(SelectionKey key) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        state = State.CLOSED;
+        server.getMetrics().connectionClosed();
+        server.releaseConnection();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            if (responseWriter != null) {
+                responseWriter.close();
+            }
+            channel.close();
+        } catch (IOException ignored) {
+            // The peer is gone already.
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package home.learning.server.nio;
+
+import home.learning.server.LogLevel;
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.util.AcceptBackoff;
+import home.learning.server.util.AsyncLogger;
+import home.learning.server.util.ServerUtil;
+import home.learning.server.util.SocketSettings;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Non-blocking alternative to the ServerSocket engine.
+ * The acceptors (server.acceptors , one by default) hand every accepted channel round robin to N selector loops ,
+ * each loop drives all of its connections with a small per-connection state machine.
+ * */
+public class NioServerEngine {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private final Server server;
+    private final EventLoop[] eventLoops;
+    private final SocketSettings socketSettings;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final List<Thread> acceptors = new ArrayList<>();
+    private volatile List<ServerSocketChannel> serverChannels = Collections.emptyList();
+
+    /*
+     * @Param server : The server answering the parsed requests
+     * @Param loopCount : Number of selector loops , 0 or less means one per core
+     * */
+    public NioServerEngine(Server server, int loopCount) {
+        this.server = server;
+        int count = loopCount > 0 ? loopCount : Runtime.getRuntime().availableProcessors();
+        this.eventLoops = new EventLoop[count];
+        this.socketSettings = server.getSocketSettings();
+    }
+
+    /*
+     * Opens the listening channels and starts the selector loops.
+     * @Param port : Port to listen on , 0 picks an ephemeral port
+     * @Throws IOException : If the port cannot be bound or a selector cannot be opened
+     * */
+    public void bind(int port) throws IOException {
+        serverChannels = socketSettings.openServerChannels(port);
+        ThreadFactory threadFactory = new ServerUtil().getThreadFactory("server-nio");
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop(server);
+            threadFactory.newThread(eventLoops[i]).start();
+        }
+    }
+
+    /*
+     * Blocks accepting connections until the engine is closed.
+     * The extra acceptors run on their own threads , each on its own SO_REUSEPORT listener when available.
+     * */
+    public void acceptConnections() {
+        List<ServerSocketChannel> channels = serverChannels;
+        ThreadFactory threadFactory = new ServerUtil().getThreadFactory("server-nio-acceptor");
+        for (int i = 1; i < socketSettings.getAcceptors(); i++) {
+            ServerSocketChannel serverChannel = channels.get(i % channels.size());
+            Thread acceptor = threadFactory.newThread(() -> acceptConnections(serverChannel));
+            acceptor.start();
+            acceptors.add(acceptor);
+        }
+        acceptConnections(channels.get(0));
+        for (Thread acceptor : acceptors) {
+            try {
+                acceptor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void acceptConnections(ServerSocketChannel serverChannel) {
+        AcceptBackoff backoff = new AcceptBackoff();
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                backoff.onSuccess();
+                if (!server.admitConnection()) {
+                    reject(channel);
+                    continue;
+                }
+                configure(channel);
+                eventLoops[Math.floorMod(nextLoop.getAndIncrement(), eventLoops.length)].register(channel);
+            } catch (IOException e) {
+                if (serverChannel.isOpen()) {
+                    backoff.onFailure(e);
+                }
+            }
+        }
+    }
+
+    private void configure(SocketChannel channel) {
+        try {
+            socketSettings.configure(channel.socket());
+        } catch (SocketException e) {
+            logger.log(LogLevel.DEBUG, "Unable to configure the accepted channel : {}", e.getMessage());
+        }
+    }
+
+    /*
+     * Answers a connection over server.connections.max with 503 and Retry-After , before any event loop sees it.
+     * The channel is still blocking and the response fits in the socket send buffer.
+     * */
+    private void reject(SocketChannel channel) {
+        long startTime = System.nanoTime();
+        try {
+            ByteBuffer response = ServerConstants.SERVICE_UNAVAILABLE_RESPONSE.asReadOnlyBuffer();
+            while (response.hasRemaining()) {
+                channel.write(response);
+            }
+            server.recordRejected(ServerConstants.SERVICE_UNAVAILABLE_RESPONSE, startTime);
+        } catch (IOException e) {
+            // The client is gone already.
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to do for this connection.
+            }
+        }
+    }
+
+    public int getLocalPort() {
+        List<ServerSocketChannel> channels = serverChannels;
+        return channels.isEmpty() ? -1 : channels.get(0).socket().getLocalPort();
+    }
+
+    /*
+     * Stops accepting , then stops every loop and closes its connections.
+     * */
+    public void close() {
+        for (ServerSocketChannel serverChannel : serverChannels) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                logger.error("Unable to close the server channel", e);
+            }
+        }
+        for (EventLoop eventLoop : eventLoops) {
+            if (eventLoop != null) {
+                eventLoop.close();
+            }
+        }
+    }
+}
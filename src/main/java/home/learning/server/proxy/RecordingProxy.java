@@ -0,0 +1,275 @@
+package home.learning.server.proxy;
+
+import home.learning.server.LogLevel;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.util.AsyncLogger;
+import home.learning.server.util.ServerUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Record and replay proxy for the requests no mapping matches.
+ * They are forwarded to the real back end and its live answer is returned. The first 200 JSON answer
+ * to a GET of a path is recorded : the "server-proxy" thread writes it to the JSON directory as
+ * "recorded-<path>.json" , see getFileName , and hands the new "GET@<path>" mapping to the MappingRecorder , from then on
+ * the path is served like any fixture without going to the back end. The recorded answer is only held in memory
+ * while its mapping is being installed , the route table serves it afterwards.
+ * A back end which cannot be reached or answers 502 , 503 or 504 is marked down : requests are answered
+ * 502 right away (recorded paths keep working) while the same thread probes the health path until it answers.
+ * */
+public class RecordingProxy implements Closeable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private static final String FILE_PREFIX = "recorded-";
+    private static final String FILE_SUFFIX = ".json";
+
+    /*
+     * Makes a recorded fixture part of the route mappings.
+     * */
+    public interface MappingRecorder {
+        /*
+         * @Param mappingKey : Key of the new mapping , like "GET@users/1"
+         * @Param fileName : Recorded file inside the JSON directory
+         * @Throws IOException : If the mapping cannot be saved
+         * */
+        void record(String mappingKey, String fileName) throws IOException;
+    }
+
+    private final UpstreamClient client;
+    private final Path directory;
+    private final MappingRecorder mappingRecorder;
+    private final String healthPath;
+    private final long healthIntervalMillis;
+    /* Answers of the recordings whose mapping is being installed , by path. */
+    private final Map<String, EncodedResponse> recordings = new ConcurrentHashMap<>();
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final LongAdder forwarded = new LongAdder();
+    private volatile boolean upstreamUp = true;
+
+    /*
+     * @Param client : Client of the back end
+     * @Param directory : JSON directory receiving the recordings , null to only forward
+     * @Param mappingRecorder : Receives the mapping of every recording
+     * @Param healthPath : Path probed while the back end is down
+     * @Param healthIntervalMillis : Time between two probes
+     * */
+    public RecordingProxy(UpstreamClient client, Path directory, MappingRecorder mappingRecorder, String healthPath, long healthIntervalMillis) {
+        this.client = client;
+        this.directory = directory;
+        this.mappingRecorder = mappingRecorder;
+        this.healthPath = healthPath;
+        this.healthIntervalMillis = Math.max(1, healthIntervalMillis);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ServerUtil().getThreadFactory("server-proxy"));
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = scheduler;
+    }
+
+    /*
+     * @Param request : A request no mapping matches
+     * @Return HttpResponse : The recorded answer , the live answer of the back end , or 502 if it is down
+     * */
+    public HttpResponse getResponse(HttpRequest request) {
+        boolean head = "HEAD".equals(request.getMethod());
+        String path = getPath(request.getTarget());
+        EncodedResponse recording = head || "GET".equals(request.getMethod()) ? recordings.get(path) : null;
+        if (recording != null) {
+            return head ? recording.withoutBody() : recording;
+        }
+        if (!upstreamUp) {
+            return ServerConstants.UPSTREAM_UNAVAILABLE_RESPONSE;
+        }
+        UpstreamClient.Response response;
+        try {
+            forwarded.increment();
+            response = client.send(request);
+        } catch (ProtocolException e) {
+            logger.log(LogLevel.DEBUG, "Unable to forward {} : {}", request.getMethod(), e.getMessage());
+            return ServerConstants.UPSTREAM_UNAVAILABLE_RESPONSE;
+        } catch (IOException e) {
+            markDown(e.toString());
+            return ServerConstants.UPSTREAM_UNAVAILABLE_RESPONSE;
+        }
+        int status = response.getStatus();
+        if (status == 502 || status == 503 || status == 504) {
+            markDown("status " + status);
+        }
+        if ("GET".equals(request.getMethod()) && isRecordable(request.getTarget(), response)) {
+            recordLater(path, response);
+        }
+        return toResponse(response, head);
+    }
+
+    private static EncodedResponse toResponse(UpstreamClient.Response response, boolean head) {
+        String message = response.getMessage() != null ? response.getMessage() : "";
+        EncodedResponse.Builder builder = EncodedResponse.newBuilder("HTTP/1.1 " + response.getStatus() + " " + message);
+        if (response.getLocation() != null) {
+            builder.header(ServerConstants.LOCATION, response.getLocation());
+        }
+        if (head) {
+            if (response.getContentType() != null) {
+                builder.header("Content-Type", response.getContentType());
+            }
+            return builder.buildWithoutBody();
+        }
+        return builder.build(response.getContentType(), response.getBody());
+    }
+
+    /*
+     * Only plain paths are recorded , they become mapping keys as they are : no query string ,
+     * no parameter or wildcard syntax and nothing which would need escaping in server.properties.
+     * */
+    private boolean isRecordable(String target, UpstreamClient.Response response) {
+        if (directory == null || response.getStatus() != 200 || response.getContentType() == null
+                || !response.getContentType().contains("json") || target.indexOf('?') >= 0) {
+            return false;
+        }
+        String path = getPath(target);
+        if (path.isEmpty() || path.startsWith("/") || path.endsWith("/") || path.contains("//") || path.contains("..")) {
+            return false;
+        }
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (!(Character.isLetterOrDigit(c) && c < 128) && c != '/' && c != '.' && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void recordLater(String path, UpstreamClient.Response response) {
+        if (!pendingPaths.add(path)) {
+            return;
+        }
+        try {
+            executor.execute(() -> record(path, response));
+        } catch (RejectedExecutionException e) {
+            pendingPaths.remove(path);
+        }
+    }
+
+    /*
+     * Writes the fixture through a temporary file , so the JSON directory watcher never sees half of it.
+     * */
+    private void record(String path, UpstreamClient.Response response) {
+        String fileName = getFileName(path);
+        try {
+            Path temporary = Files.createTempFile(directory, FILE_PREFIX, ".tmp");
+            try {
+                Files.write(temporary, response.getBody());
+                Files.move(temporary, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            recordings.put(path, toResponse(response, false));
+            try {
+                mappingRecorder.record("GET@" + path, fileName);
+            } finally {
+                // The installed mapping answers the path from now on , a failed one is recorded again on the next request
+                recordings.remove(path);
+            }
+            logger.log(LogLevel.INFO, "Recorded /{} as {}", path, fileName);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Unable to record /" + path, e);
+        } finally {
+            pendingPaths.remove(path);
+        }
+    }
+
+    /*
+     * File name of the recording of a path : "/" becomes "-" , and the "-" and "_" of the path itself are escaped
+     * as "_-" and "__" , so two paths never share a file , like "users/1" (recorded-users-1.json)
+     * and "users-1" (recorded-users_-1.json).
+     * @Param path : A recordable path , without the leading "/"
+     * */
+    static String getFileName(String path) {
+        StringBuilder fileName = new StringBuilder(FILE_PREFIX.length() + path.length() + FILE_SUFFIX.length() + 8).append(FILE_PREFIX);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/') {
+                fileName.append('-');
+            } else {
+                if (c == '-' || c == '_') {
+                    fileName.append('_');
+                }
+                fileName.append(c);
+            }
+        }
+        return fileName.append(FILE_SUFFIX).toString();
+    }
+
+    private void markDown(String reason) {
+        if (upstreamUp) {
+            logger.log(LogLevel.WARN, "The upstream is down ( {} ) , serving the recordings only.", reason);
+        }
+        upstreamUp = false;
+        if (probing.compareAndSet(false, true)) {
+            scheduleProbe();
+        }
+    }
+
+    private void scheduleProbe() {
+        try {
+            executor.schedule(this::probe, healthIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            probing.set(false);
+        }
+    }
+
+    private void probe() {
+        if (client.isHealthy(healthPath)) {
+            upstreamUp = true;
+            probing.set(false);
+            logger.log(LogLevel.INFO, "The upstream is back , forwarding again.");
+        } else {
+            scheduleProbe();
+        }
+    }
+
+    private static String getPath(String target) {
+        int queryStart = target.indexOf('?');
+        String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    public boolean isUpstreamUp() {
+        return upstreamUp;
+    }
+
+    /* Number of requests sent to the back end. */
+    public long getForwardedCount() {
+        return forwarded.sum();
+    }
+
+    /*
+     * Finishes the recordings already queued , then stops the proxy thread.
+     * */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package home.learning.server.proxy;
+
+import home.learning.server.http.HttpRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+ * Blocking HTTP client of the real back end , on HttpURLConnection.
+ * The JDK keeps the connections of fully read responses open and hands them to the next request
+ * to the same host (http.keepAlive , up to http.maxConnections idle ones , 5 unless set on the command line) ,
+ * so the body is always read to the end and its stream closed , never disconnected.
+ * */
+public class UpstreamClient {
+
+    /* Headers of one connection , they are not forwarded. Accept-Encoding is dropped to get identity bodies. */
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList("connection", "keep-alive",
+            "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade",
+            "host", "content-length", "accept-encoding"));
+
+    private final String baseUrl;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+    /*
+     * @Param baseUrl : Scheme , host , port and optional path prefix of the back end , like "http://localhost:8080/api"
+     * @Param connectTimeout : Milliseconds allowed to connect
+     * @Param readTimeout : Milliseconds allowed between two reads of the response
+     * @Throws IllegalArgumentException : If the URL is not an http or https URL
+     * */
+    public UpstreamClient(String baseUrl, int connectTimeout, int readTimeout) {
+        try {
+            String protocol = new URL(baseUrl).getProtocol();
+            if (!protocol.equals("http") && !protocol.equals("https")) {
+                throw new IllegalArgumentException("Unsupported upstream protocol " + protocol);
+            }
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid upstream URL " + baseUrl, e);
+        }
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /*
+     * Sends the request with its end-to-end headers and body.
+     * @Return Response : The complete response , whatever its status
+     * @Throws java.net.ProtocolException : If HttpURLConnection does not support the method , like PATCH
+     * @Throws IOException : If the back end cannot be reached or the response cannot be read
+     * */
+    public Response send(HttpRequest request) throws IOException {
+        HttpURLConnection connection = open(request.getTarget());
+        connection.setRequestMethod(request.getMethod());
+        for (int i = 0; i < request.getHeaderCount(); i++) {
+            String name = request.getHeaderName(i);
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                connection.addRequestProperty(name, request.getHeaderValue(i));
+            }
+        }
+        byte[] body = request.getBody();
+        if (body.length > 0) {
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(body);
+            }
+        }
+        return read(connection);
+    }
+
+    /*
+     * @Param path : Path probed with a GET , like "/health"
+     * @Return boolean : true if the back end answers with a status below 500
+     * */
+    public boolean isHealthy(String path) {
+        try {
+            HttpURLConnection connection = open(path);
+            return read(connection).getStatus() < 500;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HttpURLConnection open(String target) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + (target.startsWith("/") ? target : "/" + target)).openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private static Response read(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream inputStream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (inputStream != null) {
+            try (InputStream stream = inputStream) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Response(status, connection.getResponseMessage(), connection.getContentType(),
+                connection.getHeaderField("Location"), body.toByteArray());
+    }
+
+    /*
+     * Status , the headers kept for the client and the body of an upstream response.
+     * */
+    public static final class Response {
+
+        private final int status;
+        private final String message;
+        private final String contentType;
+        private final String location;
+        private final byte[] body;
+
+        Response(int status, String message, String contentType, String location, byte[] body) {
+            this.status = status;
+            this.message = message;
+            this.contentType = contentType;
+            this.location = location;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package home.learning.server.query;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * "?fields=" projection and equality filters on a JSON fixture , evaluated in one pass of the JsonTokenizer
+ * over the cached bytes : kept members and elements are copied out as they are , no tree is built.
+ *   fields=id,name   keeps only these top-level members of an object , or of every object of an array
+ *   country=india    keeps the array elements whose top-level member "country" is the string "india" ,
+ *                    or the literal india , like age=30 or active=true. Every filter has to match
+ * Filters only apply to arrays , a top-level object is only projected.
+ * */
+public final class JsonQuery {
+
+    public static final String FIELDS = "fields";
+    /* Parameters with another meaning , never taken as filters. */
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(FIELDS, "page", "size", "offset", "limit", "format"));
+
+    private final byte[][] fields;
+    private final byte[][] filterNames;
+    private final byte[][] filterValues;
+    private final String key;
+
+    private JsonQuery(List<String> fields, Map<String, String> filters) {
+        this.fields = utf8(fields);
+        this.filterNames = utf8(new ArrayList<>(filters.keySet()));
+        this.filterValues = utf8(new ArrayList<>(filters.values()));
+        // Members are copied in document order , so the order of the fields does not change the result
+        StringBuilder builder = new StringBuilder(FIELDS).append('=').append(String.join(",", new TreeSet<>(fields)));
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            builder.append('\u0000').append(filter.getKey()).append('=').append(filter.getValue());
+        }
+        this.key = builder.toString();
+    }
+
+    /*
+     * @Param parameters : Decoded query parameters of the request
+     * @Return JsonQuery : null if the request asks for no projection and no filter
+     * */
+    public static JsonQuery of(Map<String, String> parameters) {
+        List<String> fields = new ArrayList<>();
+        String fieldList = parameters.get(FIELDS);
+        if (fieldList != null) {
+            for (String field : fieldList.split(",")) {
+                if (!field.trim().isEmpty() && !fields.contains(field.trim())) {
+                    fields.add(field.trim());
+                }
+            }
+        }
+        Map<String, String> filters = new TreeMap<>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (!RESERVED.contains(parameter.getKey())) {
+                filters.put(parameter.getKey(), parameter.getValue());
+            }
+        }
+        return fields.isEmpty() && filters.isEmpty() ? null : new JsonQuery(fields, filters);
+    }
+
+    private static byte[][] utf8(List<String> values) {
+        byte[][] bytes = new byte[values.size()][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /*
+     * @Param content : JSON document between position and limit , not moved
+     * @Return byte[] : The projected and filtered document , null if it is neither an object nor an array
+     * @Throws IllegalArgumentException : If the content is not well formed JSON
+     * */
+    public byte[] apply(ByteBuffer content) {
+        JsonTokenizer tokenizer = new JsonTokenizer(content);
+        Output output = new Output(content, Math.min(content.remaining(), 8192));
+        int token = tokenizer.next();
+        if (token == JsonTokenizer.BEGIN_OBJECT) {
+            copyObject(tokenizer, output, false);
+        } else if (token == JsonTokenizer.BEGIN_ARRAY) {
+            output.write('[');
+            boolean first = true;
+            while ((token = tokenizer.next()) != JsonTokenizer.END_ARRAY) {
+                int start = tokenizer.getStart();
+                int mark = output.size();
+                if (!first) {
+                    output.write(',');
+                }
+                boolean kept;
+                if (token == JsonTokenizer.BEGIN_OBJECT) {
+                    kept = copyObject(tokenizer, output, true);
+                } else {
+                    skipValue(tokenizer, token);
+                    kept = filterNames.length == 0;
+                    if (kept) {
+                        output.copy(start, tokenizer.getEnd());
+                    }
+                }
+                if (kept) {
+                    first = false;
+                } else {
+                    output.truncate(mark);
+                }
+            }
+            output.write(']');
+        } else {
+            return null;
+        }
+        return output.toByteArray();
+    }
+
+    /*
+     * Copies the object whose BEGIN_OBJECT was just read , or only its projected members.
+     * @Param filter : true to check the filters
+     * @Return boolean : false if a filter does not match , the output then holds garbage to truncate
+     * */
+    private boolean copyObject(JsonTokenizer tokenizer, Output output, boolean filter) {
+        int objectStart = tokenizer.getStart();
+        int matched = 0;
+        boolean firstMember = true;
+        if (fields.length > 0) {
+            output.write('{');
+        }
+        int token;
+        while ((token = tokenizer.next()) != JsonTokenizer.END_OBJECT) {
+            if (token != JsonTokenizer.NAME) {
+                throw new IllegalArgumentException("Expected a member name at " + tokenizer.getStart());
+            }
+            int nameStart = tokenizer.getStart();
+            int field = fields.length > 0 ? indexOf(tokenizer, fields) : -1;
+            int filterIndex = filter ? indexOf(tokenizer, filterNames) : -1;
+            token = tokenizer.next();
+            if (filterIndex >= 0 && (token == JsonTokenizer.STRING || token == JsonTokenizer.LITERAL)
+                    && tokenizer.tokenEquals(filterValues[filterIndex])) {
+                matched++;
+            }
+            skipValue(tokenizer, token);
+            if (field >= 0) {
+                if (!firstMember) {
+                    output.write(',');
+                }
+                output.copy(nameStart, tokenizer.getEnd());
+                firstMember = false;
+            }
+        }
+        if (fields.length > 0) {
+            output.write('}');
+        } else {
+            output.copy(objectStart, tokenizer.getEnd());
+        }
+        return !filter || matched == filterNames.length;
+    }
+
+    private static int indexOf(JsonTokenizer tokenizer, byte[][] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (tokenizer.tokenEquals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void skipValue(JsonTokenizer tokenizer, int token) {
+        if (token == JsonTokenizer.BEGIN_OBJECT || token == JsonTokenizer.BEGIN_ARRAY) {
+            tokenizer.skipContainer();
+        } else if (token != JsonTokenizer.STRING && token != JsonTokenizer.LITERAL) {
+            throw new IllegalArgumentException("Expected a value at " + tokenizer.getStart());
+        }
+    }
+
+    /* Canonical form of the query , the same for the same fields and filters in any order. */
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    /*
+     * Growable byte array receiving regions of the source buffer , copied through one reused view.
+     * */
+    private static final class Output {
+
+        private final ByteBuffer view;
+        private byte[] bytes;
+        private int count;
+
+        private Output(ByteBuffer source, int capacity) {
+            this.view = source.duplicate();
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        private void write(char c) {
+            ensureCapacity(1);
+            bytes[count++] = (byte) c;
+        }
+
+        private void copy(int start, int end) {
+            ensureCapacity(end - start);
+            view.limit(end);
+            view.position(start);
+            view.get(bytes, count, end - start);
+            count += end - start;
+        }
+
+        private void ensureCapacity(int length) {
+            if (count + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + length));
+            }
+        }
+
+        private int size() {
+            return count;
+        }
+
+        private void truncate(int size) {
+            count = size;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, count);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package home.learning.server.query;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Streaming JSON tokenizer over a read only buffer , like the cached content of a fixture.
+ * It only reports token types and their byte positions : nothing is decoded and no String is built
+ * unless a string holding escapes has to be compared. The structure is checked , commas and colons are skipped.
+ * */
+public final class JsonTokenizer {
+
+    public static final int END = 0;
+    public static final int BEGIN_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int BEGIN_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    /* Member name of an object , a string followed by a colon. */
+    public static final int NAME = 5;
+    public static final int STRING = 6;
+    /* Number , true , false or null. */
+    public static final int LITERAL = 7;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private int tokenStart;
+    private int tokenEnd;
+    /* Open containers , true for an object. */
+    private boolean[] objects = new boolean[16];
+    private int depth;
+    private boolean expectName;
+
+    /*
+     * @Param buffer : JSON between position and limit , read with absolute gets so the buffer itself is never moved
+     * */
+    public JsonTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+        this.limit = buffer.limit();
+    }
+
+    /*
+     * @Return int : Type of the next token , END once the input is exhausted
+     * @Throws IllegalArgumentException : If the input is not well formed JSON
+     * */
+    public int next() {
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == ':') {
+                position++;
+                continue;
+            }
+            tokenStart = position;
+            switch (b) {
+                case '{':
+                    position++;
+                    tokenEnd = position;
+                    push(true);
+                    expectName = true;
+                    return BEGIN_OBJECT;
+                case '[':
+                    position++;
+                    tokenEnd = position;
+                    push(false);
+                    expectName = false;
+                    return BEGIN_ARRAY;
+                case '}':
+                case ']':
+                    boolean object = b == '}';
+                    if (depth == 0 || objects[depth - 1] != object) {
+                        throw new IllegalArgumentException("Unexpected '" + (char) b + "' at " + position);
+                    }
+                    depth--;
+                    position++;
+                    tokenEnd = position;
+                    expectName = inObject();
+                    return object ? END_OBJECT : END_ARRAY;
+                case '"':
+                    position = scanString(position + 1);
+                    tokenEnd = position;
+                    if (expectName) {
+                        expectName = false;
+                        return NAME;
+                    }
+                    expectName = inObject();
+                    return STRING;
+                default:
+                    while (position < limit && !isDelimiter(buffer.get(position))) {
+                        position++;
+                    }
+                    tokenEnd = position;
+                    expectName = inObject();
+                    return LITERAL;
+            }
+        }
+        if (depth > 0) {
+            throw new IllegalArgumentException("Unexpected end of input inside " + depth + " containers");
+        }
+        return END;
+    }
+
+    /*
+     * Skips the rest of the object or array whose BEGIN token was just returned , getEnd is then its end.
+     * */
+    public void skipContainer() {
+        int target = depth - 1;
+        while (depth > target) {
+            if (next() == END) {
+                throw new IllegalArgumentException("Unexpected end of input");
+            }
+        }
+    }
+
+    /*
+     * Compares the current STRING , NAME or LITERAL token with the UTF-8 bytes of a value.
+     * Strings are compared without their quotes , strings holding escapes are decoded first.
+     * */
+    public boolean tokenEquals(byte[] expected) {
+        int start = tokenStart;
+        int end = tokenEnd;
+        if (buffer.get(start) == '"') {
+            start++;
+            end--;
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) == '\\') {
+                    return Arrays.equals(decodeString(start, end).getBytes(StandardCharsets.UTF_8), expected);
+                }
+            }
+        }
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Position of the first byte of the current token. */
+    public int getStart() {
+        return tokenStart;
+    }
+
+    /* Position after the last byte of the current token , or of the container skipped by skipContainer. */
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private int scanString(int from) {
+        for (int i = from; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string at " + (from - 1));
+    }
+
+    private String decodeString(int start, int end) {
+        StringBuilder decoded = new StringBuilder(end - start);
+        int runStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) != '\\') {
+                continue;
+            }
+            decoded.append(utf8(runStart, i));
+            char escaped = (char) buffer.get(++i);
+            switch (escaped) {
+                case 'b': decoded.append('\b'); break;
+                case 'f': decoded.append('\f'); break;
+                case 'n': decoded.append('\n'); break;
+                case 'r': decoded.append('\r'); break;
+                case 't': decoded.append('\t'); break;
+                case 'u':
+                    if (i + 5 > end) {
+                        throw new IllegalArgumentException("Truncated unicode escape at " + i);
+                    }
+                    decoded.append((char) Integer.parseInt(utf8(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: decoded.append(escaped);
+            }
+            runStart = i + 1;
+        }
+        return decoded.append(utf8(runStart, end)).toString();
+    }
+
+    private String utf8(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void push(boolean object) {
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        objects[depth++] = object;
+    }
+
+    private boolean inObject() {
+        return depth > 0 && objects[depth - 1];
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == ']' || b == '}' || b == ':' || b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
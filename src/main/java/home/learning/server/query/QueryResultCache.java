@@ -0,0 +1,63 @@
+package home.learning.server.query;
+
+import home.learning.server.http.EncodedResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Memo of the responses built for JsonQuery requests , keyed by route , file version and canonical query ,
+ * so a screen polling the same projection costs one lookup. Bounded by a memory budget ,
+ * the least recently used results are evicted beyond it. Results are small and lookups short , one lock guards the map.
+ * */
+public class QueryResultCache {
+
+    private final long maxBytes;
+    private final Map<String, EncodedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    /*
+     * @Param maxBytes : Memory budget , 0 or less disables the memo
+     * */
+    public QueryResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /*
+     * @Return EncodedResponse : The memoized response , null if there is none
+     * */
+    public synchronized EncodedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    /*
+     * Keeps the response unless it alone exceeds the budget , then evicts the eldest results until the memo fits.
+     * */
+    public synchronized void put(String key, EncodedResponse response) {
+        long size = size(key, response);
+        if (size > maxBytes) {
+            return;
+        }
+        EncodedResponse previous = entries.put(key, response);
+        usedBytes += size - (previous != null ? size(key, previous) : 0);
+        Iterator<Map.Entry<String, EncodedResponse>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, EncodedResponse> entry = eldest.next();
+            usedBytes -= size(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    private static long size(String key, EncodedResponse response) {
+        return response.length() + 2L * key.length();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+}
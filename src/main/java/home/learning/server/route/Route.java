@@ -0,0 +1,125 @@
+package home.learning.server.route;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * One mapping of server.properties compiled for the RouteIndex.
+ * The key is "[METHOD@]path" , like "person" , "users/{id}" or "GET@orders/*" ,
+ * the value lists fixture files tried in order , like "user-{id}.json,user.json" ,
+ * so a file can be chosen per parameter value with a fallback.
+ * */
+public class Route {
+
+    public static final String ANY_METHOD = "*";
+    static final String WILDCARD = "*";
+
+    private final String key;
+    private final String method;
+    private final String[] segments;
+    private final List<String> parameterNames;
+    private final String[] fileTemplates;
+
+    private Route(String key, String method, String[] segments, List<String> parameterNames, String[] fileTemplates) {
+        this.key = key;
+        this.method = method;
+        this.segments = segments;
+        this.parameterNames = parameterNames;
+        this.fileTemplates = fileTemplates;
+    }
+
+    /*
+     * @Param key : Mapping key , "[METHOD@]path"
+     * @Param files : Mapping value , comma separated file names which may use "{name}" parameters
+     * @Return Route : The compiled route
+     * @Throws IllegalArgumentException : If the path uses a wildcard before its last segment or repeats a parameter
+     * */
+    public static Route parse(String key, String files) {
+        String method = ANY_METHOD;
+        String path = key.trim();
+        int methodSeparator = path.indexOf('@');
+        if (methodSeparator > 0) {
+            method = path.substring(0, methodSeparator).trim().toUpperCase(Locale.ROOT);
+            path = path.substring(methodSeparator + 1).trim();
+        }
+        String[] segments = RouteIndex.splitPath(path);
+        List<String> parameterNames = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].equals(WILDCARD) && i != segments.length - 1) {
+                throw new IllegalArgumentException("Wildcard must be the last segment of " + key);
+            }
+            String parameter = parameterName(segments[i]);
+            if (parameter != null) {
+                if (parameterNames.contains(parameter)) {
+                    throw new IllegalArgumentException("Parameter {" + parameter + "} is used twice in " + key);
+                }
+                parameterNames.add(parameter);
+            }
+        }
+        String[] fileTemplates = files.split(",");
+        for (int i = 0; i < fileTemplates.length; i++) {
+            fileTemplates[i] = fileTemplates[i].trim();
+        }
+        return new Route(key, method, segments, Collections.unmodifiableList(parameterNames), fileTemplates);
+    }
+
+    /*
+     * @Return String : The parameter name of a "{name}" segment , null for other segments
+     * */
+    static String parameterName(String segment) {
+        if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+            return segment.substring(1, segment.length() - 1);
+        }
+        return null;
+    }
+
+    /*
+     * Fills the parameter values into the file templates.
+     * @Param parameterValues : Values in the order of getParameterNames
+     * @Return List : Candidate file names , in order of preference
+     * */
+    public List<String> resolveFileNames(String[] parameterValues) {
+        List<String> fileNames = new ArrayList<>(fileTemplates.length);
+        for (String template : fileTemplates) {
+            String fileName = template;
+            for (int i = 0; i < parameterNames.size() && fileName.indexOf('{') >= 0; i++) {
+                fileName = fileName.replace("{" + parameterNames.get(i) + "}", parameterValues[i]);
+            }
+            if (fileName.indexOf('{') < 0 && !fileName.isEmpty()) {
+                fileNames.add(fileName);
+            }
+        }
+        return fileNames;
+    }
+
+    /*
+     * @Return List : File names which do not depend on a parameter , loaded at startup
+     * */
+    public List<String> getStaticFileNames() {
+        List<String> fileNames = new ArrayList<>();
+        for (String template : fileTemplates) {
+            if (template.indexOf('{') < 0 && !template.isEmpty()) {
+                fileNames.add(template);
+            }
+        }
+        return fileNames;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    String[] getSegments() {
+        return segments;
+    }
+
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+}
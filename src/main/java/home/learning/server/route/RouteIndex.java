@@ -0,0 +1,158 @@
+package home.learning.server.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Route mappings compiled into one segment tree per HTTP method (plus one for routes of any method).
+ * A lookup walks the request path one segment at a time , so it costs O(path length)
+ * however many mappings exist. Precedence at every segment : exact text , then "{param}" , then a trailing "*".
+ * Routes bound to the request method win over routes of any method , HEAD falls back to GET routes.
+ * */
+public class RouteIndex {
+
+    private final Map<String, Node> trees = new HashMap<>();
+    private final List<Route> routes;
+    private final Map<String, String> mappings;
+
+    private RouteIndex(List<Route> routes, Map<String, String> mappings) {
+        this.routes = Collections.unmodifiableList(routes);
+        this.mappings = Collections.unmodifiableMap(new HashMap<>(mappings));
+        for (Route route : routes) {
+            insert(route);
+        }
+    }
+
+    /*
+     * @Param mappings : Mapping keys and values of server.properties
+     * @Return RouteIndex : The compiled index
+     * @Throws IllegalArgumentException : If a mapping is invalid or two mappings have the same pattern
+     * */
+    public static RouteIndex compile(Map<String, String> mappings) {
+        List<Route> routes = new ArrayList<>(mappings.size());
+        for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+            routes.add(Route.parse(mapping.getKey(), mapping.getValue()));
+        }
+        return new RouteIndex(routes, mappings);
+    }
+
+    private void insert(Route route) {
+        Node node = trees.computeIfAbsent(route.getMethod(), method -> new Node());
+        for (String segment : route.getSegments()) {
+            if (segment.equals(Route.WILDCARD)) {
+                node.wildcardRoute = checkUnique(node.wildcardRoute, route);
+                return;
+            }
+            if (Route.parameterName(segment) != null) {
+                if (node.parameterChild == null) {
+                    node.parameterChild = new Node();
+                }
+                node = node.parameterChild;
+            } else {
+                node = node.staticChildren.computeIfAbsent(segment, text -> new Node());
+            }
+        }
+        node.route = checkUnique(node.route, route);
+    }
+
+    private static Route checkUnique(Route existing, Route route) {
+        if (existing != null) {
+            throw new IllegalArgumentException("Mappings " + existing.getKey() + " and " + route.getKey() + " have the same pattern");
+        }
+        return route;
+    }
+
+    /*
+     * @Param method : HTTP method of the request
+     * @Param target : Request target , the query string is ignored
+     * @Return RouteMatch : The best route , null when no mapping matches
+     * */
+    public RouteMatch match(String method, String target) {
+        int queryStart = target.indexOf('?');
+        String[] segments = splitPath(queryStart >= 0 ? target.substring(0, queryStart) : target);
+        RouteMatch match = match(trees.get(method), segments);
+        if (match == null && "HEAD".equals(method)) {
+            match = match(trees.get("GET"), segments);
+        }
+        if (match == null) {
+            match = match(trees.get(Route.ANY_METHOD), segments);
+        }
+        return match;
+    }
+
+    private RouteMatch match(Node root, String[] segments) {
+        if (root == null) {
+            return null;
+        }
+        String[] values = new String[segments.length];
+        Route route = find(root, segments, 0, values, 0);
+        if (route == null) {
+            return null;
+        }
+        String[] parameterValues = new String[route.getParameterNames().size()];
+        System.arraycopy(values, 0, parameterValues, 0, parameterValues.length);
+        return new RouteMatch(route, parameterValues);
+    }
+
+    /*
+     * Depth first walk trying exact , parameter and wildcard children in that order.
+     * @Param values : Collected parameter values , filled from index parameterCount on
+     * */
+    private Route find(Node node, String[] segments, int index, String[] values, int parameterCount) {
+        if (index == segments.length) {
+            return node.route;
+        }
+        Node staticChild = node.staticChildren.get(segments[index]);
+        if (staticChild != null) {
+            Route route = find(staticChild, segments, index + 1, values, parameterCount);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.parameterChild != null) {
+            values[parameterCount] = segments[index];
+            Route route = find(node.parameterChild, segments, index + 1, values, parameterCount + 1);
+            if (route != null) {
+                return route;
+            }
+        }
+        return node.wildcardRoute;
+    }
+
+    /*
+     * @Return String[] : Non empty segments of a path , leading and trailing "/" are ignored
+     * */
+    static String[] splitPath(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    public Collection<Route> getRoutes() {
+        return routes;
+    }
+
+    /* The mapping keys and values this index was compiled from. */
+    public Map<String, String> getMappings() {
+        return mappings;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> staticChildren = new HashMap<>();
+        private Node parameterChild;
+        private Route wildcardRoute;
+        private Route route;
+    }
+}
@@ -0,0 +1,37 @@
+package home.learning.server.route;
+
+import java.util.List;
+
+/*
+ * Result of a RouteIndex lookup : the route and the values of its path parameters.
+ * */
+public class RouteMatch {
+
+    private final Route route;
+    private final String[] parameterValues;
+
+    RouteMatch(Route route, String[] parameterValues) {
+        this.route = route;
+        this.parameterValues = parameterValues;
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    /*
+     * @Param name : Parameter name without braces
+     * @Return String : The value taken from the request path , null if the route has no such parameter
+     * */
+    public String getParameter(String name) {
+        int index = route.getParameterNames().indexOf(name);
+        return index >= 0 ? parameterValues[index] : null;
+    }
+
+    /*
+     * @Return List : Candidate fixture files for this request , in order of preference
+     * */
+    public List<String> getFileNames() {
+        return route.resolveFileNames(parameterValues);
+    }
+}
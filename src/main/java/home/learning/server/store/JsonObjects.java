@@ -0,0 +1,224 @@
+package home.learning.server.store;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * The little JSON handling the resource store needs , on raw UTF-8 bytes : checking that a body is one
+ * well formed object , reading its top-level "id" member and adding one. Records are stored as the bytes
+ * the client sent , they are never turned into a tree.
+ * */
+final class JsonObjects {
+
+    private static final int MAX_DEPTH = 512;
+    private static final byte[] ID = {'i', 'd'};
+
+    private JsonObjects() {
+    }
+
+    /*
+     * @Param json : Body which has to be a single JSON object , surrounding whitespace allowed
+     * @Return String : Value of the top-level "id" member , null if the object has none
+     * @Throws IllegalArgumentException : If the body is not one well formed object or its id is not a string or number
+     * */
+    static String readId(byte[] json) {
+        int start = skipWhitespace(json, 0);
+        if (start >= json.length || json[start] != '{') {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        String id = null;
+        int position = skipWhitespace(json, start + 1);
+        if (position < json.length && json[position] == '}') {
+            position++;
+        } else {
+            while (true) {
+                if (position >= json.length || json[position] != '"') {
+                    throw new IllegalArgumentException("Expected a member name at " + position);
+                }
+                int nameStart = position;
+                int nameEnd = skipString(json, position);
+                position = skipWhitespace(json, nameEnd);
+                if (position >= json.length || json[position] != ':') {
+                    throw new IllegalArgumentException("Expected ':' at " + position);
+                }
+                int valueStart = skipWhitespace(json, position + 1);
+                int valueEnd = skipValue(json, valueStart, 1);
+                if (isId(json, nameStart, nameEnd)) {
+                    id = idValue(json, valueStart, valueEnd);
+                }
+                position = skipWhitespace(json, valueEnd);
+                if (position < json.length && json[position] == ',') {
+                    position = skipWhitespace(json, position + 1);
+                } else if (position < json.length && json[position] == '}') {
+                    position++;
+                    break;
+                } else {
+                    throw new IllegalArgumentException("Expected ',' or '}' at " + position);
+                }
+            }
+        }
+        if (skipWhitespace(json, position) != json.length) {
+            throw new IllegalArgumentException("Unexpected content after the object at " + position);
+        }
+        return id;
+    }
+
+    /*
+     * @Param json : A well formed object without "id" member , see readId
+     * @Param id : Id to add , written as a number when it is one
+     * @Return byte[] : The object with "id" as its first member
+     * */
+    static byte[] withId(byte[] json, String id) {
+        int brace = skipWhitespace(json, 0);
+        boolean empty = json[skipWhitespace(json, brace + 1)] == '}';
+        byte[] member = ("\"id\":" + encodeId(id) + (empty ? "" : ",")).getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[json.length + member.length];
+        System.arraycopy(json, 0, result, 0, brace + 1);
+        System.arraycopy(member, 0, result, brace + 1, member.length);
+        System.arraycopy(json, brace + 1, result, brace + 1 + member.length, json.length - brace - 1);
+        return result;
+    }
+
+    /*
+     * @Return String : The id as a JSON value , a number for plain digits and a string otherwise
+     * */
+    static String encodeId(String id) {
+        if (isNumber(id)) {
+            return id;
+        }
+        StringBuilder encoded = new StringBuilder(id.length() + 2).append('"');
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '"' || c == '\\') {
+                encoded.append('\\').append(c);
+            } else if (c < 0x20) {
+                encoded.append(String.format("\\u%04x", (int) c));
+            } else {
+                encoded.append(c);
+            }
+        }
+        return encoded.append('"').toString();
+    }
+
+    /* true for ids made of digits only , short enough to be counted in a long. */
+    static boolean isNumber(String id) {
+        if (id.isEmpty() || id.length() > 18 || (id.length() > 1 && id.charAt(0) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* true for the member name "id" , nameStart and nameEnd include the quotes. */
+    private static boolean isId(byte[] json, int nameStart, int nameEnd) {
+        if (nameEnd - nameStart != ID.length + 2) {
+            return false;
+        }
+        for (int i = 0; i < ID.length; i++) {
+            if (json[nameStart + 1 + i] != ID[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String idValue(byte[] json, int start, int end) {
+        if (json[start] == '"') {
+            String raw = new String(json, start + 1, end - start - 2, StandardCharsets.UTF_8);
+            if (raw.indexOf('\\') >= 0) {
+                throw new IllegalArgumentException("Escaped characters are not supported in ids");
+            }
+            return raw;
+        }
+        if (json[start] == '-' || (json[start] >= '0' && json[start] <= '9')) {
+            return new String(json, start, end - start, StandardCharsets.US_ASCII);
+        }
+        throw new IllegalArgumentException("The id has to be a string or a number");
+    }
+
+    /*
+     * @Return int : Index just past the value starting at start
+     * @Throws IllegalArgumentException : If no well formed value starts there
+     * */
+    private static int skipValue(byte[] json, int start, int depth) {
+        if (start >= json.length) {
+            throw new IllegalArgumentException("Expected a value at " + start);
+        }
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Nested deeper than " + MAX_DEPTH);
+        }
+        byte value = json[start];
+        if (value == '"') {
+            return skipString(json, start);
+        }
+        if (value == '{' || value == '[') {
+            byte close = value == '{' ? (byte) '}' : (byte) ']';
+            int position = skipWhitespace(json, start + 1);
+            if (position < json.length && json[position] == close) {
+                return position + 1;
+            }
+            while (true) {
+                if (value == '{') {
+                    if (position >= json.length || json[position] != '"') {
+                        throw new IllegalArgumentException("Expected a member name at " + position);
+                    }
+                    position = skipWhitespace(json, skipString(json, position));
+                    if (position >= json.length || json[position] != ':') {
+                        throw new IllegalArgumentException("Expected ':' at " + position);
+                    }
+                    position = skipWhitespace(json, position + 1);
+                }
+                position = skipWhitespace(json, skipValue(json, position, depth + 1));
+                if (position < json.length && json[position] == ',') {
+                    position = skipWhitespace(json, position + 1);
+                } else if (position < json.length && json[position] == close) {
+                    return position + 1;
+                } else {
+                    throw new IllegalArgumentException("Expected ',' or '" + (char) close + "' at " + position);
+                }
+            }
+        }
+        int position = start;
+        while (position < json.length && isLiteralPart(json[position])) {
+            position++;
+        }
+        String literal = new String(json, start, position - start, StandardCharsets.US_ASCII);
+        if (position == start || !(literal.equals("true") || literal.equals("false") || literal.equals("null") || isJsonNumber(literal))) {
+            throw new IllegalArgumentException("Invalid value at " + start);
+        }
+        return position;
+    }
+
+    private static int skipString(byte[] json, int start) {
+        for (int i = start + 1; i < json.length; i++) {
+            if (json[i] == '\\') {
+                i++;
+            } else if (json[i] == '"') {
+                return i + 1;
+            } else if (json[i] >= 0 && json[i] < 0x20) {
+                throw new IllegalArgumentException("Control character in string at " + i);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string at " + start);
+    }
+
+    private static boolean isLiteralPart(byte value) {
+        return (value >= 'a' && value <= 'z') || (value >= '0' && value <= '9') || value == '-' || value == '+'
+                || value == '.' || value == 'E';
+    }
+
+    private static boolean isJsonNumber(String literal) {
+        return literal.matches("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+    }
+
+    private static int skipWhitespace(byte[] json, int position) {
+        while (position < json.length && (json[position] == ' ' || json[position] == '\n'
+                || json[position] == '\r' || json[position] == '\t')) {
+            position++;
+        }
+        return position;
+    }
+}
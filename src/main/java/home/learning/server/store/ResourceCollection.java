@@ -0,0 +1,233 @@
+package home.learning.server.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Records of one collection route , like "users" , keyed by their id in a ConcurrentHashMap.
+ * A change only locks the map bin of its id while the record is swapped and its log record is queued ,
+ * waiting for the fsync happens afterwards , so writers of different ids never wait on each other.
+ * Queuing under the bin lock keeps the log order of one id the same as the order the changes were applied in.
+ * A change whose log record fails is undone in memory before the IOException reaches the caller , unless a later
+ * change of the same id replaced it meanwhile. A record which reached the file before the failure , like one whose
+ * fsync failed , may still be replayed on the next start.
+ * */
+public class ResourceCollection {
+
+    private final String name;
+    private final WriteLog writeLog;
+    private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong lastNumericId = new AtomicLong();
+
+    /*
+     * @Param name : Route key of the collection , used in the log records
+     * @Param writeLog : Log receiving every change , null to keep the records in memory only
+     * */
+    ResourceCollection(String name, WriteLog writeLog) {
+        this.name = name;
+        this.writeLog = writeLog;
+    }
+
+    /*
+     * Adds a fixture record without logging it , it is part of the fixture anyway.
+     * @Throws IllegalArgumentException : If the element is not an object with a string or number id
+     * */
+    void seed(byte[] json) {
+        String id = JsonObjects.readId(json);
+        if (id == null) {
+            id = String.valueOf(lastNumericId.incrementAndGet());
+            json = JsonObjects.withId(json, id);
+        }
+        apply(WriteLog.PUT, id, json);
+    }
+
+    /*
+     * Applies a fixture or replayed change , without logging it again.
+     * */
+    void apply(byte op, String id, byte[] json) {
+        if (op == WriteLog.DELETE) {
+            records.remove(id);
+            return;
+        }
+        noteId(id);
+        records.compute(id, (key, current) -> new Record(key, json, current != null ? current.sequence : sequence.incrementAndGet()));
+    }
+
+    /* Records in the order they were first stored. */
+    public List<Record> list() {
+        List<Record> list = new ArrayList<>(records.values());
+        list.sort(Comparator.comparingLong(record -> record.sequence));
+        return list;
+    }
+
+    /* Records as one JSON array. */
+    public byte[] toJson() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        boolean first = true;
+        for (Record record : list()) {
+            if (!first) {
+                json.write(',');
+            }
+            json.write(record.json, 0, record.json.length);
+            first = false;
+        }
+        json.write(']');
+        return json.toByteArray();
+    }
+
+    /*
+     * @Return Record : null if no record has the id
+     * */
+    public Record get(String id) {
+        return records.get(id);
+    }
+
+    /*
+     * Stores a new record , the next numeric id is added when the body has none.
+     * @Param json : Body of the POST request , a JSON object
+     * @Return Record : The stored record , null if a record with the same id exists
+     * @Throws IllegalArgumentException : If the body is not a JSON object with a string or number id
+     * @Throws IOException : If the change could not be written to the log , it is undone in memory
+     * */
+    public Record create(byte[] json) throws IOException {
+        String id = JsonObjects.readId(json);
+        if (id == null) {
+            id = String.valueOf(lastNumericId.incrementAndGet());
+            json = JsonObjects.withId(json, id);
+        } else {
+            noteId(id);
+        }
+        Record record = new Record(id, json, sequence.incrementAndGet());
+        WriteLog.Commit[] commit = new WriteLog.Commit[1];
+        Record stored = records.compute(id, (key, current) -> {
+            if (current != null) {
+                return current;
+            }
+            commit[0] = log(WriteLog.PUT, key, record.json);
+            return record;
+        });
+        try {
+            await(commit[0]);
+        } catch (IOException e) {
+            records.remove(id, record);
+            throw e;
+        }
+        return stored == record ? record : null;
+    }
+
+    /*
+     * Replaces or creates the record , keeping its place in the list.
+     * @Param id : Id from the request path , the body may repeat it but not contradict it
+     * @Param json : Body of the PUT request , a JSON object
+     * @Return Record : The stored record
+     * @Throws IllegalArgumentException : If the body is not a JSON object or its id differs from the path
+     * @Throws IOException : If the change could not be written to the log , it is undone in memory
+     * */
+    public Record put(String id, byte[] json) throws IOException {
+        String bodyId = JsonObjects.readId(json);
+        if (bodyId == null) {
+            json = JsonObjects.withId(json, id);
+        } else if (!bodyId.equals(id)) {
+            throw new IllegalArgumentException("The body id " + bodyId + " differs from the path id " + id);
+        }
+        noteId(id);
+        byte[] stored = json;
+        WriteLog.Commit[] commit = new WriteLog.Commit[1];
+        Record[] previous = new Record[1];
+        Record record = records.compute(id, (key, current) -> {
+            commit[0] = log(WriteLog.PUT, key, stored);
+            previous[0] = current;
+            return new Record(key, stored, current != null ? current.sequence : sequence.incrementAndGet());
+        });
+        try {
+            await(commit[0]);
+        } catch (IOException e) {
+            if (previous[0] != null) {
+                records.replace(id, record, previous[0]);
+            } else {
+                records.remove(id, record);
+            }
+            throw e;
+        }
+        return record;
+    }
+
+    /*
+     * @Return boolean : false if no record has the id
+     * @Throws IOException : If the change could not be written to the log , it is undone in memory
+     * */
+    public boolean delete(String id) throws IOException {
+        WriteLog.Commit[] commit = new WriteLog.Commit[1];
+        Record[] deleted = new Record[1];
+        records.computeIfPresent(id, (key, current) -> {
+            commit[0] = log(WriteLog.DELETE, key, null);
+            deleted[0] = current;
+            return null;
+        });
+        try {
+            await(commit[0]);
+        } catch (IOException e) {
+            records.putIfAbsent(id, deleted[0]);
+            throw e;
+        }
+        return deleted[0] != null;
+    }
+
+    private WriteLog.Commit log(byte op, String id, byte[] json) {
+        return writeLog != null ? writeLog.enqueue(op, name, id, json) : null;
+    }
+
+    private static void await(WriteLog.Commit commit) throws IOException {
+        if (commit != null) {
+            commit.await();
+        }
+    }
+
+    /* Keeps generated ids above every numeric id already used. */
+    private void noteId(String id) {
+        if (JsonObjects.isNumber(id)) {
+            long value = Long.parseLong(id);
+            lastNumericId.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /*
+     * One stored JSON object , kept as the bytes it was received as.
+     * */
+    public static final class Record {
+
+        private final String id;
+        private final byte[] json;
+        private final long sequence;
+
+        private Record(String id, byte[] json, long sequence) {
+            this.id = id;
+            this.json = json;
+            this.sequence = sequence;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /* The stored object , callers must not change the array. */
+        public byte[] getJson() {
+            return json;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package home.learning.server.store;
+
+import home.learning.server.LogLevel;
+import home.learning.server.cache.JsonArrayIndex;
+import home.learning.server.util.AsyncLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * In-memory records of the stateful mode , one ResourceCollection per collection route.
+ * A collection is created on first use , seeded from the elements of its JSON array fixture ,
+ * then the changes found in the write log for it are replayed on top.
+ * Fixture edits after that do not reset the records , the fixture only seeds them.
+ * */
+public class ResourceStore implements Closeable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    /* Marker remembering that a route fixture is not an array of objects. */
+    private static final ResourceCollection NOT_A_COLLECTION = new ResourceCollection("", null);
+
+    private final WriteLog writeLog;
+    private final Map<String, ResourceCollection> collections = new ConcurrentHashMap<>();
+    private final Map<String, List<WriteLog.Entry>> replay = new ConcurrentHashMap<>();
+
+    private ResourceStore(WriteLog writeLog, List<WriteLog.Entry> entries) {
+        this.writeLog = writeLog;
+        for (WriteLog.Entry entry : entries) {
+            replay.computeIfAbsent(entry.getCollection(), name -> new ArrayList<>()).add(entry);
+        }
+    }
+
+    /*
+     * @Param logFile : Append-only log making the changes durable , null to keep them in memory only
+     * @Throws IOException : If the log cannot be read or opened
+     * */
+    public static ResourceStore open(Path logFile) throws IOException {
+        if (logFile == null) {
+            return new ResourceStore(null, new ArrayList<>());
+        }
+        List<WriteLog.Entry> entries = new ArrayList<>();
+        WriteLog writeLog = WriteLog.open(logFile, entries);
+        logger.log(LogLevel.INFO, "Read {} changes from the store log {}", entries.size(), logFile);
+        return new ResourceStore(writeLog, entries);
+    }
+
+    /*
+     * Reads the JSON fixture of a collection route.
+     * */
+    public interface Fixture {
+        byte[] read() throws IOException;
+    }
+
+    /*
+     * @Param name : Route key of the collection
+     * @Param fixture : Source of the seed records , only read the first time the collection is used
+     * @Return ResourceCollection : null if the fixture is not a JSON array of objects
+     * @Throws IOException : If the fixture cannot be read
+     * */
+    public ResourceCollection getCollection(String name, Fixture fixture) throws IOException {
+        ResourceCollection collection = collections.get(name);
+        if (collection == null) {
+            byte[] content = fixture.read();
+            collection = collections.computeIfAbsent(name, key -> newCollection(key, content));
+        }
+        return collection != NOT_A_COLLECTION ? collection : null;
+    }
+
+    private ResourceCollection newCollection(String name, byte[] content) {
+        JsonArrayIndex index = content != null ? JsonArrayIndex.of(ByteBuffer.wrap(content)) : null;
+        if (index == null) {
+            return NOT_A_COLLECTION;
+        }
+        ResourceCollection collection = new ResourceCollection(name, writeLog);
+        try {
+            for (int i = 0; i < index.size(); i++) {
+                collection.seed(Arrays.copyOfRange(content, (int) index.getStart(i), (int) index.getEnd(i)));
+            }
+        } catch (IllegalArgumentException e) {
+            logger.log(LogLevel.DEBUG, "The fixture of {} is not a collection : {}", name, e.getMessage());
+            return NOT_A_COLLECTION;
+        }
+        List<WriteLog.Entry> entries = replay.remove(name);
+        if (entries != null) {
+            for (WriteLog.Entry entry : entries) {
+                collection.apply(entry.getOp(), entry.getId(), entry.getJson());
+            }
+        }
+        return collection;
+    }
+
+    /* The write log , null when the records are kept in memory only. */
+    public WriteLog getWriteLog() {
+        return writeLog;
+    }
+
+    @Override
+    public void close() {
+        if (writeLog != null) {
+            writeLog.close();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package home.learning.server.store;
+
+import home.learning.server.LogLevel;
+import home.learning.server.util.AsyncLogger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of the resource store changes , replayed at startup.
+ * Writers only enqueue their record , a single "server-store-log" thread writes everything queued
+ * with one gathering write and one fsync (group commit) , so concurrent writers share the cost of a sync.
+ * Every record is [length][CRC32][op , collection , id , json] , a record torn by a crash fails its
+ * checksum and is cut off at the next start.
+ * */
+public class WriteLog implements Closeable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ConcurrentLinkedQueue<Commit> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong recordCount = new AtomicLong();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private WriteLog(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.flusher = new Thread(this::flushLoop, "server-store-log");
+        this.flusher.setDaemon(true);
+    }
+
+    /*
+     * Reads the complete records of the log , cuts off a torn tail and opens the log for appending.
+     * @Param file : Log file , created if missing
+     * @Param replay : Receives every complete record in log order
+     * @Throws IOException : If the file cannot be read or opened
+     * */
+    public static WriteLog open(Path file, List<Entry> replay) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long valid = read(channel, replay);
+            if (valid < channel.size()) {
+                logger.log(LogLevel.WARN, "Cutting {} bytes of an incomplete record off {}", channel.size() - valid, file);
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            channel.position(valid);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        WriteLog writeLog = new WriteLog(file, channel);
+        writeLog.flusher.start();
+        return writeLog;
+    }
+
+    /*
+     * @Return long : Length of the complete records at the start of the log
+     * */
+    private static long read(FileChannel channel, List<Entry> replay) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        long size = channel.size();
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length < 0 || position + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, position + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                break;
+            }
+            Entry entry = Entry.decode(payload);
+            if (entry == null) {
+                break;
+            }
+            replay.add(entry);
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the store log");
+            }
+        }
+    }
+
+    /*
+     * Queues a record without waiting , the order of enqueue calls is the order in the log.
+     * @Return Commit : Handle to wait on until the record is on disk
+     * */
+    Commit enqueue(byte op, String collection, String id, byte[] json) {
+        if (closed) {
+            throw new IllegalStateException("The store log " + file + " is closed");
+        }
+        Commit commit = new Commit(new Entry(op, collection, id, json).encode());
+        queue.add(commit);
+        LockSupport.unpark(flusher);
+        return commit;
+    }
+
+    private void flushLoop() {
+        List<Commit> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            Commit commit = queue.poll();
+            if (commit == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            batch.clear();
+            while (commit != null) {
+                batch.add(commit);
+                commit = batch.size() < MAX_BATCH ? queue.poll() : null;
+            }
+            IOException error = null;
+            try {
+                ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+                long remaining = 0;
+                for (int i = 0; i < buffers.length; i++) {
+                    buffers[i] = batch.get(i).record;
+                    remaining += buffers[i].remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                channel.force(false);
+                syncCount.incrementAndGet();
+                recordCount.addAndGet(batch.size());
+            } catch (IOException e) {
+                logger.error("Unable to write the store log " + file, e);
+                error = e;
+            }
+            for (Commit done : batch) {
+                done.complete(error);
+            }
+        }
+    }
+
+    /* Number of fsync calls , every one made a whole batch of records durable. */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /* Number of records written since the log was opened. */
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    /*
+     * Writes what is still queued , then closes the file.
+     * */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            channel.close();
+            for (Commit commit = queue.poll(); commit != null; commit = queue.poll()) {
+                commit.complete(new IOException("The store log " + file + " was closed before the record was written"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Unable to close the store log " + file, e);
+        }
+    }
+
+    /*
+     * One queued record , the writer waits on it until its batch was synced.
+     * */
+    static final class Commit {
+
+        private final ByteBuffer record;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile IOException error;
+
+        private Commit(ByteBuffer record) {
+            this.record = record;
+        }
+
+        private void complete(IOException error) {
+            this.error = error;
+            done.countDown();
+        }
+
+        /*
+         * @Throws IOException : If the record could not be written
+         * */
+        void await() throws IOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the store log", e);
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /*
+     * One change : the record stored under an id , or its deletion.
+     * */
+    public static final class Entry {
+
+        private final byte op;
+        private final String collection;
+        private final String id;
+        private final byte[] json;
+
+        Entry(byte op, String collection, String id, byte[] json) {
+            this.op = op;
+            this.collection = collection;
+            this.id = id;
+            this.json = json;
+        }
+
+        private ByteBuffer encode() {
+            byte[] collectionBytes = collection.getBytes(StandardCharsets.UTF_8);
+            byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+            int jsonLength = json != null ? json.length : 0;
+            int length = 1 + 4 + collectionBytes.length + 4 + idBytes.length + 4 + jsonLength;
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+            buffer.putInt(length).putInt(0)
+                    .put(op)
+                    .putInt(collectionBytes.length).put(collectionBytes)
+                    .putInt(idBytes.length).put(idBytes)
+                    .putInt(jsonLength);
+            if (json != null) {
+                buffer.put(json);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), HEADER_BYTES, length);
+            buffer.putInt(4, (int) crc.getValue());
+            buffer.flip();
+            return buffer;
+        }
+
+        /*
+         * @Return Entry : null if the payload is not a record
+         * */
+        private static Entry decode(ByteBuffer payload) {
+            try {
+                payload.flip();
+                byte op = payload.get();
+                String collection = readString(payload);
+                String id = readString(payload);
+                byte[] json = new byte[payload.getInt()];
+                payload.get(json);
+                return op == PUT || op == DELETE ? new Entry(op, collection, id, op == PUT ? json : null) : null;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private static String readString(ByteBuffer payload) {
+            byte[] bytes = new byte[payload.getInt()];
+            payload.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        byte getOp() {
+            return op;
+        }
+
+        String getCollection() {
+            return collection;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        byte[] getJson() {
+            return json;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package home.learning.server.util;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Pause of an accept loop after a failed accept , one instance per loop.
+ * A failure which lasts , like running out of file descriptors (EMFILE) , would otherwise turn the loop
+ * into a busy spin : the pause starts at 10 ms and doubles up to one second , the next accepted connection resets it.
+ * The failure is logged at most once per LOG_INTERVAL , with the number of failures not logged since.
+ * */
+public class AcceptBackoff {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private static final long MIN_DELAY_MILLIS = 10;
+    private static final long MAX_DELAY_MILLIS = 1000;
+    private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private long delayMillis;
+    private long lastLogTime;
+    private boolean logged;
+    private int suppressed;
+
+    /*
+     * Logs the failure unless one was logged recently , then pauses the calling accept loop.
+     * @Param e : Reason of the failed accept
+     * */
+    public void onFailure(Exception e) {
+        long now = System.nanoTime();
+        if (!logged || now - lastLogTime >= LOG_INTERVAL) {
+            String message = suppressed > 0
+                    ? "Unable to accept the connection , " + suppressed + " more failed accepts were not logged"
+                    : "Unable to accept the connection";
+            logger.error(message, e);
+            logged = true;
+            lastLogTime = now;
+            suppressed = 0;
+        } else {
+            suppressed++;
+        }
+        delayMillis = delayMillis == 0 ? MIN_DELAY_MILLIS : Math.min(MAX_DELAY_MILLIS, delayMillis * 2);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* Resets the pause once a connection was accepted again. */
+    public void onSuccess() {
+        delayMillis = 0;
+    }
+
+    /* Pause of the next failure in milliseconds , 0 after a success. */
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+}
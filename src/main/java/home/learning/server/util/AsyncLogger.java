@@ -0,0 +1,295 @@
+package home.learning.server.util;
+
+import home.learning.server.LogLevel;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Asynchronous logger. Callers only claim a slot of a bounded lock-free ring buffer and store
+ * the message pattern with its arguments , a single writer thread formats the messages
+ * and writes them in batches , so request threads never wait on the synchronized System.out.
+ *
+ * Messages below the threshold return before anything is formatted. Patterns use "{}" for arguments ,
+ * so callers do not build strings for disabled levels either.
+ * When the buffer is full the message is dropped and counted , except ERROR messages which are
+ * then written directly. The number of dropped messages is reported by the writer thread.
+ * */
+public final class AsyncLogger {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final AsyncLogger LOGGER = new AsyncLogger(DEFAULT_CAPACITY, LogLevel.INFO, System.out, System.err);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LOGGER::close, "server-log-flush"));
+    }
+
+    private final int mask;
+    private final LogEvent[] events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Thread writer;
+    private final StringBuilder outBatch = new StringBuilder();
+    private final StringBuilder errBatch = new StringBuilder();
+    private volatile LogLevel threshold;
+    private volatile long written;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+    private long head;
+    private long reportedDrops;
+
+    /*
+     * @Param capacity : Number of messages the buffer holds , rounded up to a power of two
+     * @Param threshold : Least severe level written
+     * @Param out : Stream for DEBUG and INFO messages
+     * @Param err : Stream for WARN and ERROR messages
+     * */
+    public AsyncLogger(int capacity, LogLevel threshold, PrintStream out, PrintStream err) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.events = new LogEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            events[i] = new LogEvent();
+            sequences.set(i, i);
+        }
+        this.threshold = threshold;
+        this.out = out;
+        this.err = err;
+        this.writer = new Thread(this::drainLoop, "server-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /* The logger shared by the whole server. */
+    public static AsyncLogger getLogger() {
+        return LOGGER;
+    }
+
+    public void setThreshold(LogLevel threshold) {
+        this.threshold = threshold;
+    }
+
+    public LogLevel getThreshold() {
+        return threshold;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    public void log(LogLevel level, String message) {
+        if (isEnabled(level)) {
+            publish(level, message, null, null, null);
+        }
+    }
+
+    public void log(LogLevel level, String pattern, Object arg) {
+        if (isEnabled(level)) {
+            publish(level, pattern, arg, null, null);
+        }
+    }
+
+    public void log(LogLevel level, String pattern, Object arg1, Object arg2) {
+        if (isEnabled(level)) {
+            publish(level, pattern, arg1, arg2, null);
+        }
+    }
+
+    /*
+     * Logs an ERROR message followed by the stack trace of the failure.
+     * */
+    public void error(String message, Throwable failure) {
+        if (isEnabled(LogLevel.ERROR)) {
+            publish(LogLevel.ERROR, message, null, null, failure);
+        }
+    }
+
+    /* Number of messages dropped because the buffer was full. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /*
+     * Waits until every message logged before the call is written , at most the given time.
+     * @Return boolean : true if everything was written
+     * */
+    public boolean flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (written < target) {
+            if (!writer.isAlive() || System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        return true;
+    }
+
+    /*
+     * Writes what is left in the buffer and stops the writer thread.
+     * */
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Claims the next slot and publishes the message to the writer thread.
+     * A slot is free when its sequence equals the claimed position , it is published by
+     * setting the sequence one past it , the writer frees it again one lap later.
+     * */
+    private void publish(LogLevel level, String pattern, Object arg1, Object arg2, Throwable failure) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0 || !running) {
+                onBufferFull(level, pattern, arg1, arg2, failure);
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+        int index = (int) (position & mask);
+        LogEvent event = events[index];
+        event.level = level;
+        event.pattern = pattern;
+        event.arg1 = arg1;
+        event.arg2 = arg2;
+        event.failure = failure;
+        sequences.lazySet(index, position + 1);
+        if (sleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void onBufferFull(LogLevel level, String pattern, Object arg1, Object arg2, Throwable failure) {
+        if (level != LogLevel.ERROR) {
+            dropped.increment();
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        format(line, pattern, arg1, arg2, failure);
+        synchronized (err) {
+            err.print(line);
+            err.flush();
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int drained = drainBatch();
+            if (drained > 0) {
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            sleeping = true;
+            if (!hasPublishedEvent()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            sleeping = false;
+        }
+    }
+
+    /*
+     * Formats up to MAX_BATCH messages and writes them with one call per stream.
+     * @Return int : Number of messages written
+     * */
+    private int drainBatch() {
+        int count = 0;
+        while (count < MAX_BATCH && hasPublishedEvent()) {
+            int index = (int) (head & mask);
+            LogEvent event = events[index];
+            StringBuilder batch = event.level.compareTo(LogLevel.WARN) >= 0 ? errBatch : outBatch;
+            format(batch, event.pattern, event.arg1, event.arg2, event.failure);
+            event.clear();
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            count++;
+        }
+        long drops = dropped.sum();
+        if (drops != reportedDrops) {
+            errBatch.append("Log buffer full , dropped ").append(drops - reportedDrops).append(" messages").append(System.lineSeparator());
+            reportedDrops = drops;
+        }
+        writeBatch(out, outBatch);
+        writeBatch(err, errBatch);
+        written = head;
+        return count;
+    }
+
+    private boolean hasPublishedEvent() {
+        return sequences.get((int) (head & mask)) == head + 1;
+    }
+
+    private static void writeBatch(PrintStream stream, StringBuilder batch) {
+        if (batch.length() == 0) {
+            return;
+        }
+        stream.print(batch);
+        stream.flush();
+        batch.setLength(0);
+    }
+
+    /*
+     * Replaces the "{}" placeholders of the pattern with the arguments , in order.
+     * */
+    static void format(StringBuilder line, String pattern, Object arg1, Object arg2, Throwable failure) {
+        int argument = 0;
+        int from = 0;
+        int placeholder;
+        while (argument < 2 && (placeholder = pattern.indexOf("{}", from)) >= 0) {
+            line.append(pattern, from, placeholder).append(argument == 0 ? arg1 : arg2);
+            from = placeholder + 2;
+            argument++;
+        }
+        line.append(pattern, from, pattern.length()).append(System.lineSeparator());
+        if (failure != null) {
+            StringWriter trace = new StringWriter();
+            failure.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+    }
+
+    /* One slot of the ring buffer , reused for every lap. */
+    private static final class LogEvent {
+        private LogLevel level;
+        private String pattern;
+        private Object arg1;
+        private Object arg2;
+        private Throwable failure;
+
+        private void clear() {
+            pattern = null;
+            arg1 = null;
+            arg2 = null;
+            failure = null;
+        }
+    }
+}
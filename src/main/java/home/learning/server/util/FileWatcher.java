@@ -0,0 +1,83 @@
+package home.learning.server.util;
+
+import home.learning.server.LogLevel;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/*
+ * Watches one directory with a WatchService on a daemon thread and reports
+ * the name of every file created , modified or deleted in it.
+ * An overflow (events lost by the OS) is reported as a null file name , meaning "anything may have changed".
+ * */
+public class FileWatcher implements Runnable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private final Path directory;
+    private final Consumer<String> listener;
+    private WatchService watchService;
+
+    /*
+     * @Param directory : Directory to watch
+     * @Param listener : Called with the changed file name , or null after an overflow
+     * */
+    public FileWatcher(Path directory, Consumer<String> listener) {
+        this.directory = directory;
+        this.listener = listener;
+    }
+
+    /*
+     * Registers the directory and starts the watcher thread.
+     * @Throws IOException : If the directory cannot be watched
+     * */
+    public void start(String threadName) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Thread thread = new Thread(this, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        listener.accept(null);
+                    } else {
+                        listener.accept(event.context().toString());
+                    }
+                }
+                if (!key.reset()) {
+                    logger.log(LogLevel.WARN, "Stopped watching {} , it is no longer accessible.", directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watcher closed , nothing left to do.
+        } catch (Exception e) {
+            logger.error("Stopped watching " + directory, e);
+        }
+    }
+
+    public void close() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to close the watch service", e);
+        }
+    }
+}
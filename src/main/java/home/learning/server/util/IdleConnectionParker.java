@@ -0,0 +1,199 @@
+package home.learning.server.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Holds the idle keep-alive connections of the blocking engine on one selector thread , so their worker threads
+ * go back to the pool between two requests instead of blocking on a read.
+ * A parked channel is switched to non-blocking mode and watched for its next bytes : once they arrive it is
+ * switched back to blocking mode and handed to its onReadable task , if none arrive within the idle timeout
+ * it is handed to its onIdle task. Both run on the parker thread and have to be short , like handing
+ * the connection to an executor or closing it.
+ * */
+public class IdleConnectionParker implements Closeable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private final Selector selector;
+    private final long idleTimeoutNanos;
+    private final Queue<Parked> pending = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /*
+     * @Param threadName : Name of the parker thread
+     * @Param idleTimeoutMillis : Time a connection may stay parked , 0 or less for no limit
+     * @Throws IOException : If the selector cannot be opened
+     * */
+    public IdleConnectionParker(String threadName, long idleTimeoutMillis) throws IOException {
+        this.selector = Selector.open();
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, idleTimeoutMillis));
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /*
+     * @Param channel : Channel of an idle connection , in blocking mode
+     * @Param onReadable : Runs once bytes arrived or the peer closed its side , the channel is in blocking mode again
+     * @Param onIdle : Runs when nothing arrived within the idle timeout , or the parker is closed
+     * @Throws IOException : If the channel cannot be switched to non-blocking mode
+     * */
+    public void park(SocketChannel channel, Runnable onReadable, Runnable onIdle) throws IOException {
+        channel.configureBlocking(false);
+        pending.add(new Parked(channel, onReadable, onIdle, System.nanoTime() + idleTimeoutNanos));
+        selector.wakeup();
+        if (!running) {
+            closeParked();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(IDLE_CHECK_INTERVAL);
+                registerPending();
+                List<Parked> readable = new ArrayList<>();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    key.cancel();
+                    readable.add((Parked) key.attachment());
+                }
+                selector.selectedKeys().clear();
+                List<Parked> expired = removeExpired();
+                if (!readable.isEmpty()) {
+                    // Deregisters the cancelled keys , a registered channel cannot go back to blocking mode
+                    selector.selectNow();
+                }
+                for (Parked parked : readable) {
+                    resume(parked);
+                }
+                for (Parked parked : expired) {
+                    runQuietly(parked.onIdle);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.error("Idle connection parker stopped", e);
+            }
+        } finally {
+            running = false;
+            closeParked();
+        }
+    }
+
+    private void registerPending() {
+        Parked parked;
+        while ((parked = pending.poll()) != null) {
+            try {
+                parked.channel.register(selector, SelectionKey.OP_READ, parked);
+            } catch (IOException e) {
+                runQuietly(parked.onIdle);
+            }
+        }
+    }
+
+    private List<Parked> removeExpired() {
+        List<Parked> expired = new ArrayList<>();
+        if (idleTimeoutNanos == 0) {
+            return expired;
+        }
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            Parked parked = (Parked) key.attachment();
+            if (key.isValid() && now - parked.deadline > 0) {
+                key.cancel();
+                expired.add(parked);
+            }
+        }
+        return expired;
+    }
+
+    private void resume(Parked parked) {
+        try {
+            parked.channel.configureBlocking(true);
+        } catch (IOException | RuntimeException e) {
+            runQuietly(parked.onIdle);
+            return;
+        }
+        runQuietly(parked.onReadable);
+    }
+
+    private static void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Idle connection task failed", e);
+        }
+    }
+
+    /* Hands every connection still parked to its onIdle task , once the parker stopped. */
+    private void closeParked() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    key.cancel();
+                    runQuietly(((Parked) key.attachment()).onIdle);
+                }
+            }
+        } catch (ClosedSelectorException ignored) {
+            // Every key was handed over before the selector was closed.
+        }
+        Parked parked;
+        while ((parked = pending.poll()) != null) {
+            runQuietly(parked.onIdle);
+        }
+    }
+
+    /* Number of connections parked right now. */
+    public int getParkedCount() {
+        try {
+            return selector.keys().size() + pending.size();
+        } catch (ClosedSelectorException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * Stops the parker thread , the parked connections are handed to their onIdle task.
+     * */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Unable to close the selector", e);
+        }
+    }
+
+    private static final class Parked {
+
+        private final SocketChannel channel;
+        private final Runnable onReadable;
+        private final Runnable onIdle;
+        private final long deadline;
+
+        private Parked(SocketChannel channel, Runnable onReadable, Runnable onIdle, long deadline) {
+            this.channel = channel;
+            this.onReadable = onReadable;
+            this.onIdle = onIdle;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -1,31 +1,78 @@
 package home.learning.server.util;
 
+import home.learning.server.LogLevel;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServerUtil {
 
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
     public ServerSocket getHandledServerSocket(int port){
         ServerSocket serverSocket = null;
         try{
             serverSocket = new ServerSocket(port);
         }catch (Exception e){
-            e.printStackTrace(System.err);
+            logger.error("Unable to listen on port " + port, e);
+            logger.flush(1000);
             System.exit(1);
         }
         return serverSocket;
     }
 
+    /*
+     * Opens the listeners of all acceptors , see SocketSettings.openServerSockets.
+     * Like getHandledServerSocket , the server cannot run without them and exits.
+     * */
+    public List<ServerSocket> getHandledServerSockets(int port, SocketSettings settings){
+        List<ServerSocket> serverSockets = null;
+        try{
+            serverSockets = settings.openServerSockets(port);
+        }catch (Exception e){
+            logger.error("Unable to listen on port " + port, e);
+            logger.flush(1000);
+            System.exit(1);
+        }
+        return serverSockets;
+    }
+
 
+    /*
+     * Accepts the next client connection.
+     * A failed accept only affects that one connection , so null is returned
+     * and the caller keeps listening instead of stopping the whole server.
+     * */
     public Socket getSocket(ServerSocket serverSocket){
+        return getSocket(serverSocket, new AcceptBackoff());
+    }
+
+    /*
+     * Same as getSocket , an accept loop passes its own backoff : a failed accept is logged
+     * at a limited rate and pauses the loop before null is returned.
+     * */
+    public Socket getSocket(ServerSocket serverSocket, AcceptBackoff backoff){
         Socket clientSocket = null;
         try{
             clientSocket = serverSocket.accept();
+            backoff.onSuccess();
         }catch (Exception e){
-            e.printStackTrace(System.err);
-            System.exit(1);
+            if (!serverSocket.isClosed()) {
+                backoff.onFailure(e);
+            }
         }
         return clientSocket;
     }
@@ -34,7 +81,7 @@ public class ServerUtil {
         try{
              serverSocket.close();
         }catch (Exception e){
-            e.printStackTrace(System.err);
+            logger.error("Unable to close the socket", e);
         }
     }
 
@@ -43,7 +90,7 @@ public class ServerUtil {
         try{
             stream = socket.getInputStream();
         }catch (Exception e){
-            e.printStackTrace(System.err);
+            logger.error("Unable to open the socket input stream", e);
         }
         return stream;
     }
@@ -53,9 +100,103 @@ public class ServerUtil {
         try{
             stream = socket.getOutputStream();
         }catch (Exception e){
-            e.printStackTrace(System.err);
+            logger.error("Unable to open the socket output stream", e);
         }
         return stream;
     }
 
+    /*
+     * Creates the executor which serves the accepted connections.
+     * @Param mode : "virtual" for one virtual thread per connection (Java 21+) , anything else for a bounded pool
+     * @Param threads : Pool size , 0 or less means two threads per available core
+     * @Param queueSize : Number of connections which can wait for a free pool thread ,
+     * beyond it execute() throws RejectedExecutionException and the caller turns the connection away
+     * */
+    public ExecutorService getWorkerExecutor(String mode, int threads, int queueSize){
+        if ("virtual".equalsIgnoreCase(mode)) {
+            try {
+                Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (Exception e) {
+                logger.log(LogLevel.WARN, "Virtual threads need Java 21 or later. Falling back to the platform thread pool.");
+            }
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors() * 2;
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), getThreadFactory("server-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /*
+     * Thread factory giving the server threads readable names like "server-worker-3".
+     * */
+    public ThreadFactory getThreadFactory(String prefix){
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+
+    /*
+     * Reads an integer from the properties , returning the default value
+     * when the key is missing or not a number.
+     * */
+    public int getIntProperty(Properties properties, String key, int defaultValue){
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.log(LogLevel.WARN, "Invalid number for " + key + " : {}. Using {}", value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /*
+     * Reads a long from the properties , returning the default value
+     * when the key is missing or not a number.
+     * */
+    public long getLongProperty(Properties properties, String key, long defaultValue){
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.log(LogLevel.WARN, "Invalid number for " + key + " : {}. Using {}", value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /*
+     * Resolves a class path resource to a file system path.
+     * Going through the URI keeps it working on Windows and on Unix file systems.
+     * @Return Path : null if the resource is not on the class path
+     * */
+    public Path getResourcePath(String resource){
+        URL url = ServerUtil.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (Exception e) {
+            logger.error("Unable to resolve the resource " + resource, e);
+            return null;
+        }
+    }
+
+    /*
+     * Same as getResourcePath , but returns the location as a String.
+     * */
+    public String getResourceLocation(String resource){
+        Path path = getResourcePath(resource);
+        return path != null ? path.toString() : null;
+    }
+
 }
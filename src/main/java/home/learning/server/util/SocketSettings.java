@@ -0,0 +1,158 @@
+package home.learning.server.util;
+
+import home.learning.server.LogLevel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Listener and connection socket settings of both engines : number of acceptors , accept backlog ,
+ * TCP_NODELAY and buffer sizes.
+ * With several acceptors every one gets its own listener bound to the same port with SO_REUSEPORT ,
+ * so the kernel spreads new connections across them. SO_REUSEPORT only exists from Java 9 and not on every OS ,
+ * without it all acceptors share one listener.
+ * */
+public class SocketSettings {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    /* StandardSocketOptions.SO_REUSEPORT , null before Java 9. */
+    private static final SocketOption<Boolean> SO_REUSEPORT = reusePortOption();
+
+    private final int acceptors;
+    private final int backlog;
+    private final boolean tcpNoDelay;
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    /*
+     * @Param acceptors : Number of accept loops , at least 1
+     * @Param backlog : Connections the kernel queues until they are accepted , 0 or less for the JDK default
+     * @Param tcpNoDelay : true to send small responses without waiting (Nagle's algorithm off)
+     * @Param sendBufferSize : SO_SNDBUF of the connections in bytes , 0 or less for the OS default
+     * @Param receiveBufferSize : SO_RCVBUF of the listeners and connections in bytes , 0 or less for the OS default
+     * */
+    public SocketSettings(int acceptors, int backlog, boolean tcpNoDelay, int sendBufferSize, int receiveBufferSize) {
+        this.acceptors = Math.max(1, acceptors);
+        this.backlog = backlog;
+        this.tcpNoDelay = tcpNoDelay;
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> reusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /*
+     * Opens the listeners of the blocking engine , one per acceptor when SO_REUSEPORT is available , else a single one.
+     * They are the sockets of server channels , so an accepted connection has a channel the idle
+     * keep-alive connections can be parked with , see IdleConnectionParker.
+     * @Param port : Port to listen on , 0 picks an ephemeral port shared by every listener
+     * @Return List : The bound listeners , acceptor i accepts on listener (i % size)
+     * @Throws IOException : If the port cannot be bound
+     * */
+    public List<ServerSocket> openServerSockets(int port) throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        for (ServerSocketChannel channel : openServerChannels(port)) {
+            sockets.add(channel.socket());
+        }
+        return sockets;
+    }
+
+    /*
+     * Same as openServerSockets , returning the channels for the non-blocking engine.
+     * @Throws IOException : If the port cannot be bound
+     * */
+    public List<ServerSocketChannel> openServerChannels(int port) throws IOException {
+        List<ServerSocketChannel> channels = new ArrayList<>();
+        try {
+            ServerSocketChannel first = newServerChannel();
+            channels.add(first);
+            boolean reusePort = acceptors > 1 && setReusePort(first);
+            first.bind(new InetSocketAddress(port), backlog);
+            for (int i = 1; reusePort && i < acceptors; i++) {
+                ServerSocketChannel next = newServerChannel();
+                channels.add(next);
+                setReusePort(next);
+                next.bind(new InetSocketAddress(first.socket().getLocalPort()), backlog);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeAll(channels);
+            throw e;
+        }
+        return channels;
+    }
+
+    private ServerSocketChannel newServerChannel() throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if (receiveBufferSize > 0) {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+        }
+        return channel;
+    }
+
+    private boolean setReusePort(ServerSocketChannel channel) throws IOException {
+        if (SO_REUSEPORT == null || !channel.supportedOptions().contains(SO_REUSEPORT)) {
+            return logNoReusePort();
+        }
+        channel.setOption(SO_REUSEPORT, true);
+        return true;
+    }
+
+    private boolean logNoReusePort() {
+        logger.log(LogLevel.INFO, "SO_REUSEPORT is not available , the {} acceptors share one listener.", acceptors);
+        return false;
+    }
+
+    /*
+     * Applies TCP_NODELAY and the buffer sizes to an accepted connection , also the socket of a SocketChannel.
+     * @Throws SocketException : If the connection is already closed
+     * */
+    public void configure(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(tcpNoDelay);
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+    }
+
+    private static void closeAll(List<? extends AutoCloseable> listeners) {
+        for (AutoCloseable listener : listeners) {
+            try {
+                listener.close();
+            } catch (Exception e) {
+                logger.error("Unable to close the listener", e);
+            }
+        }
+    }
+
+    /* Number of accept loops. */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+}
@@ -0,0 +1,142 @@
+package home.learning.server.util;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Hashed timing wheel : one thread advances a ring of slots every tick and runs the tasks due in the current slot.
+ * Scheduling is an enqueue on a lock-free queue , the thread moves new tasks into their slot at the next tick ,
+ * so scheduling and expiring cost O(1) whatever the number of pending tasks , and a delay holds no thread.
+ * Delays longer than one turn of the wheel wait for the extra rounds in their slot.
+ * Tasks never run early , at most one tick late. They run on the wheel thread and have to be short ,
+ * like handing work to an event loop or an executor.
+ * */
+public class TimerWheel implements Closeable {
+
+    private static final AsyncLogger logger = AsyncLogger.getLogger();
+
+    private final long tickNanos;
+    private final Timeout[] slots;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /*
+     * @Param threadName : Name of the wheel thread
+     * @Param tickMillis : Resolution of the delays , at least 1
+     * @Param slotCount : Slots of the ring , rounded up to a power of two
+     * */
+    public TimerWheel(String threadName, long tickMillis, int slotCount) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.slots = new Timeout[size];
+        this.mask = size - 1;
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /*
+     * Runs the task on the wheel thread once the delay elapsed.
+     * @Param delayMillis : Delay in milliseconds , 0 or less runs the task at the next tick
+     * @Throws IllegalStateException : If the wheel is closed
+     * */
+    public void schedule(long delayMillis, Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("The timer wheel is closed");
+        }
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        pending.incrementAndGet();
+        scheduled.add(new Timeout(deadline, task));
+    }
+
+    private void run() {
+        while (!closed) {
+            waitForNextTick();
+            if (closed) {
+                break;
+            }
+            transferScheduled();
+            expire(tick & mask);
+            tick++;
+        }
+    }
+
+    /* Parks until the end of the current tick , so every task of the slot is due. */
+    private void waitForNextTick() {
+        long deadline = (tick + 1) * tickNanos;
+        long remaining;
+        while (!closed && (remaining = deadline - (System.nanoTime() - startTime)) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            long deadlineTick = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, (deadlineTick - tick) / slots.length);
+            int slot = (int) (Math.max(deadlineTick, tick) & mask);
+            timeout.next = slots[slot];
+            slots[slot] = timeout;
+        }
+    }
+
+    private void expire(long slot) {
+        int index = (int) slot;
+        Timeout remaining = null;
+        Timeout timeout = slots[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                timeout.next = remaining;
+                remaining = timeout;
+            } else {
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Timer task failed", e);
+                }
+            }
+            timeout = next;
+        }
+        slots[index] = remaining;
+    }
+
+    /* Number of scheduled tasks which did not run yet. */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /*
+     * Stops the wheel thread , tasks which did not run yet are dropped.
+     * */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private static final class Timeout {
+
+        private final long deadline;
+        private final Runnable task;
+        private long rounds;
+        private Timeout next;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.limit.ConnectionLimiter;
+import home.learning.server.limit.RateLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdmissionControlTest {
+
+    @Test
+    public void testConnectionLimiter() {
+        ConnectionLimiter limiter = new ConnectionLimiter(2);
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertFalse(limiter.tryAcquire());
+        limiter.release();
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(new ConnectionLimiter(0).tryAcquire());
+    }
+
+    @Test
+    public void testRateLimiterRefills() {
+        AtomicLong clock = new AtomicLong();
+        RateLimiter limiter = new RateLimiter(2, 2, clock::get);
+        Assert.assertTrue(limiter.tryAcquire("10.0.0.1"));
+        Assert.assertTrue(limiter.tryAcquire("10.0.0.1"));
+        Assert.assertFalse(limiter.tryAcquire("10.0.0.1"));
+        Assert.assertTrue(limiter.tryAcquire("10.0.0.2"));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assert.assertTrue(limiter.tryAcquire("10.0.0.1"));
+        Assert.assertFalse(limiter.tryAcquire("10.0.0.1"));
+        Assert.assertTrue(new RateLimiter(0, 1).tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    public void testConnectionsOverLimitGet503() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = TestSupport.properties(mode);
+            properties.setProperty(ServerConstants.MAX_CONNECTIONS, "1");
+            Server server = TestSupport.start(properties);
+            try (Socket first = connect(server)) {
+                first.getOutputStream().write("GET /person HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+                Assert.assertTrue(readAvailable(first).startsWith("HTTP/1.1 200 OK"));
+                try (Socket second = connect(server)) {
+                    String response = TestSupport.readUntilClosed(second);
+                    Assert.assertTrue(mode, response.startsWith("HTTP/1.1 503 Service Unavailable"));
+                    Assert.assertTrue(response.contains("Retry-After: 1"));
+                }
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testTricklingClientGets408() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = TestSupport.properties(mode);
+            properties.setProperty(ServerConstants.REQUEST_TIMEOUT_MS, "500");
+            Server server = TestSupport.start(properties);
+            try (Socket client = connect(server)) {
+                OutputStream out = client.getOutputStream();
+                out.write("GET /person HTTP/1.1\r\n".getBytes(StandardCharsets.UTF_8));
+                String response = "";
+                for (int i = 0; i < 20 && response.isEmpty(); i++) {
+                    Thread.sleep(200);
+                    try {
+                        out.write('X');
+                        out.flush();
+                    } catch (Exception e) {
+                        // Closed by the server after the 408.
+                    }
+                    response = readAvailable(client, 50);
+                }
+                Assert.assertTrue(mode + " : " + response, response.startsWith("HTTP/1.1 408 Request Timeout"));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testRequestsOverRateLimitGet429() throws Exception {
+        Properties properties = TestSupport.properties("blocking");
+        properties.setProperty(ServerConstants.RATE_LIMIT_PER_SECOND, "1");
+        properties.setProperty(ServerConstants.RATE_LIMIT_BURST, "1");
+        Server server = TestSupport.start(properties);
+        try (Socket client = connect(server)) {
+            String request = "GET /person HTTP/1.1\r\n\r\n";
+            client.getOutputStream().write((request + request + "GET /person HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            String response = TestSupport.readUntilClosed(client);
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+            Assert.assertEquals(2, response.split("HTTP/1.1 429 Too Many Requests").length - 1);
+            Assert.assertEquals(2, server.getMetrics().getRequestCount("rejected", 429));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Socket connect(Server server) throws Exception {
+        Socket socket = new Socket("localhost", server.getLocalPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private String readAvailable(Socket socket) throws Exception {
+        return readAvailable(socket, 1000);
+    }
+
+    /* Reads what arrives until the socket stays quiet for the given time. */
+    private String readAvailable(Socket socket, int quietMillis) throws Exception {
+        socket.setSoTimeout(quietMillis);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        InputStream inputStream = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        try {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (SocketTimeoutException e) {
+            // Nothing more for now.
+        } catch (java.io.IOException e) {
+            // Reset by the server after its response.
+        }
+        return outputStream.toString("UTF-8");
+    }
+}
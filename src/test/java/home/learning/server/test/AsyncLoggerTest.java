@@ -0,0 +1,83 @@
+package home.learning.server.test;
+
+import home.learning.server.LogLevel;
+import home.learning.server.util.AsyncLogger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncLoggerTest {
+
+    @Test
+    public void testFormatsArgumentsAndSplitsStreams() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(16, LogLevel.INFO, new PrintStream(out, true), new PrintStream(err, true));
+        logger.log(LogLevel.INFO, "Received request : {} {}", "GET", "/person");
+        logger.log(LogLevel.WARN, "Invalid number : {}", "abc");
+        logger.error("Failed", new IllegalStateException("boom"));
+        Assert.assertTrue(logger.flush(5000));
+        logger.close();
+        Assert.assertEquals("Received request : GET /person" + System.lineSeparator(), out.toString());
+        Assert.assertTrue(err.toString().startsWith("Invalid number : abc" + System.lineSeparator() + "Failed"));
+        Assert.assertTrue(err.toString().contains("IllegalStateException: boom"));
+    }
+
+    @Test
+    public void testDisabledLevelIsNotFormatted() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogger logger = new AsyncLogger(16, LogLevel.INFO, new PrintStream(out, true), new PrintStream(out, true));
+        AtomicInteger formatted = new AtomicInteger();
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                formatted.incrementAndGet();
+                return "argument";
+            }
+        };
+        logger.log(LogLevel.DEBUG, "Debug {}", argument);
+        Assert.assertTrue(logger.flush(5000));
+        Assert.assertEquals(0, formatted.get());
+        Assert.assertEquals("", out.toString());
+        logger.setThreshold(LogLevel.DEBUG);
+        logger.log(LogLevel.DEBUG, "Debug {}", argument);
+        Assert.assertTrue(logger.flush(5000));
+        logger.close();
+        Assert.assertEquals(1, formatted.get());
+    }
+
+    @Test
+    public void testFullBufferDropsAndCounts() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        OutputStream blockingOut = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        AsyncLogger logger = new AsyncLogger(4, LogLevel.INFO, new PrintStream(blockingOut), new PrintStream(err, true));
+        logger.log(LogLevel.INFO, "first");
+        Assert.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 10; i++) {
+            logger.log(LogLevel.INFO, "message {}", i);
+        }
+        Assert.assertEquals(6, logger.getDroppedCount());
+        release.countDown();
+        Assert.assertTrue(logger.flush(5000));
+        logger.close();
+        Assert.assertTrue(err.toString().contains("dropped 6 messages"));
+    }
+}
@@ -0,0 +1,71 @@
+package home.learning.server.test;
+
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.http.HttpDates;
+import home.learning.server.http.HttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+public class ConditionalRequestTest {
+
+    private static final long LAST_MODIFIED = 1700000000000L;
+
+    private final CachedJsonFile file = inMemoryFile("{\"name\":\"vignesh\"}");
+
+    @Test
+    public void testResponseCarriesValidators() throws Exception {
+        String response = respond("GET /person HTTP/1.1\n");
+        Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+        Assert.assertTrue(response.contains("ETag: " + file.getEtag()));
+        Assert.assertTrue(response.contains("Last-Modified: Tue, 14 Nov 2023 22:13:20 GMT"));
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        String response = respond("GET /person HTTP/1.1\nIf-None-Match: \"other\", " + file.getEtag() + "\n");
+        Assert.assertTrue(response.startsWith("HTTP/1.1 304 Not Modified"));
+        Assert.assertFalse(response.contains("Content-Length"));
+        Assert.assertTrue(response.endsWith("\r\n\r\n"));
+        Assert.assertTrue(respond("GET /person HTTP/1.1\nIf-None-Match: \"other\"\n").startsWith("HTTP/1.1 200 OK"));
+    }
+
+    @Test
+    public void testIfModifiedSince() throws Exception {
+        String current = respond("GET /person HTTP/1.1\nIf-Modified-Since: " + HttpDates.format(LAST_MODIFIED) + "\n");
+        Assert.assertTrue(current.startsWith("HTTP/1.1 304 Not Modified"));
+        String stale = respond("GET /person HTTP/1.1\nIf-Modified-Since: " + HttpDates.format(LAST_MODIFIED - 60000) + "\n");
+        Assert.assertTrue(stale.startsWith("HTTP/1.1 200 OK"));
+    }
+
+    @Test
+    public void testIfNoneMatchWinsOverIfModifiedSince() throws Exception {
+        String response = respond("GET /person HTTP/1.1\nIf-None-Match: \"other\"\nIf-Modified-Since: "
+                + HttpDates.format(LAST_MODIFIED) + "\n");
+        Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+    }
+
+    @Test
+    public void testEtagFollowsContent() {
+        Assert.assertEquals(file.getEtag(), inMemoryFile("{\"name\":\"vignesh\"}").getEtag());
+        Assert.assertNotEquals(file.getEtag(), inMemoryFile("{\"name\":\"kumar\"}").getEtag());
+    }
+
+    private String respond(String request) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        file.getResponse(HttpRequest.parse(request)).writeTo(outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static CachedJsonFile inMemoryFile(String json) {
+        try {
+            return CachedJsonFile.inMemory("person.json", Paths.get("person.json"),
+                    json.getBytes(StandardCharsets.UTF_8), LAST_MODIFIED, 0);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
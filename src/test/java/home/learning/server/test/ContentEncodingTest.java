@@ -0,0 +1,82 @@
+package home.learning.server.test;
+
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.http.ContentEncoding;
+import home.learning.server.http.HttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+public class ContentEncodingTest {
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("gzip, deflate, br"));
+        Assert.assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("deflate"));
+        Assert.assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("gzip;q=0, deflate;q=0.5"));
+        Assert.assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+        Assert.assertNull(ContentEncoding.negotiate("br"));
+        Assert.assertNull(ContentEncoding.negotiate("identity"));
+        Assert.assertNull(ContentEncoding.negotiate(null));
+    }
+
+    @Test
+    public void testCompressedVariants() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append("{\"name\":\"vignesh\",\"country\":\"india\"},");
+        }
+        json.append("{}]");
+        byte[] content = json.toString().getBytes(StandardCharsets.UTF_8);
+        CachedJsonFile file = CachedJsonFile.inMemory("list.json", Paths.get("list.json"), content, 0, 1024);
+
+        String identity = responseText(file, null);
+        Assert.assertTrue(identity.contains("Vary: Accept-Encoding"));
+        Assert.assertFalse(identity.contains("Content-Encoding"));
+        Assert.assertTrue(responseText(file, "deflate").contains("Content-Encoding: deflate"));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        file.getResponse(request("gzip, deflate, br")).writeTo(outputStream);
+        byte[] response = outputStream.toByteArray();
+        String head = new String(response, StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(head.contains("Content-Encoding: gzip"));
+        int bodyStart = head.indexOf("\r\n\r\n") + 4;
+        Assert.assertTrue(response.length - bodyStart < content.length / 5);
+        GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response, bodyStart, response.length - bodyStart));
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = gzip.read(buffer)) != -1) {
+            decompressed.write(buffer, 0, read);
+        }
+        Assert.assertArrayEquals(content, decompressed.toByteArray());
+    }
+
+    @Test
+    public void testSmallFileIsNotCompressed() throws Exception {
+        byte[] content = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        CachedJsonFile file = CachedJsonFile.inMemory("a.json", Paths.get("a.json"), content, 0, 1024);
+        String response = responseText(file, "gzip");
+        Assert.assertFalse(response.contains("Content-Encoding"));
+        Assert.assertFalse(response.contains("Vary"));
+    }
+
+    private String responseText(CachedJsonFile file, String acceptEncoding) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        file.getResponse(request(acceptEncoding)).writeTo(outputStream);
+        return new String(outputStream.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private HttpRequest request(String acceptEncoding) {
+        String request = "GET /list HTTP/1.1\n";
+        if (acceptEncoding != null) {
+            request += "Accept-Encoding: " + acceptEncoding + "\n";
+        }
+        return HttpRequest.parse(request);
+    }
+}
@@ -0,0 +1,149 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.fault.FaultRules;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.util.TimerWheel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FaultInjectionTest {
+
+    @Test
+    public void testTimerWheelRunsTasksWhenDue() throws Exception {
+        TimerWheel wheel = new TimerWheel("test-timer", 5, 64);
+        try {
+            int count = 20000;
+            CountDownLatch done = new CountDownLatch(count);
+            AtomicInteger early = new AtomicInteger();
+            for (int i = 0; i < count; i++) {
+                // Up to 800 ms , several turns of the 320 ms wheel
+                long delay = ThreadLocalRandom.current().nextLong(800);
+                long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                wheel.schedule(delay, () -> {
+                    if (System.nanoTime() < due) {
+                        early.incrementAndGet();
+                    }
+                    done.countDown();
+                });
+            }
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, early.get());
+            Assert.assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.close();
+        }
+    }
+
+    @Test
+    public void testInvalidFaultSettingsAreRejected() {
+        for (String[] setting : new String[][]{{"person.error.rate", "2"}, {"person.delay.ms", "soon"},
+                {"person.error.status", "99"}, {"person.speed", "1"}}) {
+            Properties properties = new Properties();
+            properties.setProperty(ServerConstants.FAULT_PREFIX + setting[0], setting[1]);
+            try {
+                FaultRules.parse(properties);
+                Assert.fail(setting[0]);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.FAULT_PREFIX + "users/{id}.drop.rate", "0.5");
+        Assert.assertNotNull(FaultRules.parse(properties).get("users/{id}"));
+    }
+
+    @Test
+    public void testErrorRateAnswersConfiguredStatus() throws Exception {
+        Properties properties = TestSupport.properties("blocking");
+        properties.setProperty(ServerConstants.FAULT_PREFIX + "person.error.rate", "1");
+        properties.setProperty(ServerConstants.FAULT_PREFIX + "person.error.status", "503");
+        Server server = new Server(properties);
+        Assert.assertEquals(503, server.getResponse("GET /person HTTP/1.1\r\n\r\n").getStatusCode());
+        Assert.assertEquals(400, server.getResponse("GET /missing HTTP/1.1\r\n\r\n").getStatusCode());
+
+        properties.setProperty(ServerConstants.FAULT_PREFIX + "person.error.rate", "0");
+        Assert.assertTrue(server.reloadRoutes(properties));
+        Assert.assertEquals(200, server.getResponse("GET /person HTTP/1.1\r\n\r\n").getStatusCode());
+    }
+
+    @Test
+    public void testFaultRuleIsTakenWithTheMatchedRoute() throws Exception {
+        Properties properties = TestSupport.properties("blocking");
+        properties.setProperty(ServerConstants.FAULT_PREFIX + "person.drop.rate", "1");
+        Server server = new Server(properties);
+        HttpRequest matched = HttpRequest.parse("GET /person HTTP/1.1\r\n\r\n");
+        server.getResponse(matched);
+
+        Properties withoutFaults = new Properties();
+        withoutFaults.putAll(properties);
+        withoutFaults.remove(ServerConstants.FAULT_PREFIX + "person.drop.rate");
+        Assert.assertTrue(server.reloadRoutes(withoutFaults));
+        // The request keeps the rule of the mappings it was matched against
+        Assert.assertNotNull(matched.getFaultRule());
+        HttpRequest next = HttpRequest.parse("GET /person HTTP/1.1\r\n\r\n");
+        server.getResponse(next);
+        Assert.assertNull(next.getFaultRule());
+    }
+
+    /* 200 delayed requests on 2 worker threads : sleeping workers would need 100 delays in a row. */
+    @Test
+    public void testDelayedResponsesHoldNoThread() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = TestSupport.properties(mode);
+            properties.setProperty(ServerConstants.WORKER_THREADS, "2");
+            properties.setProperty(ServerConstants.FAULT_PREFIX + "person.delay.ms", "300");
+            properties.setProperty(ServerConstants.FAULT_PREFIX + "person.jitter.ms", "100");
+            Server server = TestSupport.start(properties);
+            List<Socket> clients = new ArrayList<>();
+            try {
+                long start = System.nanoTime();
+                for (int i = 0; i < 200; i++) {
+                    Socket client = new Socket("localhost", server.getLocalPort());
+                    client.setSoTimeout(10000);
+                    client.getOutputStream().write("GET /person HTTP/1.1\r\n\r\nGET /person HTTP/1.1\r\nConnection: close\r\n\r\n"
+                            .getBytes(StandardCharsets.UTF_8));
+                    clients.add(client);
+                }
+                for (Socket client : clients) {
+                    String response = TestSupport.readUntilClosed(client);
+                    Assert.assertEquals(mode, 2, response.split("HTTP/1.1 200 OK").length - 1);
+                }
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assert.assertTrue(mode + " took " + elapsed, elapsed >= 600 && elapsed < 8000);
+            } finally {
+                for (Socket client : clients) {
+                    client.close();
+                }
+                server.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testDropClosesWithoutAnswer() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = TestSupport.properties(mode);
+            properties.setProperty(ServerConstants.FAULT_PREFIX + "person.drop.rate", "1");
+            Server server = TestSupport.start(properties);
+            try (Socket client = new Socket("localhost", server.getLocalPort())) {
+                client.setSoTimeout(5000);
+                client.getOutputStream().write("GET /person HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+                Assert.assertEquals(mode, "", TestSupport.readUntilClosed(client));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.cache.FixtureArchive;
+import home.learning.server.cache.FixtureArchiveWriter;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.http.BufferResponse;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.http.ResponseWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+public class FixtureArchiveTest {
+
+    private Path directory;
+    private Path archiveFile;
+    private String large;
+
+    @Before
+    public void pack() throws Exception {
+        directory = Files.createTempDirectory("json-archive");
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            builder.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"user\"}");
+        }
+        large = builder.append(']').toString();
+        Files.write(directory.resolve("users.json"), large.getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("person.json"), "{\"name\":\"carl\"}".getBytes(StandardCharsets.UTF_8));
+        Map<String, String> mappings = new HashMap<>();
+        mappings.put("users", "users.json");
+        mappings.put("GET@people/{id}", "person-{id}.json,person.json");
+        archiveFile = directory.resolve("fixtures.pack");
+        Assert.assertEquals(2, new FixtureArchiveWriter(1024).write(directory, mappings, archiveFile));
+    }
+
+    @Test
+    public void testArchiveServesTheSameResponsesAsTheDirectory() throws Exception {
+        FixtureArchive archive = FixtureArchive.open(archiveFile);
+        Assert.assertEquals(2, archive.getFileCount());
+        Assert.assertEquals("person-{id}.json,person.json", archive.getMappings().get("GET@people/{id}"));
+        Assert.assertNull(archive.get("missing.json"));
+
+        CachedJsonFile packed = archive.get("users.json");
+        Assert.assertSame(packed, archive.get("users.json"));
+        Assert.assertTrue(packed.getResponse() instanceof BufferResponse);
+        Assert.assertTrue(packed.getContent().isDirect());
+        Assert.assertEquals(large, packed.getJson());
+
+        CachedJsonFile loaded = new JsonFileCache(directory, 1 << 20, 1 << 20, 1024).get("users.json");
+        Assert.assertEquals(loaded.getEtag(), packed.getEtag());
+        Assert.assertEquals(TestSupport.write(loaded.getResponse()), TestSupport.write(packed.getResponse()));
+        Assert.assertEquals(TestSupport.write(loaded.getResponse()), writeToChannel(packed.getResponse()));
+        Assert.assertTrue(packed.getSize() < 1024);
+
+        HttpRequest gzipRequest = HttpRequest.parse("GET /users HTTP/1.1\r\nAccept-Encoding: gzip\r\n\r\n");
+        String gzipResponse = TestSupport.write(packed.getResponse(gzipRequest));
+        Assert.assertTrue(gzipResponse.contains("Content-Encoding: gzip\r\n"));
+        Assert.assertEquals(large, gunzip(packed.getResponse(gzipRequest)));
+
+        HttpRequest conditional = HttpRequest.parse("GET /users HTTP/1.1\r\nIf-None-Match: " + packed.getEtag() + "\r\n\r\n");
+        Assert.assertEquals(304, packed.getResponse(conditional).getStatusCode());
+        Assert.assertTrue(TestSupport.write(packed.getPage(10, 2)).endsWith("[{\"id\":10,\"name\":\"user\"},{\"id\":11,\"name\":\"user\"}]"));
+    }
+
+    @Test
+    public void testServerUsesArchiveFilesAndMappings() throws Exception {
+        Path emptyDirectory = Files.createTempDirectory("json-empty");
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, emptyDirectory.toString());
+        properties.setProperty(ServerConstants.ARCHIVE_FILE, archiveFile.toString());
+        properties.setProperty("users", "person.json");
+        Server server = new Server(properties);
+        try {
+            String response = TestSupport.write(server.getResponse("GET /people/7 HTTP/1.1\r\n\r\n"));
+            Assert.assertTrue(response, response.endsWith("{\"name\":\"carl\"}"));
+            Assert.assertTrue(TestSupport.write(server.getResponse("GET /users HTTP/1.1\r\n\r\n")).endsWith("{\"name\":\"carl\"}"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testCorruptArchivesAreRejected() throws Exception {
+        Path notAnArchive = directory.resolve("person.json");
+        Path truncated = directory.resolve("truncated.pack");
+        byte[] bytes = Files.readAllBytes(archiveFile);
+        Files.write(truncated, Arrays.copyOf(bytes, 40));
+        for (Path file : new Path[]{notAnArchive, truncated}) {
+            try {
+                FixtureArchive.open(file);
+                Assert.fail(file.toString());
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+        Path packedAgain = directory.resolve("again.pack");
+        new FixtureArchiveWriter(0).write(Files.createTempDirectory("json-none"), Collections.emptyMap(), packedAgain);
+        Assert.assertEquals(0, FixtureArchive.open(packedAgain).getFileCount());
+    }
+
+    private static String writeToChannel(HttpResponse response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(outputStream);
+        try (ResponseWriter writer = response.newWriter()) {
+            while (!writer.writeTo(channel)) {
+                // The stream channel accepts everything , one call is enough
+            }
+        }
+        return outputStream.toString("UTF-8");
+    }
+
+    private static String gunzip(HttpResponse response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.writeTo(outputStream);
+        byte[] bytes = outputStream.toByteArray();
+        int bodyStart = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("\r\n\r\n") + 4;
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes, bodyStart, bytes.length - bodyStart))) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return body.toString("UTF-8");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package home.learning.server.test;
+
+import home.learning.server.ServerConstants;
+import home.learning.server.http.HttpParseException;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpRequestParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public class HttpRequestParserTest {
+
+    @Test
+    public void testRequestLineAndHeaders() throws Exception {
+        HttpRequest request = read(parser(), "GET /person?id=1 HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding :  gzip \r\n\r\n");
+        Assert.assertEquals("GET", request.getMethod());
+        Assert.assertEquals("/person?id=1", request.getTarget());
+        Assert.assertEquals(HttpRequest.HTTP_1_1, request.getVersion());
+        Assert.assertEquals("localhost", request.getHeader("host"));
+        Assert.assertEquals("gzip", request.getHeader("ACCEPT-ENCODING"));
+        Assert.assertNull(request.getHeader("Connection"));
+        Assert.assertEquals(0, request.getBody().length);
+        Assert.assertTrue(request.isKeepAlive());
+    }
+
+    @Test
+    public void testContentLengthBody() throws Exception {
+        HttpRequest request = read(parser(), "POST /person HTTP/1.1\r\nContent-Length: 17\r\n\r\n{\"name\":\"vicky\"}\n");
+        Assert.assertEquals("POST", request.getMethod());
+        Assert.assertEquals("{\"name\":\"vicky\"}\n", new String(request.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChunkedBody() throws Exception {
+        String chunked = "PUT /person HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;ext=1\r\n{\"a\":\r\n3\r\n 1}\r\n0\r\nX-Trailer: yes\r\n\r\n";
+        HttpRequest request = read(parser(), chunked);
+        Assert.assertEquals("{\"a\": 1}", new String(request.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChunkedBodySplitAcrossReads() throws Exception {
+        String chunked = "PUT /person HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;ext=1\r\n{\"a\":\r\n3\r\n 1}\r\n0\r\nX-Trailer: yes\r\n\r\nGET /b HTTP/1.1\r\n\r\n";
+        HttpRequestParser parser = parser();
+        InputStream stream = new TrickleInputStream(chunked.getBytes(StandardCharsets.UTF_8));
+        Assert.assertEquals("{\"a\": 1}", new String(parser.readRequest(stream).getBody(), StandardCharsets.UTF_8));
+        Assert.assertEquals("/b", parser.readRequest(stream).getTarget());
+    }
+
+    @Test
+    public void testChunkFramingDoesNotCountAgainstBodyLimit() throws Exception {
+        StringBuilder chunked = new StringBuilder("PUT /person HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n");
+        for (int i = 0; i < 2000; i++) {
+            chunked.append("1\r\nx\r\n");
+        }
+        chunked.append("0\r\n\r\n");
+        HttpRequest request = read(new HttpRequestParser(1024, 2000), chunked.toString());
+        Assert.assertEquals(repeat('x', 2000), new String(request.getBody(), StandardCharsets.UTF_8));
+        HttpParseException e = Assert.assertThrows(HttpParseException.class,
+                () -> read(new HttpRequestParser(1024, 1999), chunked.toString()));
+        Assert.assertSame(ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE, e.getResponse());
+    }
+
+    @Test
+    public void testPipelinedRequestsSplitAcrossReads() throws Exception {
+        HttpRequestParser parser = parser();
+        InputStream stream = new TrickleInputStream(("POST /a HTTP/1.1\r\nContent-Length: 2\r\n\r\nhi"
+                + "GET /b HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        HttpRequest first = parser.readRequest(stream);
+        HttpRequest second = parser.readRequest(stream);
+        Assert.assertEquals("/a", first.getTarget());
+        Assert.assertEquals("hi", new String(first.getBody(), StandardCharsets.UTF_8));
+        Assert.assertEquals("/b", second.getTarget());
+        Assert.assertFalse(second.isKeepAlive());
+        Assert.assertNull(parser.readRequest(stream));
+    }
+
+    @Test
+    public void testUnterminatedRequestAtEndOfStream() throws Exception {
+        HttpRequest request = read(parser(), "GET /person HTTP/1.1");
+        Assert.assertEquals("/person", request.getTarget());
+        Assert.assertEquals(HttpRequest.HTTP_1_1, request.getVersion());
+    }
+
+    @Test
+    public void testHeaderLimit() {
+        HttpParseException e = Assert.assertThrows(HttpParseException.class,
+                () -> read(new HttpRequestParser(64, 1024), "GET /person HTTP/1.1\r\nX-Long: " + repeat('a', 100) + "\r\n\r\n"));
+        Assert.assertSame(ServerConstants.HEADER_TOO_LARGE_RESPONSE, e.getResponse());
+    }
+
+    @Test
+    public void testBodyLimit() {
+        HttpParseException e = Assert.assertThrows(HttpParseException.class,
+                () -> read(new HttpRequestParser(1024, 8), "POST /person HTTP/1.1\r\nContent-Length: 9\r\n\r\n123456789"));
+        Assert.assertSame(ServerConstants.PAYLOAD_TOO_LARGE_RESPONSE, e.getResponse());
+    }
+
+    @Test
+    public void testInvalidContentLength() {
+        HttpParseException e = Assert.assertThrows(HttpParseException.class,
+                () -> read(parser(), "POST /person HTTP/1.1\r\nContent-Length: abc\r\n\r\n"));
+        Assert.assertSame(ServerConstants.MALFORMED_REQUEST_RESPONSE, e.getResponse());
+    }
+
+    @Test
+    public void testConnectionTokens() throws Exception {
+        Assert.assertTrue(read(parser(), "GET /a HTTP/1.1\r\nConnection: x-closed\r\n\r\n").isKeepAlive());
+        Assert.assertTrue(read(parser(), "GET /a HTTP/1.1\r\nConnection: closeish\r\n\r\n").isKeepAlive());
+        Assert.assertFalse(read(parser(), "GET /a HTTP/1.1\r\nConnection: Upgrade ,\tClose\r\n\r\n").isKeepAlive());
+    }
+
+    @Test
+    public void testChunkedMustBeFinalCoding() throws Exception {
+        HttpRequest request = read(parser(), "PUT /person HTTP/1.1\r\nTransfer-Encoding: gzip, Chunked\r\n\r\n3\r\nabc\r\n0\r\n\r\n");
+        Assert.assertEquals("abc", new String(request.getBody(), StandardCharsets.UTF_8));
+        for (String coding : new String[]{"chunked, gzip", "xchunked", "gzip"}) {
+            HttpParseException e = Assert.assertThrows(coding, HttpParseException.class,
+                    () -> read(parser(), "PUT /person HTTP/1.1\r\nTransfer-Encoding: " + coding + "\r\nContent-Length: 3\r\n\r\nabc"));
+            Assert.assertSame(ServerConstants.MALFORMED_REQUEST_RESPONSE, e.getResponse());
+        }
+    }
+
+    @Test
+    public void testNonHttpInput() throws Exception {
+        HttpRequest request = read(parser(), "Hello ! Vignesh\n");
+        Assert.assertFalse(request.isHttpMethod());
+        Assert.assertFalse(request.isKeepAlive());
+    }
+
+    private HttpRequestParser parser() {
+        return new HttpRequestParser(ServerConstants.DEFAULT_MAX_HEADER_BYTES, ServerConstants.DEFAULT_MAX_BODY_BYTES);
+    }
+
+    private HttpRequest read(HttpRequestParser parser, String request) throws Exception {
+        return parser.readRequest(new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /* Hands out three bytes per read , like a slow client. */
+    private static class TrickleInputStream extends ByteArrayInputStream {
+
+        TrickleInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 3));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package home.learning.server.test;
+
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.http.ResponseWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class JsonFileCacheTest {
+
+    private Path directory;
+    private JsonFileCache cache;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("json-cache");
+        Files.write(directory.resolve("a.json"), "{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("b.json"), "{\"b\":2}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testPreloadServesFromMemory() throws Exception {
+        cache = new JsonFileCache(directory, 1024, 1024 * 1024, 0);
+        cache.preload(Arrays.asList("a.json", "b.json"));
+        Files.delete(directory.resolve("a.json"));
+        CachedJsonFile file = cache.get("a.json");
+        Assert.assertNotNull(file);
+        Assert.assertEquals("{\"a\":1}", file.getJson());
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        cache = new JsonFileCache(directory, 1024, 1024 * 1024, 0);
+        Assert.assertNull(cache.get("missing.json"));
+    }
+
+    @Test
+    public void testMissingFileIsRememberedUntilCreated() throws Exception {
+        cache = new JsonFileCache(directory, 1024, 1024 * 1024, 0);
+        cache.watch();
+        Assert.assertNull(cache.get("c.json"));
+        long misses = cache.getMissCount();
+        Assert.assertNull(cache.get("c.json"));
+        Assert.assertEquals(misses, cache.getMissCount());
+
+        Files.write(directory.resolve("c.json"), "{\"c\":3}".getBytes(StandardCharsets.UTF_8));
+        long deadline = System.currentTimeMillis() + 15000;
+        while (cache.get("c.json") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals("{\"c\":3}", cache.get("c.json").getJson());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        long entrySize = new JsonFileCache(directory, 4096, 1024 * 1024, 0).get("a.json").getSize();
+        long budget = entrySize * 3 / 2;
+        cache = new JsonFileCache(directory, budget, 1024 * 1024, 0);
+        cache.get("a.json");
+        Thread.sleep(2);
+        cache.get("b.json");
+        Assert.assertFalse(cache.contains("a.json"));
+        Assert.assertTrue(cache.contains("b.json"));
+        Assert.assertTrue(cache.getUsedBytes() <= budget);
+    }
+
+    @Test
+    public void testArrayIndexIsCountedAndKeptWhenUncached() throws Exception {
+        Files.write(directory.resolve("list.json"), "[1,2,3,4]".getBytes(StandardCharsets.UTF_8));
+        cache = new JsonFileCache(directory, 0, 1024 * 1024, 0);
+        CachedJsonFile first = cache.get("list.json");
+        long sizeWithoutIndex = first.getSize();
+        Assert.assertNotNull(first.getPage(1, 2));
+        Assert.assertTrue(first.getSize() > sizeWithoutIndex);
+
+        // Not cached , the next entry of the same version starts with the index built for the first one
+        CachedJsonFile second = cache.get("list.json");
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getSize(), second.getSize());
+        Assert.assertNotNull(second.getPage(0, 1));
+    }
+
+    @Test
+    public void testEditedFileIsReloaded() throws Exception {
+        cache = new JsonFileCache(directory, 1024, 1024 * 1024, 0);
+        cache.preload(Arrays.asList("a.json"));
+        cache.watch();
+        Files.write(directory.resolve("a.json"), "{\"a\":2}".getBytes(StandardCharsets.UTF_8));
+        long deadline = System.currentTimeMillis() + 15000;
+        while (!"{\"a\":2}".equals(cache.get("a.json").getJson()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals("{\"a\":2}", cache.get("a.json").getJson());
+    }
+
+    @Test
+    public void testLargeFileServedFromDisk() throws Exception {
+        cache = new JsonFileCache(directory, 1024, 4, 0);
+        CachedJsonFile file = cache.get("a.json");
+        Assert.assertFalse(file.isInMemory());
+        Assert.assertNull(file.getContent());
+        String excepted = "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: 7\r\n\r\n{\"a\":1}";
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        file.getResponse().writeTo(outputStream);
+        Assert.assertEquals(excepted, ServerTest.withoutValidators(outputStream.toString("UTF-8")));
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(channelOutput);
+        try (ResponseWriter writer = file.getResponse().newWriter()) {
+            while (!writer.writeTo(channel)) {
+                Thread.yield();
+            }
+        }
+        Assert.assertEquals(excepted, ServerTest.withoutValidators(channelOutput.toString("UTF-8")));
+        Path sent = Files.createTempFile(directory, "sent", ".http");
+        try (FileChannel target = FileChannel.open(sent, StandardOpenOption.WRITE)) {
+            file.getResponse().writeTo(target);
+        }
+        Assert.assertEquals(excepted, ServerTest.withoutValidators(new String(Files.readAllBytes(sent), StandardCharsets.UTF_8)));
+    }
+}
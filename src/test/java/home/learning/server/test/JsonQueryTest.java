@@ -0,0 +1,111 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.EncodedResponse;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.query.JsonQuery;
+import home.learning.server.query.JsonTokenizer;
+import home.learning.server.query.QueryResultCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public class JsonQueryTest {
+
+    private static final String USERS = "[{\"id\":1,\"name\":\"anu\",\"country\":\"india\",\"tags\":[\"a\",{\"country\":\"peru\"}],\"active\":true},\n"
+            + " {\"id\":2,\"name\":\"bob\",\"country\":\"peru\",\"active\":false},\n"
+            + " {\"id\":3,\"name\":\"chi\\\"na\",\"country\":\"ind\\u0069a\",\"active\":true},\n"
+            + " 42]";
+
+    @Test
+    public void testTokenizerReportsTokensAndPositions() {
+        JsonTokenizer tokenizer = new JsonTokenizer(buffer("{\"a\" : [1, \"x\\\"y\"], \"b\":{}}"));
+        int[] expected = {JsonTokenizer.BEGIN_OBJECT, JsonTokenizer.NAME, JsonTokenizer.BEGIN_ARRAY, JsonTokenizer.LITERAL,
+                JsonTokenizer.STRING, JsonTokenizer.END_ARRAY, JsonTokenizer.NAME, JsonTokenizer.BEGIN_OBJECT,
+                JsonTokenizer.END_OBJECT, JsonTokenizer.END_OBJECT, JsonTokenizer.END};
+        for (int type : expected) {
+            Assert.assertEquals(type, tokenizer.next());
+            if (type == JsonTokenizer.STRING) {
+                Assert.assertTrue(tokenizer.tokenEquals("x\"y".getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        for (String malformed : new String[]{"[1, 2", "{\"a\":1]", "\"open"}) {
+            try {
+                JsonTokenizer invalid = new JsonTokenizer(buffer(malformed));
+                while (invalid.next() != JsonTokenizer.END) {
+                    // Read to the end
+                }
+                Assert.fail(malformed);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testProjectionAndFilters() {
+        Assert.assertEquals("[{\"id\":1,\"name\":\"anu\"},{\"id\":3,\"name\":\"chi\\\"na\"}]",
+                apply("?fields=name,id&country=india", USERS));
+        Assert.assertEquals("[{\"id\":2,\"name\":\"bob\",\"country\":\"peru\",\"active\":false}]", apply("?active=false", USERS));
+        Assert.assertEquals("[{\"tags\":[\"a\",{\"country\":\"peru\"}]},{},{},42]", apply("?fields=tags", USERS));
+        Assert.assertEquals("[]", apply("?country=chile&page=2", USERS));
+        Assert.assertEquals("{\"name\":\"carl\"}", apply("?fields=name,missing&country=india", "{\"age\":30, \"name\":\"carl\"}"));
+        Assert.assertNull(apply("?fields=name", "\"text\""));
+        Assert.assertNull(JsonQuery.of(HttpRequest.parse("GET /users?page=2&size=5 HTTP/1.1\r\n\r\n").getQueryParameters()));
+        Assert.assertEquals(query("?fields=name,id&country=india").toString(), query("?country=india&fields=id,name").toString());
+    }
+
+    @Test
+    public void testResultCacheIsBounded() {
+        EncodedResponse response = EncodedResponse.of(ServerConstants.REQUEST_OK, ServerConstants.CONTENT_TYPE_JSON, "[1,2,3]");
+        long entrySize = response.length() + 2;
+        QueryResultCache cache = new QueryResultCache(entrySize * 2);
+        cache.put("a", response);
+        cache.put("b", response);
+        Assert.assertSame(response, cache.get("a"));
+        cache.put("c", response);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(entrySize * 2, cache.getUsedBytes());
+    }
+
+    @Test
+    public void testServerAnswersQueriesFromTheMemo() throws Exception {
+        Path directory = Files.createTempDirectory("json-query");
+        Files.write(directory.resolve("users.json"), USERS.getBytes(StandardCharsets.UTF_8));
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty(ServerConstants.QUERY_ENABLED, "true");
+        properties.setProperty("users", "users.json");
+        Server server = new Server(properties);
+        try {
+            HttpResponse response = server.getResponse("GET /users?country=india&fields=id HTTP/1.1\r\n\r\n");
+            Assert.assertTrue(TestSupport.write(response).endsWith("\r\n\r\n[{\"id\":1},{\"id\":3}]"));
+            Assert.assertSame(response, server.getResponse("GET /users?fields=id&country=india HTTP/1.1\r\n\r\n"));
+            Assert.assertTrue(TestSupport.write(server.getResponse("GET /users HTTP/1.1\r\n\r\n")).endsWith(USERS));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static JsonQuery query(String queryString) {
+        return JsonQuery.of(HttpRequest.parse("GET /users" + queryString + " HTTP/1.1\r\n\r\n").getQueryParameters());
+    }
+
+    private static String apply(String queryString, String json) {
+        byte[] result = query(queryString).apply(buffer(json));
+        return result != null ? new String(result, StandardCharsets.UTF_8) : null;
+    }
+
+    private static ByteBuffer buffer(String json) {
+        return ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,93 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.nio.NioServerEngine;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class NioServerEngineTest {
+
+    private NioServerEngine engine;
+
+    @Before
+    public void startEngine() throws Exception {
+        engine = new NioServerEngine(new Server(), 2);
+        engine.bind(0);
+        Thread acceptor = new Thread(engine::acceptConnections);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void stopEngine() {
+        engine.close();
+    }
+
+    @Test
+    public void testRespondHttpDataToClient() throws Exception {
+        String response = ServerTest.withoutValidators(sendRequest(ServerTest.RAW_HTTP_REQUEST + "\r\n\r\n"));
+        String excepted = ServerTest.RAW_HTTP_RESPONSE.replaceAll("\r\n", "").replaceAll(" ", "");
+        String actual = response.replaceAll("\r\n", "").replaceAll(" ", "");
+        Assert.assertEquals(excepted, actual);
+    }
+
+    @Test
+    public void testRespondNegateHttpDataToClient() throws Exception {
+        String response = sendRequest(ServerTest.RAW_HTTP_ERROR_PATH_REQ + "\r\n\r\n");
+        String excepted = ServerTest.RAW_HTTP_NO_MAPPING_FOUND_ERROR_RESPONSE.replaceAll("\r\n", "").replaceAll(" ", "");
+        String actual = response.replaceAll("\r\n", "").replaceAll(" ", "");
+        Assert.assertEquals(excepted, actual);
+    }
+
+    @Test
+    public void testReturnErrorResponseToClient() throws Exception {
+        String response = sendRequest("Hello ! This is not HTTP\r\n\r\n");
+        Assert.assertEquals(ServerTest.RAW_HTTP_ERROR_RESPONSE, response);
+    }
+
+    @Test
+    public void testRequestEndedByEndOfStream() throws Exception {
+        try (Socket socket = new Socket("localhost", engine.getLocalPort())) {
+            socket.getOutputStream().write("GET /person HTTP/1.1".getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            String response = readFully(socket.getInputStream());
+            Assert.assertTrue(response.startsWith("HTTP/1.1 200 OK"));
+        }
+    }
+
+    @Test
+    public void testPipelinedKeepAliveRequests() throws Exception {
+        String request = "GET /person HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        String lastRequest = "GET /person HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+        String response = sendRequest(request + request + lastRequest);
+        Assert.assertEquals(3, response.split("HTTP/1.1 200 OK").length - 1);
+    }
+
+    private String sendRequest(String request) throws Exception {
+        try (Socket socket = new Socket("localhost", engine.getLocalPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write(request.getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+            return readFully(socket.getInputStream());
+        }
+    }
+
+    private String readFully(InputStream inputStream) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
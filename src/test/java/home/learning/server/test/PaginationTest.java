@@ -0,0 +1,123 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.http.ResponseWriter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+public class PaginationTest {
+
+    private static final String ARRAY = " [ {\"id\":0,\"tags\":[\"a,b\",\"]\"]} ,\n \"x\\\"],\" , 2,[3,[4]] , null ]\n";
+
+    private Path directory;
+    private JsonFileCache cache;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("json-pages");
+        Files.write(directory.resolve("list.json"), ARRAY.getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("object.json"), "{\"a\":[1,2]}".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("broken.json"), "[1,2".getBytes(StandardCharsets.UTF_8));
+        StringBuilder large = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            large.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append('}');
+        }
+        Files.write(directory.resolve("large.json"), large.append(']').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testPagesFromMemory() throws Exception {
+        cache = new JsonFileCache(directory, 1024 * 1024, 1024 * 1024, 0);
+        assertPages(cache.get("list.json"));
+    }
+
+    @Test
+    public void testPagesFromDisk() throws Exception {
+        cache = new JsonFileCache(directory, 1024 * 1024, 4, 0);
+        CachedJsonFile file = cache.get("list.json");
+        Assert.assertFalse(file.isInMemory());
+        assertPages(file);
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(channelOutput);
+        try (ResponseWriter writer = file.getPage(1, 2).newWriter()) {
+            while (!writer.writeTo(channel)) {
+                Thread.yield();
+            }
+        }
+        Assert.assertEquals("[\"x\\\"],\" , 2]", body(channelOutput.toString("UTF-8")));
+    }
+
+    @Test
+    public void testOnlyWellFormedArraysArePaged() throws Exception {
+        cache = new JsonFileCache(directory, 1024 * 1024, 1024 * 1024, 0);
+        Assert.assertNull(cache.get("object.json").getPage(0, 10));
+        Assert.assertNull(cache.get("broken.json").getPage(0, 10));
+    }
+
+    @Test
+    public void testServerPagesMappedArrays() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty(ServerConstants.PAGINATION_ENABLED, "true");
+        properties.setProperty(ServerConstants.PAGINATION_MAX_SIZE, "100");
+        properties.setProperty("items", "large.json");
+        properties.setProperty("object", "object.json");
+        Server server = new Server(properties);
+
+        String page = writePage(server.getResponse(HttpRequest.parse("GET /items?page=3&size=2 HTTP/1.1")));
+        Assert.assertTrue(page.contains(ServerConstants.TOTAL_COUNT + ": 10000"));
+        Assert.assertEquals("[{\"id\":4},{\"id\":5}]", body(page));
+        Assert.assertEquals("[{\"id\":9998},{\"id\":9999}]", body(writePage(server.getResponse(HttpRequest.parse("GET /items?offset=9998&limit=5 HTTP/1.1")))));
+        Assert.assertEquals(100, body(writePage(server.getResponse(HttpRequest.parse("GET /items?limit=100000 HTTP/1.1")))).split("\\},\\{").length);
+        Assert.assertEquals(20, body(writePage(server.getResponse(HttpRequest.parse("GET /items?page=1 HTTP/1.1")))).split("\\},\\{").length);
+        Assert.assertEquals(400, server.getResponse(HttpRequest.parse("GET /items?page=0 HTTP/1.1")).getStatusCode());
+        Assert.assertEquals(400, server.getResponse(HttpRequest.parse("GET /items?offset=x HTTP/1.1")).getStatusCode());
+        Assert.assertEquals("{\"a\":[1,2]}", body(writePage(server.getResponse(HttpRequest.parse("GET /object?page=2 HTTP/1.1")))));
+        Assert.assertEquals(10000, body(writePage(server.getResponse(HttpRequest.parse("GET /items HTTP/1.1")))).split("\\},\\{").length);
+    }
+
+    private void assertPages(CachedJsonFile file) throws Exception {
+        Assert.assertEquals("[{\"id\":0,\"tags\":[\"a,b\",\"]\"]}]", body(writePage(file.getPage(0, 1))));
+        Assert.assertEquals("[\"x\\\"],\" , 2,[3,[4]] , null]", body(writePage(file.getPage(1, 10))));
+        Assert.assertEquals("[[3,[4]]]", body(writePage(file.getPage(3, 1))));
+        Assert.assertEquals("[]", body(writePage(file.getPage(5, 10))));
+        Assert.assertEquals("[]", body(writePage(file.getPage(2, 0))));
+        Assert.assertTrue(writePage(file.getPage(0, 1)).contains(ServerConstants.TOTAL_COUNT + ": 5"));
+    }
+
+    /* Writes the page and checks its size and Content-Length against the bytes written. */
+    private String writePage(HttpResponse response) throws Exception {
+        String text = TestSupport.write(response);
+        Assert.assertEquals(response.getSize(), text.getBytes(StandardCharsets.UTF_8).length);
+        int length = Integer.parseInt(text.replaceAll("(?s).*Content-Length: (\\d+).*", "$1"));
+        Assert.assertEquals(length, body(text).getBytes(StandardCharsets.UTF_8).length);
+        return text;
+    }
+
+    private String body(String response) {
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+}
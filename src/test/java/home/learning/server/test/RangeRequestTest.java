@@ -0,0 +1,158 @@
+package home.learning.server.test;
+
+import home.learning.server.cache.CachedJsonFile;
+import home.learning.server.cache.JsonFileCache;
+import home.learning.server.http.ByteRanges;
+import home.learning.server.http.HttpDates;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.http.ResponseWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RangeRequestTest {
+
+    private static final String BODY = "{\"digits\":\"0123456789\",\"letters\":\"abcdefghijklmnopqrstuvwxyz"
+            + "abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyz\"}";
+
+    private CachedJsonFile inMemory;
+    private CachedJsonFile onDisk;
+
+    @Before
+    public void createFiles() throws Exception {
+        Path directory = Files.createTempDirectory("json-range");
+        Files.write(directory.resolve("a.json"), BODY.getBytes(StandardCharsets.UTF_8));
+        inMemory = new JsonFileCache(directory, 1 << 20, 1 << 20, 16).get("a.json");
+        onDisk = new JsonFileCache(directory, 1 << 20, 4, 0).get("a.json");
+        Assert.assertTrue(inMemory.isInMemory());
+        Assert.assertFalse(onDisk.isInMemory());
+    }
+
+    @Test
+    public void testParse() {
+        Assert.assertArrayEquals(new long[]{0, 9}, ByteRanges.parse("bytes=0-9", 100));
+        Assert.assertArrayEquals(new long[]{90, 99}, ByteRanges.parse("bytes=-10", 100));
+        Assert.assertArrayEquals(new long[]{0, 99}, ByteRanges.parse("bytes=-500", 100));
+        Assert.assertArrayEquals(new long[]{95, 99, 0, 0}, ByteRanges.parse("Bytes=95- , 0-0", 100));
+        Assert.assertArrayEquals(new long[]{10, 99}, ByteRanges.parse("bytes=10-1000, 200-300", 100));
+        Assert.assertArrayEquals(new long[0], ByteRanges.parse("bytes=100-200", 100));
+        Assert.assertArrayEquals(new long[0], ByteRanges.parse("bytes=-0", 100));
+        for (String ignored : new String[]{"items=0-1", "bytes=5-1", "bytes=a-b", "bytes=1", "bytes=", "bytes=0-99,0-99"}) {
+            Assert.assertNull(ignored, ByteRanges.parse(ignored, 100));
+        }
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        for (CachedJsonFile file : new CachedJsonFile[]{inMemory, onDisk}) {
+            String response = respond(file, "Range: bytes=11-20\r\n");
+            Assert.assertTrue(response, response.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+            Assert.assertTrue(response.contains("Content-Length: 10\r\n"));
+            Assert.assertTrue(response.contains("Content-Range: bytes 11-20/" + BODY.length() + "\r\n"));
+            Assert.assertTrue(response.contains("ETag: " + file.getEtag() + "\r\n"));
+            Assert.assertTrue(response.endsWith("\r\n\r\n0123456789"));
+            Assert.assertEquals(response, writeSlowly(response(file, "Range: bytes=11-20\r\n")));
+            Assert.assertTrue(respond(file, "Range: bytes=-3\r\n").endsWith("\r\n\r\nz\"}"));
+        }
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+        for (CachedJsonFile file : new CachedJsonFile[]{inMemory, onDisk}) {
+            HttpResponse response = response(file, "Range: bytes=0-0, -2\r\n");
+            String text = TestSupport.write(response, "ISO-8859-1");
+            String boundary = "byteranges-" + file.getEtag().replace("\"", "");
+            String body = "--" + boundary + "\r\nContent-Type: application/json\r\nContent-Range: bytes 0-0/" + BODY.length() + "\r\n\r\n{"
+                    + "\r\n--" + boundary + "\r\nContent-Type: application/json\r\nContent-Range: bytes " + (BODY.length() - 2) + "-"
+                    + (BODY.length() - 1) + "/" + BODY.length() + "\r\n\r\n\"}"
+                    + "\r\n--" + boundary + "--\r\n";
+            Assert.assertTrue(text, text.startsWith("HTTP/1.1 206 Partial Content\r\nContent-Type: multipart/byteranges; boundary=" + boundary
+                    + "\r\nContent-Length: " + body.length() + "\r\n"));
+            Assert.assertTrue(text.endsWith("\r\n\r\n" + body));
+            Assert.assertEquals(text.length(), response.getSize());
+            Assert.assertEquals(text, writeSlowly(response));
+        }
+    }
+
+    @Test
+    public void testUnsatisfiableAndIgnoredRanges() throws Exception {
+        String response = respond(inMemory, "Range: bytes=500-\r\n");
+        Assert.assertTrue(response.startsWith("HTTP/1.1 416 Range Not Satisfiable\r\n"));
+        Assert.assertTrue(response.contains("Content-Range: bytes */" + BODY.length() + "\r\n"));
+        Assert.assertTrue(respond(inMemory, "Range: lines=1-2\r\n").startsWith("HTTP/1.1 200 OK"));
+        Assert.assertEquals(200, inMemory.getResponse(HttpRequest.parse("HEAD /a HTTP/1.1\r\nRange: bytes=0-1\r\n\r\n")).getStatusCode());
+    }
+
+    @Test
+    public void testIfRange() throws Exception {
+        String lastModified = HttpDates.format(inMemory.getLastModified());
+        Assert.assertEquals(206, response(inMemory, "Range: bytes=0-1\r\nIf-Range: " + inMemory.getEtag() + "\r\n").getStatusCode());
+        Assert.assertEquals(206, response(inMemory, "Range: bytes=0-1\r\nIf-Range: " + lastModified + "\r\n").getStatusCode());
+        Assert.assertEquals(200, response(inMemory, "Range: bytes=0-1\r\nIf-Range: \"other\"\r\n").getStatusCode());
+        Assert.assertEquals(200, response(inMemory, "Range: bytes=0-1\r\nIf-Range: W/" + inMemory.getEtag() + "\r\n").getStatusCode());
+        Assert.assertEquals(200, response(inMemory, "Range: bytes=0-1\r\nIf-Range: Mon, 01 Jan 2001 00:00:00 GMT\r\n").getStatusCode());
+        Assert.assertEquals(304, response(inMemory, "Range: bytes=0-1\r\nIf-None-Match: " + inMemory.getEtag() + "\r\n").getStatusCode());
+    }
+
+    @Test
+    public void testRangeOfCompressedVariant() throws Exception {
+        HttpResponse whole = response(inMemory, "Accept-Encoding: gzip\r\n");
+        String response = respond(inMemory, "Accept-Encoding: gzip\r\nRange: bytes=0-1\r\n");
+        Assert.assertTrue(response.startsWith("HTTP/1.1 206 Partial Content\r\n"));
+        Assert.assertTrue(response.contains("Content-Encoding: gzip\r\n"));
+        Assert.assertTrue(response.contains("Vary: Accept-Encoding\r\n"));
+        String wholeText = TestSupport.write(whole, "ISO-8859-1");
+        int bodyLength = wholeText.length() - wholeText.indexOf("\r\n\r\n") - 4;
+        Assert.assertTrue(response.contains("Content-Range: bytes 0-1/" + bodyLength + "\r\n"));
+        // The gzip magic number
+        Assert.assertTrue(response.endsWith("\r\n\r\n\u001f\u008b"));
+    }
+
+    private static HttpResponse response(CachedJsonFile file, String headers) {
+        return file.getResponse(HttpRequest.parse("GET /a HTTP/1.1\r\n" + headers + "\r\n"));
+    }
+
+    private static String respond(CachedJsonFile file, String headers) throws IOException {
+        return TestSupport.write(response(file, headers), "ISO-8859-1");
+    }
+
+    /* Writes through a channel accepting 3 bytes per call , like a full socket buffer. */
+    private static String writeSlowly(HttpResponse response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int count = Math.min(3, source.remaining());
+                for (int i = 0; i < count; i++) {
+                    outputStream.write(source.get());
+                }
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try (ResponseWriter writer = response.newWriter()) {
+            int calls = 0;
+            while (!writer.writeTo(channel)) {
+                Assert.assertTrue(++calls < 10000);
+            }
+        }
+        return outputStream.toString("ISO-8859-1");
+    }
+}
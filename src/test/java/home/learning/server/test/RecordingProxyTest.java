@@ -0,0 +1,200 @@
+package home.learning.server.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RecordingProxyTest {
+
+    private HttpServer upstream;
+    private final AtomicInteger upstreamRequests = new AtomicInteger();
+    private volatile boolean upstreamDown;
+    private Path directory;
+    private Path propertiesFile;
+    private Server server;
+
+    @Before
+    public void startUpstream() throws Exception {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.createContext("/", this::handle);
+        upstream.start();
+        directory = Files.createTempDirectory("json-proxy");
+        Files.write(directory.resolve("person.json"), "{\"name\":\"carl\"}".getBytes(StandardCharsets.UTF_8));
+        propertiesFile = directory.resolve("server.properties");
+        String properties = ServerConstants.JSON_FILE_LOCATION + "=" + directory.toString().replace('\\', '/') + "\n"
+                + ServerConstants.PROXY_UPSTREAM + "=http://localhost:" + upstream.getAddress().getPort() + "\n"
+                + ServerConstants.PROXY_HEALTH_PATH + "=/health\n"
+                + ServerConstants.PROXY_HEALTH_INTERVAL_MS + "=50\n"
+                + "person=person.json";
+        Files.write(propertiesFile, properties.getBytes(StandardCharsets.ISO_8859_1));
+        server = new Server(propertiesFile);
+    }
+
+    @After
+    public void stop() {
+        server.stop();
+        upstream.stop(0);
+    }
+
+    /* Stand-in back end : 503 while down , echoes POST bodies , JSON for everything else. */
+    private void handle(HttpExchange exchange) throws IOException {
+        upstreamRequests.incrementAndGet();
+        byte[] body;
+        int status = 200;
+        if (upstreamDown) {
+            status = 503;
+            body = "{\"down\":true}".getBytes(StandardCharsets.UTF_8);
+        } else if ("POST".equals(exchange.getRequestMethod())) {
+            status = 201;
+            body = TestSupport.readFully(exchange.getRequestBody());
+        } else {
+            body = ("{\"path\":\"" + exchange.getRequestURI() + "\",\"token\":\"" + exchange.getRequestHeaders().getFirst("X-Token") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    @Test
+    public void testUnmappedRequestIsForwardedRecordedAndReplayed() throws Exception {
+        String response = TestSupport.write(server.getResponse(request("GET /users/1 HTTP/1.1\r\nX-Token: abc\r\n\r\n")));
+        Assert.assertTrue(response, response.startsWith("HTTP/1.1 200 OK"));
+        Assert.assertTrue(response.endsWith("{\"path\":\"/users/1\",\"token\":\"abc\"}"));
+        Assert.assertEquals(1, upstreamRequests.get());
+
+        Path recorded = directory.resolve("recorded-users-1.json");
+        for (int i = 0; i < 100 && !new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1).contains("GET@users/1=recorded-users-1.json"); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(Files.exists(recorded));
+        Assert.assertTrue(new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1).endsWith("GET@users/1=recorded-users-1.json\n"));
+
+        response = TestSupport.write(server.getResponse(request("GET /users/1 HTTP/1.1\r\n\r\n")));
+        Assert.assertTrue(response.endsWith("{\"path\":\"/users/1\",\"token\":\"abc\"}"));
+        Assert.assertEquals(1, upstreamRequests.get());
+        Assert.assertEquals(200, server.getResponse(request("GET /person HTTP/1.1\r\n\r\n")).getStatusCode());
+        Assert.assertEquals(1, upstreamRequests.get());
+    }
+
+    @Test
+    public void testRecordingsOfSimilarPathsDoNotCollide() throws Exception {
+        server.getResponse(request("GET /a/b HTTP/1.1\r\n\r\n"));
+        server.getResponse(request("GET /a-b HTTP/1.1\r\n\r\n"));
+        awaitMapping("GET@a-b=recorded-a_-b.json");
+        awaitMapping("GET@a/b=recorded-a-b.json");
+        Assert.assertTrue(new String(Files.readAllBytes(directory.resolve("recorded-a-b.json")), StandardCharsets.UTF_8).contains("/a/b"));
+        Assert.assertTrue(new String(Files.readAllBytes(directory.resolve("recorded-a_-b.json")), StandardCharsets.UTF_8).contains("/a-b"));
+    }
+
+    @Test
+    public void testRecordingKeepsMappingsAddedSinceStartup() throws Exception {
+        Files.write(propertiesFile, "\nextra=person.json\n".getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.APPEND);
+        server.getResponse(request("GET /users/1 HTTP/1.1\r\n\r\n"));
+        awaitMapping("GET@users/1=recorded-users-1.json");
+        String extra = "";
+        for (int i = 0; i < 100 && !extra.endsWith("{\"name\":\"carl\"}"); i++) {
+            Thread.sleep(50);
+            extra = TestSupport.write(server.getResponse(request("GET /extra HTTP/1.1\r\n\r\n")));
+        }
+        Assert.assertTrue(extra, extra.endsWith("{\"name\":\"carl\"}"));
+    }
+
+    @Test
+    public void testForwardedOverNio() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty(ServerConstants.PROXY_UPSTREAM, "http://localhost:" + upstream.getAddress().getPort());
+        properties.setProperty(ServerConstants.PROXY_RECORD, "false");
+        properties.setProperty(ServerConstants.SERVER_PORT, "0");
+        properties.setProperty(ServerConstants.SERVER_MODE, ServerConstants.SERVER_MODE_NIO);
+        properties.setProperty(ServerConstants.NIO_LOOPS, "1");
+        properties.setProperty("person", "person.json");
+        Server nioServer = new Server(properties);
+        new Thread(nioServer::runServer).start();
+        Assert.assertTrue(nioServer.awaitStarted(5, TimeUnit.SECONDS));
+        try (Socket client = new Socket("localhost", nioServer.getLocalPort())) {
+            client.setSoTimeout(5000);
+            client.getOutputStream().write(("GET /users/9 HTTP/1.1\r\n\r\nGET /person HTTP/1.1\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            String responses = new String(TestSupport.readFully(client.getInputStream()), StandardCharsets.UTF_8);
+            int second = responses.indexOf("HTTP/1.1 200 OK", 1);
+            Assert.assertTrue(responses, responses.startsWith("HTTP/1.1 200 OK") && second > 0);
+            Assert.assertTrue(responses.substring(0, second).endsWith("{\"path\":\"/users/9\",\"token\":\"null\"}"));
+            Assert.assertTrue(responses.endsWith("{\"name\":\"carl\"}"));
+        } finally {
+            nioServer.stop();
+        }
+    }
+
+    @Test
+    public void testWritesAreForwardedButNotRecorded() throws Exception {
+        String response = TestSupport.write(server.getResponse(request("POST /orders HTTP/1.1\r\nContent-Length: 9\r\n\r\n{\"id\":42}")));
+        Assert.assertTrue(response, response.startsWith("HTTP/1.1 201 Created"));
+        Assert.assertTrue(response.endsWith("{\"id\":42}"));
+        server.getResponse(request("GET /orders?page=2 HTTP/1.1\r\n\r\n"));
+        server.getResponse(request("GET /orders?page=2 HTTP/1.1\r\n\r\n"));
+        Assert.assertEquals(3, upstreamRequests.get());
+        server.stop();
+        Assert.assertFalse(new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1).contains("orders"));
+    }
+
+    @Test
+    public void testFailoverWhileUpstreamIsDown() throws Exception {
+        Assert.assertEquals(200, server.getResponse(request("GET /users HTTP/1.1\r\n\r\n")).getStatusCode());
+        upstreamDown = true;
+        Assert.assertEquals(503, server.getResponse(request("GET /orders HTTP/1.1\r\n\r\n")).getStatusCode());
+        int requests = upstreamRequests.get();
+        HttpResponse response = server.getResponse(request("GET /orders HTTP/1.1\r\n\r\n"));
+        Assert.assertEquals(502, response.getStatusCode());
+        Assert.assertEquals(200, server.getResponse(request("GET /users HTTP/1.1\r\n\r\n")).getStatusCode());
+        Assert.assertTrue(upstreamRequests.get() - requests <= 2);
+
+        upstreamDown = false;
+        int status = 502;
+        for (int i = 0; i < 100 && status == 502; i++) {
+            Thread.sleep(50);
+            status = server.getResponse(request("GET /orders HTTP/1.1\r\n\r\n")).getStatusCode();
+        }
+        Assert.assertEquals(200, status);
+    }
+
+    @Test
+    public void testUnreachableUpstreamAnswers502() throws Exception {
+        upstream.stop(0);
+        Assert.assertEquals(502, server.getResponse(request("GET /users HTTP/1.1\r\n\r\n")).getStatusCode());
+        Assert.assertEquals(200, server.getResponse(request("GET /person HTTP/1.1\r\n\r\n")).getStatusCode());
+    }
+
+    private void awaitMapping(String mapping) throws Exception {
+        for (int i = 0; i < 100 && !new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1).contains(mapping); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1).contains(mapping));
+    }
+
+    private static HttpRequest request(String text) {
+        return HttpRequest.parse(text);
+    }
+}
@@ -0,0 +1,230 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.store.ResourceCollection;
+import home.learning.server.store.ResourceStore;
+import home.learning.server.store.WriteLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ResourceStoreTest {
+
+    private static final String USERS = "[{\"id\":1,\"name\":\"ann\"},{\"id\":2,\"name\":\"bob\"}]";
+
+    private Path directory;
+    private Path logFile;
+    private ResourceStore store;
+
+    @Before
+    public void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("json-store");
+        logFile = directory.resolve("store.log");
+        Files.write(directory.resolve("users.json"), USERS.getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("person.json"), "{\"name\":\"carl\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void closeStore() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testChangesAreReplayedAfterRestart() throws Exception {
+        store = ResourceStore.open(logFile);
+        ResourceCollection users = users(store);
+        Assert.assertEquals("3", users.create(bytes("{\"name\":\"cid\"}")).getId());
+        Assert.assertNull(users.create(bytes("{\"id\":1,\"name\":\"dup\"}")));
+        users.put("1", bytes("{\"name\":\"anna\"}"));
+        Assert.assertTrue(users.delete("2"));
+        Assert.assertFalse(users.delete("2"));
+        store.close();
+
+        store = ResourceStore.open(logFile);
+        users = users(store);
+        Assert.assertEquals("[{\"id\":1,\"name\":\"anna\"},{\"id\":3,\"name\":\"cid\"}]", text(users.toJson()));
+        Assert.assertEquals("4", users.create(bytes("{}")).getId());
+    }
+
+    @Test
+    public void testFailedLogWriteUndoesTheChange() throws Exception {
+        store = ResourceStore.open(logFile);
+        ResourceCollection users = users(store);
+        Field channelField = WriteLog.class.getDeclaredField("channel");
+        channelField.setAccessible(true);
+        ((FileChannel) channelField.get(store.getWriteLog())).close();
+
+        Assert.assertThrows(IOException.class, () -> users.create(bytes("{\"name\":\"cid\"}")));
+        Assert.assertThrows(IOException.class, () -> users.put("1", bytes("{\"name\":\"anna\"}")));
+        Assert.assertThrows(IOException.class, () -> users.put("9", bytes("{\"name\":\"ivy\"}")));
+        Assert.assertThrows(IOException.class, () -> users.delete("2"));
+        Assert.assertEquals(USERS, text(users.toJson()));
+    }
+
+    @Test
+    public void testTornRecordIsCutOff() throws Exception {
+        store = ResourceStore.open(logFile);
+        users(store).create(bytes("{\"name\":\"cid\"}"));
+        store.close();
+        Files.write(logFile, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        long intact = Files.size(logFile) - 7;
+
+        store = ResourceStore.open(logFile);
+        Assert.assertEquals(intact, Files.size(logFile));
+        ResourceCollection users = users(store);
+        Assert.assertEquals(3, users.size());
+        users.create(bytes("{\"name\":\"dan\"}"));
+        store.close();
+
+        store = ResourceStore.open(logFile);
+        Assert.assertEquals(4, users(store).size());
+    }
+
+    @Test
+    public void testConcurrentWritersShareSyncs() throws Exception {
+        store = ResourceStore.open(logFile);
+        ResourceCollection users = users(store);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 50; j++) {
+                    users.create(bytes("{\"name\":\"load\"}"));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals(402, users.size());
+        Assert.assertEquals(400, store.getWriteLog().getRecordCount());
+        Assert.assertTrue(store.getWriteLog().getSyncCount() <= 400);
+        store.close();
+
+        store = ResourceStore.open(logFile);
+        Assert.assertEquals(402, users(store).size());
+    }
+
+    @Test
+    public void testInvalidBodiesAndFixtures() throws Exception {
+        store = ResourceStore.open(null);
+        ResourceCollection users = users(store);
+        for (String body : new String[]{"[1]", "{\"a\":}", "{\"id\":true}", "{\"a\":1} x", "{\"a\":\"b"}) {
+            try {
+                users.create(bytes(body));
+                Assert.fail(body);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        try {
+            users.put("1", bytes("{\"id\":2}"));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        Assert.assertNull(store.getCollection("person", () -> Files.readAllBytes(directory.resolve("person.json"))));
+    }
+
+    @Test
+    public void testStatefulServer() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty(ServerConstants.STATEFUL_ENABLED, "true");
+        properties.setProperty(ServerConstants.STATEFUL_LOG, logFile.toString());
+        properties.setProperty("users", "users.json");
+        properties.setProperty("person", "person.json");
+        Server server = new Server(properties);
+        try {
+            String created = TestSupport.write(server.getResponse(request("POST /users", "{\"name\":\"cid\"}")));
+            Assert.assertTrue(created.startsWith(ServerConstants.CREATED));
+            Assert.assertTrue(created.contains("Location: /users/3\r\n"));
+            Assert.assertTrue(created.endsWith("{\"id\":3,\"name\":\"cid\"}"));
+            Assert.assertTrue(TestSupport.write(server.getResponse(request("GET /users/3", null))).endsWith("{\"id\":3,\"name\":\"cid\"}"));
+            String head = TestSupport.write(server.getResponse(request("HEAD /users/3", null)));
+            Assert.assertTrue(head.contains("Content-Length: 21\r\n"));
+            Assert.assertTrue(head.endsWith("\r\n\r\n"));
+            Assert.assertEquals(200, server.getResponse(request("PUT /users/3", "{\"name\":\"cyd\"}")).getStatusCode());
+            Assert.assertEquals(204, server.getResponse(request("DELETE /users/1", null)).getStatusCode());
+            Assert.assertEquals(404, server.getResponse(request("GET /users/1", null)).getStatusCode());
+            Assert.assertEquals(405, server.getResponse(request("POST /users/2", "{}")).getStatusCode());
+            Assert.assertEquals(400, server.getResponse(request("POST /users", "not json")).getStatusCode());
+            Assert.assertTrue(TestSupport.write(server.getResponse(request("GET /users", null)))
+                    .endsWith("[{\"id\":2,\"name\":\"bob\"},{\"id\":3,\"name\":\"cyd\"}]"));
+            Assert.assertTrue(TestSupport.write(server.getResponse(request("GET /person", null))).endsWith("{\"name\":\"carl\"}"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testStatefulWritesOverNio() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, directory.toString());
+        properties.setProperty(ServerConstants.SERVER_PORT, "0");
+        properties.setProperty(ServerConstants.SERVER_MODE, ServerConstants.SERVER_MODE_NIO);
+        properties.setProperty(ServerConstants.NIO_LOOPS, "1");
+        properties.setProperty(ServerConstants.STATEFUL_ENABLED, "true");
+        properties.setProperty(ServerConstants.STATEFUL_LOG, logFile.toString());
+        properties.setProperty("users", "users.json");
+        Server server = new Server(properties);
+        new Thread(server::runServer).start();
+        Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(5000);
+            String body = "{\"name\":\"cid\"}";
+            client.getOutputStream().write(bytes("POST /users HTTP/1.1\r\nContent-Length: " + body.length() + "\r\n\r\n" + body
+                    + "GET /users/3 HTTP/1.1\r\nConnection: close\r\n\r\n"));
+            String responses = text(TestSupport.readFully(client.getInputStream()));
+            int second = responses.indexOf("HTTP/1.1 200 OK");
+            Assert.assertTrue(responses.startsWith(ServerConstants.CREATED));
+            Assert.assertTrue(responses.substring(0, second).endsWith("{\"id\":3,\"name\":\"cid\"}"));
+            Assert.assertTrue(responses.endsWith("{\"id\":3,\"name\":\"cid\"}"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private ResourceCollection users(ResourceStore store) throws Exception {
+        return store.getCollection("users", () -> Files.readAllBytes(directory.resolve("users.json")));
+    }
+
+    private HttpRequest request(String requestLine, String body) {
+        String text = requestLine + " HTTP/1.1\r\n";
+        if (body != null) {
+            text += "Content-Length: " + bytes(body).length + "\r\n";
+        }
+        return HttpRequest.parse(text + "\r\n" + (body != null ? body : ""));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package home.learning.server.test;
+
+import home.learning.server.route.RouteIndex;
+import home.learning.server.route.RouteMatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RouteIndexTest {
+
+    private static RouteIndex index() {
+        Map<String, String> mappings = new HashMap<>();
+        mappings.put("person", "person.json");
+        mappings.put("users/me", "me.json");
+        mappings.put("users/{id}", "user-{id}.json, user.json");
+        mappings.put("users/{id}/orders/{orderId}", "order-{id}-{orderId}.json");
+        mappings.put("orders/*", "orders.json");
+        mappings.put("POST@users", "created.json");
+        mappings.put("users", "users.json");
+        return RouteIndex.compile(mappings);
+    }
+
+    @Test
+    public void testExactRoute() {
+        RouteMatch match = index().match("GET", "/person");
+        Assert.assertEquals(Collections.singletonList("person.json"), match.getFileNames());
+    }
+
+    @Test
+    public void testQueryStringIsIgnored() {
+        RouteMatch match = index().match("GET", "/person?fields=name");
+        Assert.assertEquals("person", match.getRoute().getKey());
+    }
+
+    @Test
+    public void testParameterRouteWithFallback() {
+        RouteMatch match = index().match("GET", "/users/42");
+        Assert.assertEquals("42", match.getParameter("id"));
+        Assert.assertEquals(Arrays.asList("user-42.json", "user.json"), match.getFileNames());
+        RouteMatch nested = index().match("GET", "/users/7/orders/9");
+        Assert.assertEquals(Collections.singletonList("order-7-9.json"), nested.getFileNames());
+    }
+
+    @Test
+    public void testExactWinsOverParameter() {
+        Assert.assertEquals("users/me", index().match("GET", "/users/me").getRoute().getKey());
+    }
+
+    @Test
+    public void testWildcardRoute() {
+        Assert.assertEquals("orders/*", index().match("GET", "/orders/1/items").getRoute().getKey());
+        Assert.assertNull(index().match("GET", "/orders"));
+    }
+
+    @Test
+    public void testMethodSpecificRouteWins() {
+        Assert.assertEquals("POST@users", index().match("POST", "/users").getRoute().getKey());
+        Assert.assertEquals("users", index().match("GET", "/users").getRoute().getKey());
+    }
+
+    @Test
+    public void testNoMatch() {
+        Assert.assertNull(index().match("GET", "/NO_PATH"));
+        Assert.assertNull(index().match("GET", "/person/1"));
+    }
+
+    @Test
+    public void testDuplicatePatternIsRejected() {
+        Map<String, String> mappings = new HashMap<>();
+        mappings.put("users/{id}", "user.json");
+        mappings.put("users/{name}", "user.json");
+        Assert.assertThrows(IllegalArgumentException.class, () -> RouteIndex.compile(mappings));
+    }
+
+    @Test
+    public void testWildcardMustBeLast() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> RouteIndex.compile(Collections.singletonMap("orders/*/items", "items.json")));
+    }
+}
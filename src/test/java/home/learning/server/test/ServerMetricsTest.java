@@ -0,0 +1,87 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.http.HttpRequest;
+import home.learning.server.http.HttpResponse;
+import home.learning.server.metrics.LatencyHistogram;
+import home.learning.server.metrics.ServerMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+public class ServerMetricsTest {
+
+    @Test
+    public void testHistogramQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500500, histogram.getSum());
+        assertWithinBucketError(500, histogram.getValueAtQuantile(0.5));
+        assertWithinBucketError(990, histogram.getValueAtQuantile(0.99));
+        assertWithinBucketError(1000, histogram.getMax());
+        Assert.assertEquals(0, new LatencyHistogram().getValueAtQuantile(0.99));
+    }
+
+    @Test
+    public void testHistogramSmallAndLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        Assert.assertEquals(3, histogram.getValueAtQuantile(1.0));
+        histogram.recordNanos(TimeUnit.SECONDS.toNanos(2));
+        assertWithinBucketError(2_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void testRecordAndRender() {
+        ServerMetrics metrics = new ServerMetrics();
+        metrics.connectionOpened();
+        metrics.record("person", 200, TimeUnit.MILLISECONDS.toNanos(2), 120);
+        metrics.record("person", 200, TimeUnit.MILLISECONDS.toNanos(4), 120);
+        metrics.record(ServerMetrics.UNMATCHED_ROUTE, 400, 1000, 80);
+        Assert.assertEquals(2, metrics.getRequestCount("person", 200));
+        Assert.assertEquals(1, metrics.getRequestCount(ServerMetrics.UNMATCHED_ROUTE, 400));
+        Assert.assertEquals(320, metrics.getBytesWritten());
+        Assert.assertEquals(1, metrics.getActiveConnections());
+
+        String json = metrics.toJson(null);
+        Assert.assertTrue(json.contains("\"connections\":{\"active\":1,\"total\":1}"));
+        Assert.assertTrue(json.contains("{\"route\":\"person\",\"status\":200,\"count\":2,\"bytes\":240"));
+        String prometheus = metrics.toPrometheus(null);
+        Assert.assertTrue(prometheus.contains("server_request_duration_seconds_count{route=\"person\",status=\"200\"} 2"));
+        Assert.assertTrue(prometheus.contains("server_active_connections 1"));
+    }
+
+    @Test
+    public void testMetricsEndpoint() throws Exception {
+        Server server = new Server();
+        HttpRequest request = HttpRequest.parse("GET /person HTTP/1.1\n");
+        long startTime = System.nanoTime();
+        HttpResponse response = server.getResponse(request);
+        server.recordRequest(request, response, startTime);
+        Assert.assertEquals("person", request.getRouteKey());
+        Assert.assertEquals(1, server.getMetrics().getRequestCount("person", 200));
+
+        String json = render(server.getResponse("GET /__metrics HTTP/1.1\n"));
+        Assert.assertTrue(json.startsWith("HTTP/1.1 200 OK"));
+        Assert.assertTrue(json.contains("\"route\":\"person\",\"status\":200,\"count\":1"));
+        String prometheus = render(server.getResponse("GET /__metrics?format=prometheus HTTP/1.1\n"));
+        Assert.assertTrue(prometheus.contains("Content-Type: text/plain"));
+        Assert.assertTrue(prometheus.contains("server_cache_hits_total"));
+    }
+
+    private String render(HttpResponse response) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.writeTo(outputStream);
+        return outputStream.toString("UTF-8");
+    }
+
+    private void assertWithinBucketError(long expected, long actual) {
+        Assert.assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8 + 1);
+    }
+}
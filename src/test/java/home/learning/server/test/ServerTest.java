@@ -7,8 +7,13 @@ import org.junit.Test;
 
 import java.io.*;
 import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 
 public class ServerTest {
@@ -41,6 +46,17 @@ public class ServerTest {
             "Content-Length: 60" + ServerConstants.NEW_LINE + ServerConstants.NEW_LINE +
             "{\"error\":true,\"message\":\"No mapping found for request Path\"}";
 
+    /*
+     * Removes the ETag and Last-Modified headers , which depend on the file , and Accept-Ranges after checking they were sent.
+     * */
+    public static String withoutValidators(String response) {
+        Assert.assertTrue(response.contains("ETag: \""));
+        Assert.assertTrue(response.contains("Last-Modified: "));
+        Assert.assertTrue(response.contains("Accept-Ranges: bytes\r\n"));
+        return response.replaceAll("ETag: [^\r\n]*\r\n", "").replaceAll("Last-Modified: [^\r\n]*\r\n", "")
+                .replace("Accept-Ranges: bytes\r\n", "");
+    }
+
     private static final String RAW_PERSON_DATA = "{\"name\": \"vignesh\",\"age\": 34,\"married\": true,\"country\": \"india\"}";
 
     @Test
@@ -85,6 +101,15 @@ public class ServerTest {
         Assert.assertTrue(response.contains("Vignesh"));
     }
 
+    @Test
+    public void testGetResponseToHttpClientCountsUtf8Bytes() throws Exception {
+        Server server = new Server();
+        Method getResponseMethod = Server.class.getDeclaredMethod("getResponseToHttpClient", String.class, String.class, String.class);
+        getResponseMethod.setAccessible(true);
+        String response = (String) getResponseMethod.invoke(server, "application/json", "200 OK", "{\"city\":\"Chennai \u00e9\"}");
+        Assert.assertTrue(response.contains("Content-Length: 21"));
+    }
+
     @Test
     public void testReadInputFromClient() throws Exception {
         Server server = new Server();
@@ -110,7 +135,7 @@ public class ServerTest {
         respondHttpDataToClientMethod.setAccessible(true);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         respondHttpDataToClientMethod.invoke(server, RAW_HTTP_REQUEST, outputStream);
-        String response = outputStream.toString();
+        String response = withoutValidators(outputStream.toString());
         Assert.assertNotNull(response);
         String excepted = RAW_HTTP_RESPONSE.replaceAll("\r\n", "").replaceAll(" ", "");
         String actual = response.replaceAll("\r\n", "").replaceAll(" ", "");
@@ -206,4 +231,160 @@ public class ServerTest {
         Assert.assertEquals("D:/test",mappingPath);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testHandleClientKeepAlive() throws Exception {
+        Server server = new Server();
+        Method handleClientMethod = Server.class.getDeclaredMethod("handleClient", Socket.class);
+        handleClientMethod.setAccessible(true);
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             Socket client = new Socket("localhost", serverSocket.getLocalPort())) {
+            Socket accepted = serverSocket.accept();
+            Thread worker = new Thread(() -> {
+                try {
+                    handleClientMethod.invoke(server, accepted);
+                } catch (Exception e) {
+                    e.printStackTrace(System.err);
+                }
+            });
+            worker.start();
+            String request = "GET /person HTTP/1.1\r\nHost: localhost\r\n\r\n";
+            String lastRequest = "GET /person HTTP/1.1\r\nConnection: close\r\n\r\n";
+            client.setSoTimeout(5000);
+            client.getOutputStream().write((request + lastRequest).getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            InputStream inputStream = client.getInputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+            worker.join(5000);
+            String response = outputStream.toString();
+            Assert.assertEquals(2, response.split("HTTP/1.1 200 OK").length - 1);
+        }
+    }
+
+    @Test
+    public void testIsKeepAliveRequest() {
+        Server server = new Server();
+        Assert.assertTrue(server.isKeepAliveRequest("GET /person HTTP/1.1\nHost: localhost\n"));
+        Assert.assertFalse(server.isKeepAliveRequest("GET /person HTTP/1.1\nConnection: close\n"));
+        Assert.assertFalse(server.isKeepAliveRequest("GET /person HTTP/1.0\n"));
+    }
+
+    @Test
+    public void testStartAndStopOnEphemeralPort() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, "./JSON_Files/");
+        properties.setProperty(ServerConstants.SERVER_PORT, "0");
+        properties.setProperty("person", "person.json");
+        Server server = new Server(properties);
+        Thread serverThread = new Thread(server::runServer);
+        serverThread.start();
+        Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+        Assert.assertNotEquals(Server.port, server.getLocalPort());
+        try (Socket client = new Socket("localhost", server.getLocalPort())) {
+            client.setSoTimeout(5000);
+            client.getOutputStream().write("GET /person HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Assert.assertEquals("HTTP/1.1 200 OK", reader.readLine());
+        }
+        server.stop();
+        serverThread.join(5000);
+        Assert.assertFalse(serverThread.isAlive());
+    }
+
+    @Test
+    public void testHeadThenGetOnOneConnection() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = new Properties();
+            properties.setProperty(ServerConstants.JSON_FILE_LOCATION, "./JSON_Files/");
+            properties.setProperty(ServerConstants.SERVER_PORT, "0");
+            properties.setProperty(ServerConstants.SERVER_MODE, mode);
+            properties.setProperty("person", "person.json");
+            Server server = new Server(properties);
+            Thread serverThread = new Thread(server::runServer);
+            serverThread.start();
+            try {
+                Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+                try (Socket client = new Socket("localhost", server.getLocalPort())) {
+                    client.setSoTimeout(5000);
+                    client.getOutputStream().write(("HEAD /person HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "HEAD /missing HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                            + "GET /person HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    String response = readFully(client.getInputStream());
+                    String[] responses = response.split("(?=HTTP/1\\.1 )");
+                    Assert.assertEquals(mode, 3, responses.length);
+                    Assert.assertTrue(mode, responses[0].startsWith("HTTP/1.1 200 OK\r\n"));
+                    Assert.assertTrue(mode, responses[0].contains("Content-Length: 82\r\n"));
+                    Assert.assertTrue(mode, responses[0].endsWith("\r\n\r\n"));
+                    Assert.assertTrue(mode, responses[1].startsWith("HTTP/1.1 400 Bad Request\r\n"));
+                    Assert.assertTrue(mode, responses[1].endsWith("\r\n\r\n"));
+                    Assert.assertTrue(mode, responses[2].contains("Content-Length: 82\r\n"));
+                    Assert.assertEquals(mode, 82, responses[2].length() - responses[2].indexOf("\r\n\r\n") - 4);
+                }
+            } finally {
+                server.stop();
+                serverThread.join(5000);
+            }
+        }
+    }
+
+    private static String readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReloadRoutesKeepsTableOnInvalidMappings() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, "./JSON_Files/");
+        properties.setProperty("person", "person.json");
+        Server server = new Server(properties);
+        Assert.assertEquals(400, server.getResponse("GET /people HTTP/1.1").getStatusCode());
+
+        Properties invalid = new Properties();
+        invalid.setProperty("people/*/x", "person.json");
+        Assert.assertFalse(server.reloadRoutes(invalid));
+        Assert.assertFalse(server.reloadRoutes(new Properties()));
+        Assert.assertEquals(200, server.getResponse("GET /person HTTP/1.1").getStatusCode());
+
+        Properties updated = new Properties();
+        updated.setProperty("people", "person.json");
+        Assert.assertTrue(server.reloadRoutes(updated));
+        Assert.assertEquals(200, server.getResponse("GET /people HTTP/1.1").getStatusCode());
+        Assert.assertEquals(400, server.getResponse("GET /person HTTP/1.1").getStatusCode());
+    }
+
+    @Test
+    public void testEditedPropertiesFileIsReloaded() throws Exception {
+        Path directory = Files.createTempDirectory("server-properties");
+        Path file = directory.resolve("server.properties");
+        String settings = ServerConstants.JSON_FILE_LOCATION + "=./JSON_Files/\n" + ServerConstants.SERVER_PORT + "=0\n";
+        Files.write(file, (settings + "person=person.json\n").getBytes(StandardCharsets.ISO_8859_1));
+        Server server = new Server(file);
+        Thread serverThread = new Thread(server::runServer);
+        serverThread.start();
+        try {
+            Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+            Files.write(file, (settings + "person=person.json\npeople=person.json\n").getBytes(StandardCharsets.ISO_8859_1));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (server.getResponse("GET /people HTTP/1.1").getStatusCode() != 200 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(200, server.getResponse("GET /people HTTP/1.1").getStatusCode());
+            Assert.assertEquals(200, server.getResponse("GET /person HTTP/1.1").getStatusCode());
+        } finally {
+            server.stop();
+            serverThread.join(5000);
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.util.AcceptBackoff;
+import home.learning.server.util.ServerUtil;
+import home.learning.server.util.SocketSettings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class ServerUtilTest {
+
+    @Test
+    public void testGetSocketReturnsNullOnFailedAccept() throws Exception {
+        ServerUtil serverUtil = new ServerUtil();
+        ServerSocket serverSocket = new ServerSocket(0);
+        serverSocket.close();
+        Assert.assertNull(serverUtil.getSocket(serverSocket));
+    }
+
+    @Test
+    public void testFailedAcceptsBackOff() {
+        AcceptBackoff backoff = new AcceptBackoff();
+        IOException failure = new IOException("Too many open files");
+        long start = System.nanoTime();
+        backoff.onFailure(failure);
+        backoff.onFailure(failure);
+        backoff.onFailure(failure);
+        Assert.assertEquals(40, backoff.getDelayMillis());
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(70));
+        backoff.onSuccess();
+        Assert.assertEquals(0, backoff.getDelayMillis());
+    }
+
+    @Test
+    public void testGetWorkerExecutorPool() {
+        ServerUtil serverUtil = new ServerUtil();
+        ExecutorService executor = serverUtil.getWorkerExecutor("pool", 3, 10);
+        Assert.assertTrue(executor instanceof ThreadPoolExecutor);
+        Assert.assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+        // A full queue must be rejected , never run on the accepting thread
+        Assert.assertTrue(((ThreadPoolExecutor) executor).getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testGetWorkerExecutorVirtual() {
+        ServerUtil serverUtil = new ServerUtil();
+        ExecutorService executor = serverUtil.getWorkerExecutor("virtual", 3, 10);
+        Assert.assertNotNull(executor);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testGetIntProperty() {
+        ServerUtil serverUtil = new ServerUtil();
+        Properties properties = new Properties();
+        properties.setProperty("server.worker.threads", "8");
+        properties.setProperty("server.worker.queue.size", "abc");
+        Assert.assertEquals(8, serverUtil.getIntProperty(properties, "server.worker.threads", 1));
+        Assert.assertEquals(1, serverUtil.getIntProperty(properties, "server.worker.queue.size", 1));
+        Assert.assertEquals(5, serverUtil.getIntProperty(properties, "missing", 5));
+    }
+
+    @Test
+    public void testSocketSettingsListeners() throws Exception {
+        SocketSettings settings = new SocketSettings(3, 128, true, 64 * 1024, 64 * 1024);
+        List<ServerSocket> serverSockets = settings.openServerSockets(0);
+        List<ServerSocketChannel> serverChannels = settings.openServerChannels(0);
+        try {
+            Assert.assertTrue(serverSockets.size() == 1 || serverSockets.size() == 3);
+            Assert.assertEquals(serverSockets.size(), serverChannels.size());
+            for (ServerSocket serverSocket : serverSockets) {
+                Assert.assertEquals(serverSockets.get(0).getLocalPort(), serverSocket.getLocalPort());
+            }
+            try (Socket client = new Socket("localhost", serverSockets.get(0).getLocalPort())) {
+                settings.configure(client);
+                Assert.assertTrue(client.getTcpNoDelay());
+            }
+        } finally {
+            for (ServerSocket serverSocket : serverSockets) {
+                serverSocket.close();
+            }
+            for (ServerSocketChannel serverChannel : serverChannels) {
+                serverChannel.close();
+            }
+        }
+    }
+
+    @Test
+    public void testServerWithSeveralAcceptors() throws Exception {
+        for (String mode : new String[]{"blocking", ServerConstants.SERVER_MODE_NIO}) {
+            Properties properties = new Properties();
+            properties.setProperty(ServerConstants.JSON_FILE_LOCATION, "./JSON_Files/");
+            properties.setProperty(ServerConstants.SERVER_PORT, "0");
+            properties.setProperty(ServerConstants.SERVER_MODE, mode);
+            properties.setProperty(ServerConstants.ACCEPTORS, "3");
+            properties.setProperty(ServerConstants.NIO_LOOPS, "2");
+            properties.setProperty("person", "person.json");
+            Server server = new Server(properties);
+            Thread serverThread = new Thread(server::runServer);
+            serverThread.start();
+            Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 12; i++) {
+                try (Socket client = new Socket("localhost", server.getLocalPort())) {
+                    client.setSoTimeout(5000);
+                    client.getOutputStream().write("GET /person HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+                    Assert.assertEquals(mode, "HTTP/1.1 200 OK", reader.readLine());
+                }
+            }
+            server.stop();
+            serverThread.join(5000);
+            Assert.assertFalse(mode, serverThread.isAlive());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package home.learning.server.test;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import home.learning.server.http.HttpResponse;
+import org.junit.Assert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Helpers shared by the tests : a running server on an ephemeral port , and the bytes a response or socket gives.
+ * */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /*
+     * @Param mode : server.mode , "blocking" or "nio"
+     * @Return Properties : Mapping "person" to person.json of ./JSON_Files/ , on an ephemeral port with one NIO loop
+     * */
+    static Properties properties(String mode) {
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, "./JSON_Files/");
+        properties.setProperty(ServerConstants.SERVER_PORT, "0");
+        properties.setProperty(ServerConstants.SERVER_MODE, mode);
+        properties.setProperty(ServerConstants.NIO_LOOPS, "1");
+        properties.setProperty("person", "person.json");
+        return properties;
+    }
+
+    /* Runs the server on its own thread and waits until it accepts connections. */
+    static Server start(Properties properties) throws Exception {
+        Server server = new Server(properties);
+        new Thread(server::runServer).start();
+        Assert.assertTrue(server.awaitStarted(5, TimeUnit.SECONDS));
+        return server;
+    }
+
+    /* The whole response as the client receives it , decoded as UTF-8. */
+    static String write(HttpResponse response) throws IOException {
+        return write(response, "UTF-8");
+    }
+
+    static String write(HttpResponse response, String charsetName) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.writeTo(outputStream);
+        return outputStream.toString(charsetName);
+    }
+
+    static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /* Reads until the server closes the connection , a reset counts as closed. */
+    static String readUntilClosed(Socket socket) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        InputStream inputStream = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        try {
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (SocketException e) {
+            // Reset by the server
+        }
+        return outputStream.toString("UTF-8");
+    }
+}
@@ -0,0 +1,220 @@
+package home.learning.server.test.load;
+
+import home.learning.server.metrics.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Open-loop load generator : requests are scheduled at a constant rate , spread over a fixed
+ * number of connections , whether or not earlier responses came back.
+ * Latency is measured from the time a request was scheduled , not from the time it was sent ,
+ * so a stalled server is charged for every request queued behind the stall (coordinated omission correction).
+ * */
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final List<String> paths;
+    private final int ratePerSecond;
+    private final int connections;
+    private final boolean keepAlive;
+    private final long durationNanos;
+    private final long warmupNanos;
+
+    /*
+     * @Param paths : Request paths , used round robin
+     * @Param ratePerSecond : Requests per second over all connections
+     * @Param connections : Number of client connections , each sending its share of the rate
+     * @Param keepAlive : true to reuse every connection , false to open a new one per request
+     * @Param durationSeconds : Length of the measured run
+     * @Param warmupSeconds : Run time before the measured run , not recorded
+     * */
+    public LoadGenerator(String host, int port, List<String> paths, int ratePerSecond, int connections,
+                         boolean keepAlive, int durationSeconds, int warmupSeconds) {
+        this.host = host;
+        this.port = port;
+        this.paths = paths;
+        this.ratePerSecond = ratePerSecond;
+        this.connections = connections;
+        this.keepAlive = keepAlive;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+    }
+
+    public LoadResult run() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * connections / ratePerSecond;
+        long startTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = startTime + warmupNanos;
+        long endTime = measureFrom + durationNanos;
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            long firstRequest = startTime + TimeUnit.SECONDS.toNanos(1) * i / ratePerSecond;
+            Worker worker = new Worker(i, firstRequest, intervalNanos, measureFrom, endTime, histogram, errors);
+            Thread thread = new Thread(worker, "load-generator-" + i);
+            thread.start();
+            workers.add(thread);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - measureFrom;
+        return new LoadResult(keepAlive ? "keepalive" : "close", ratePerSecond, connections,
+                histogram, errors.get(), elapsedNanos);
+    }
+
+    /* One connection , sending requests at its scheduled times. */
+    private class Worker implements Runnable {
+
+        private final int index;
+        private final long firstRequest;
+        private final long intervalNanos;
+        private final long measureFrom;
+        private final long endTime;
+        private final LatencyHistogram histogram;
+        private final AtomicLong errors;
+        private final byte[] buffer = new byte[64 * 1024];
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        private Worker(int index, long firstRequest, long intervalNanos, long measureFrom, long endTime,
+                       LatencyHistogram histogram, AtomicLong errors) {
+            this.index = index;
+            this.firstRequest = firstRequest;
+            this.intervalNanos = intervalNanos;
+            this.measureFrom = measureFrom;
+            this.endTime = endTime;
+            this.histogram = histogram;
+            this.errors = errors;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (long i = 0; ; i++) {
+                    long scheduled = firstRequest + i * intervalNanos;
+                    if (scheduled >= endTime) {
+                        return;
+                    }
+                    long now;
+                    while ((now = System.nanoTime()) < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                    }
+                    String path = paths.get((int) ((index + i) % paths.size()));
+                    boolean success = send(path);
+                    if (scheduled >= measureFrom) {
+                        histogram.recordNanos(System.nanoTime() - scheduled);
+                        if (!success) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            } finally {
+                closeConnection();
+            }
+        }
+
+        /*
+         * Sends one request and reads the whole response.
+         * @Return boolean : true for a 200 response
+         * */
+        private boolean send(String path) {
+            String request = "GET " + path + " HTTP/1.1\r\nHost: " + host + "\r\n"
+                    + (keepAlive ? "" : "Connection: close\r\n") + "\r\n";
+            boolean reused = socket != null;
+            try {
+                return exchange(request);
+            } catch (IOException e) {
+                closeConnection();
+                if (!reused) {
+                    return false;
+                }
+            }
+            // The server may close an idle or used up keep-alive connection , like every HTTP client retry once on a new one.
+            try {
+                return exchange(request);
+            } catch (IOException e) {
+                closeConnection();
+                return false;
+            }
+        }
+
+        private boolean exchange(String request) throws IOException {
+            if (socket == null) {
+                socket = new Socket(host, port);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(10000);
+                in = new BufferedInputStream(socket.getInputStream());
+                out = socket.getOutputStream();
+            }
+            out.write(request.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            int status = readResponse();
+            if (!keepAlive) {
+                closeConnection();
+            }
+            return status == 200;
+        }
+
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            if (statusLine.length() < 12) {
+                throw new IOException("Invalid status line " + statusLine);
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long contentLength = 0;
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                    contentLength = Long.parseLong(line.substring(colon + 1).trim());
+                }
+            }
+            while (contentLength > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, contentLength));
+                if (read < 0) {
+                    throw new IOException("Connection closed in the middle of the body");
+                }
+                contentLength -= read;
+            }
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed in the middle of the headers");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        private void closeConnection() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Reconnecting anyway.
+                }
+                socket = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package home.learning.server.test.load;
+
+import home.learning.server.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Outcome of one load generator run , latencies in microseconds.
+ * */
+public class LoadResult {
+
+    private final String scenario;
+    private final int ratePerSecond;
+    private final int connections;
+    private final LatencyHistogram histogram;
+    private final long errors;
+    private final long elapsedNanos;
+
+    LoadResult(String scenario, int ratePerSecond, int connections, LatencyHistogram histogram, long errors, long elapsedNanos) {
+        this.scenario = scenario;
+        this.ratePerSecond = ratePerSecond;
+        this.connections = connections;
+        this.histogram = histogram;
+        this.errors = errors;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getRequests() {
+        return histogram.getCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getErrorRate() {
+        return getRequests() == 0 ? 0 : (double) errors / getRequests();
+    }
+
+    /* Completed requests per second of the measured run. */
+    public double getThroughput() {
+        return getRequests() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public long getP50() {
+        return histogram.getValueAtQuantile(0.5);
+    }
+
+    public long getP99() {
+        return histogram.getValueAtQuantile(0.99);
+    }
+
+    public long getP999() {
+        return histogram.getValueAtQuantile(0.999);
+    }
+
+    public long getMax() {
+        return histogram.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%s : %d req/s over %d connections -> %d requests , %.1f req/s , %d errors , p50 %d us , p99 %d us , p99.9 %d us , max %d us",
+                scenario, ratePerSecond, connections, getRequests(), getThroughput(), errors, getP50(), getP99(), getP999(), getMax());
+    }
+}
@@ -0,0 +1,147 @@
+package home.learning.server.test.load;
+
+import home.learning.server.Server;
+import home.learning.server.ServerConstants;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * End-to-end load test : starts the server in-process on an ephemeral port over generated fixtures ,
+ * drives it with the open-loop LoadGenerator and fails when a scenario regresses against
+ * load-baseline.properties. Excluded from the default build , run with : mvn -P load-test test
+ * Every run is also written to target/load-test-result.properties , to refresh the baseline.
+ * */
+public class ServerLoadTest {
+
+    private static final int[] FIXTURE_SIZES = {512, 4 * 1024, 64 * 1024, 512 * 1024};
+
+    private static final Properties settings = new Properties();
+    private static final Properties results = new Properties();
+    private static Path fixtureDirectory;
+    private static Server server;
+    private static Thread serverThread;
+    private static final List<String> paths = new ArrayList<>();
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        try (InputStream stream = ServerLoadTest.class.getResourceAsStream("/load-baseline.properties")) {
+            settings.load(stream);
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("load.") || key.startsWith("baseline.")) {
+                settings.setProperty(key, System.getProperty(key));
+            }
+        }
+        fixtureDirectory = Files.createTempDirectory("load-fixtures");
+        Properties properties = new Properties();
+        properties.setProperty(ServerConstants.JSON_FILE_LOCATION, fixtureDirectory.toString());
+        properties.setProperty(ServerConstants.SERVER_PORT, "0");
+        properties.setProperty(ServerConstants.SERVER_MODE, settings.getProperty("load.mode", "blocking"));
+        properties.setProperty(ServerConstants.WORKER_THREADS, settings.getProperty("load.worker.threads", "0"));
+        properties.setProperty(ServerConstants.LOG_LEVEL, "WARN");
+        for (int size : FIXTURE_SIZES) {
+            String name = "fixture-" + size;
+            Files.write(fixtureDirectory.resolve(name + ".json"), json(size).getBytes(StandardCharsets.UTF_8));
+            properties.setProperty(name, name + ".json");
+            paths.add("/" + name);
+        }
+        server = new Server(properties);
+        serverThread = new Thread(server::runServer, "load-test-server");
+        serverThread.start();
+        Assert.assertTrue("Server did not start", server.awaitStarted(10, TimeUnit.SECONDS));
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+        serverThread.join(5000);
+        try (Writer writer = Files.newBufferedWriter(Paths.get("target", "load-test-result.properties"))) {
+            results.store(writer, "Last load test run");
+        }
+        for (int size : FIXTURE_SIZES) {
+            Files.deleteIfExists(fixtureDirectory.resolve("fixture-" + size + ".json"));
+        }
+        Files.deleteIfExists(fixtureDirectory);
+    }
+
+    @Test
+    public void testKeepAliveConnections() throws Exception {
+        assertWithinBaseline(run(true));
+    }
+
+    @Test
+    public void testConnectionPerRequest() throws Exception {
+        assertWithinBaseline(run(false));
+    }
+
+    private LoadResult run(boolean keepAlive) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator("localhost", server.getLocalPort(), paths,
+                intSetting("load.rate"), intSetting("load.connections"), keepAlive,
+                intSetting("load.duration.seconds"), intSetting("load.warmup.seconds"));
+        LoadResult result = generator.run();
+        System.out.println(result);
+        String prefix = "baseline." + result.getScenario() + ".";
+        results.setProperty(prefix + "p50.micros", String.valueOf(result.getP50()));
+        results.setProperty(prefix + "p99.micros", String.valueOf(result.getP99()));
+        results.setProperty(prefix + "p999.micros", String.valueOf(result.getP999()));
+        results.setProperty(prefix + "throughput", String.format(Locale.ROOT, "%.1f", result.getThroughput()));
+        results.setProperty(prefix + "errors", String.valueOf(result.getErrors()));
+        return result;
+    }
+
+    private void assertWithinBaseline(LoadResult result) {
+        double tolerance = Double.parseDouble(settings.getProperty("baseline.tolerance"));
+        String prefix = "baseline." + result.getScenario() + ".";
+        List<String> regressions = new ArrayList<>();
+        checkLatency(regressions, prefix + "p50.micros", result.getP50(), tolerance);
+        checkLatency(regressions, prefix + "p99.micros", result.getP99(), tolerance);
+        checkLatency(regressions, prefix + "p999.micros", result.getP999(), tolerance);
+        double minThroughput = intSetting("load.rate") * (1 - tolerance);
+        if (result.getThroughput() < minThroughput) {
+            regressions.add(String.format(Locale.ROOT, "throughput %.1f req/s below %.1f", result.getThroughput(), minThroughput));
+        }
+        double maxErrorRate = Double.parseDouble(settings.getProperty("baseline.max.error.rate"));
+        if (result.getErrorRate() > maxErrorRate) {
+            regressions.add(result.getErrors() + " errors out of " + result.getRequests() + " requests");
+        }
+        Assert.assertTrue(result.getScenario() + " regressed : " + regressions, regressions.isEmpty());
+    }
+
+    private void checkLatency(List<String> regressions, String key, long actual, double tolerance) {
+        String baseline = settings.getProperty(key);
+        if (baseline == null) {
+            return;
+        }
+        double limit = Long.parseLong(baseline) * (1 + tolerance);
+        if (actual > limit) {
+            regressions.add(key + " " + actual + " us above " + (long) limit + " us");
+        }
+    }
+
+    private static int intSetting(String key) {
+        return Integer.parseInt(settings.getProperty(key).trim());
+    }
+
+    private static String json(int size) {
+        StringBuilder json = new StringBuilder(size + 64).append('[');
+        for (int id = 0; json.length() < size - 2; id++) {
+            json.append(id > 0 ? "," : "").append("{\"id\":").append(id).append(",\"name\":\"Person ").append(id).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+}